@@ -0,0 +1,135 @@
+package io.github.neelkamath.timebend.db;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(AndroidJUnit4.class)
+public class ActivityDaoTest {
+    private AppDatabase database;
+    private ActivityDao activityDao;
+    private long otherPlanId;
+
+    @Before
+    public void setUp() {
+        database = TestDatabases.createInMemory();
+        activityDao = database.activityDao();
+        otherPlanId = database.planDao().insertPlan(new Plan("Other", -1, -1, -1, -1));
+        TestDatabases.insert(database, Plan.DEFAULT_ID, "a", "b", "c", "d", "e");
+        TestDatabases.insert(database, otherPlanId, "v", "w", "x");
+    }
+
+    @After
+    public void tearDown() {
+        TestDatabases.close(database);
+    }
+
+    @Test
+    public void deleteAndRenumberClosesTheGap() {
+        activityDao.deleteAndRenumber(activityDao.getAll(Plan.DEFAULT_ID).get(2));
+        assertOrder(Plan.DEFAULT_ID, "a", "b", "d", "e");
+    }
+
+    @Test
+    public void deleteAndRenumberLeavesOtherPlansAlone() {
+        activityDao.deleteAndRenumber(activityDao.getAll(Plan.DEFAULT_ID).get(0));
+        assertOrder(otherPlanId, "v", "w", "x");
+    }
+
+    @Test
+    public void insertAndRenumberUndoesDeleteAndRenumber() {
+        Activity activity = activityDao.getAll(Plan.DEFAULT_ID).get(1);
+        activityDao.deleteAndRenumber(activity);
+        activityDao.insertAndRenumber(activity);
+        assertOrder(Plan.DEFAULT_ID, "a", "b", "c", "d", "e");
+        assertEquals(activity.id, activityDao.getAll(Plan.DEFAULT_ID).get(1).id);
+    }
+
+    @Test
+    public void deleteAndRenumberUsesTheStoredPosition() {
+        List<Activity> activities = activityDao.getAll(Plan.DEFAULT_ID);
+        activityDao.deleteAndRenumber(activities.get(0));
+        Activity stale = activities.get(3);
+        activityDao.deleteAndRenumber(stale);
+        assertOrder(Plan.DEFAULT_ID, "b", "c", "e");
+        assertEquals(2, stale.position);
+    }
+
+    @Test
+    public void deleteAndRenumberIgnoresDeletedActivities() {
+        Activity activity = activityDao.getAll(Plan.DEFAULT_ID).get(1);
+        activityDao.deleteAndRenumber(activity);
+        assertFalse(activityDao.deleteAndRenumber(activity));
+        assertOrder(Plan.DEFAULT_ID, "a", "c", "d", "e");
+    }
+
+    @Test
+    public void insertAndRenumberClampsThePosition() {
+        List<Activity> activities = activityDao.getAll(Plan.DEFAULT_ID);
+        Activity last = activities.get(4);
+        activityDao.deleteAndRenumber(last);
+        activityDao.deleteAndRenumber(activities.get(0));
+        activityDao.insertAndRenumber(last);
+        assertOrder(Plan.DEFAULT_ID, "b", "c", "d", "e");
+        assertEquals(3, activityDao.getAll(Plan.DEFAULT_ID).get(3).position);
+    }
+
+    @Test
+    public void moveActivityDown() {
+        activityDao.moveActivity(activityDao.getAll(Plan.DEFAULT_ID).get(1), 1, 3);
+        assertOrder(Plan.DEFAULT_ID, "a", "c", "d", "b", "e");
+    }
+
+    @Test
+    public void moveActivityUp() {
+        activityDao.moveActivity(activityDao.getAll(Plan.DEFAULT_ID).get(4), 4, 0);
+        assertOrder(Plan.DEFAULT_ID, "e", "a", "b", "c", "d");
+        assertOrder(otherPlanId, "v", "w", "x");
+    }
+
+    @Test
+    public void getSnapshotReadsOnlyTheWindowWithTheWholePlansTotals() {
+        Activity first = activityDao.getAll(Plan.DEFAULT_ID).get(0);
+        first.isCompleted = true;
+        activityDao.updateActivity(first);
+        PlanSnapshot snapshot = new PlanSnapshot(activityDao.getSnapshot(Plan.DEFAULT_ID, 2, 4), 2);
+        assertEquals(2, snapshot.activities.size());
+        assertEquals("c", snapshot.activities.get(0).task);
+        assertEquals(5, snapshot.numberOfActivities);
+        assertEquals(4 * 10, snapshot.incompleteDuration);
+        assertEquals(10, snapshot.incompleteDurationBefore);
+    }
+
+    @Test
+    public void getSnapshotReadsTheTotalsOfAnEmptyWindow() {
+        PlanSnapshot snapshot =
+                new PlanSnapshot(activityDao.getSnapshot(Plan.DEFAULT_ID, 50, 100), 50);
+        assertEquals(0, snapshot.activities.size());
+        assertEquals(5, snapshot.numberOfActivities);
+        assertEquals(5 * 10, snapshot.incompleteDurationBefore);
+    }
+
+    /**
+     * Asserts that the plan has the {@code tasks} in order, positioned from {@code 0} without
+     * gaps.
+     */
+    private void assertOrder(long planId, String... tasks) {
+        List<Activity> activities = activityDao.getAll(planId);
+        List<String> actual = new ArrayList<>(activities.size());
+        for (int index = 0; index < activities.size(); index++) {
+            assertEquals(index, activities.get(index).position);
+            actual.add(activities.get(index).task);
+        }
+        assertEquals(Arrays.asList(tasks), actual);
+    }
+}
@@ -0,0 +1,470 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.lifecycle.Observer;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the repository the way {@link io.github.neelkamath.timebend.MainActivity} does, counting
+ * what it runs on the database with a {@link StatementCounter}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ActivityRepositoryTest {
+    /**
+     * The number of activities in a huge plan.
+     */
+    private static final int SIZE = 100000;
+    /**
+     * How long the first page may take to be read. Reading the whole plan takes several times
+     * this, even on a fast device.
+     */
+    private static final long FIRST_PAGE_MILLIS = 1000;
+    /**
+     * The number of plans the activities of a huge plan are spread over when they're inactive.
+     */
+    private static final int INACTIVE_PLANS = 10;
+    private static final int READS = 200;
+    private static final long TIMEOUT_SECONDS = 10;
+    /**
+     * The number of rows from either end of the displayed ones at which the list slides the
+     * window.
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+    private final BlockingQueue<PlanSnapshot> snapshots = new LinkedBlockingQueue<>();
+    private final Observer<PlanSnapshot> observer = new Observer<PlanSnapshot>() {
+        @Override
+        public void onChanged(@Nullable PlanSnapshot snapshot) {
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        }
+    };
+    private final StatementCounter counter = new StatementCounter();
+    private AppDatabase database;
+    private ActivityRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        database = TestDatabases.createInMemory(counter);
+        repository = new ActivityRepository(InstrumentationRegistry.getTargetContext(), database);
+        final Plan plan = database.planDao().getAll().get(0);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                repository.switchPlan(plan);
+            }
+        });
+        awaitWrites();
+    }
+
+    @After
+    public void tearDown() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                repository.getSnapshot().removeObserver(observer);
+            }
+        });
+        TestDatabases.close(database);
+    }
+
+    /**
+     * Dragging an activity used to write both activities of every swap it passed on the way.
+     * It's now committed as one move when it's dropped, which only rewrites the activities
+     * between where it was dragged from and where it was dropped.
+     */
+    @Test
+    public void aDragIsCommittedAsOneMoveOfTheDraggedRange() throws Exception {
+        int from = 10;
+        int to = 60;
+        fill(100);
+        int[] swapped = dragBySwapping(from, to);
+        List<String> swappedOrder = readTasks();
+        fill(100);
+        int[] moved = dragAndDrop(from, to);
+        assertEquals(swappedOrder, readTasks());
+        assertEquals(2 * (to - from), swapped[0]);
+        assertEquals(2, moved[0]);
+        // Each activity rewritten has a change logged for it.
+        assertEquals(to - from + 1, swapped[1]);
+        assertEquals(to - from + 1, moved[1]);
+    }
+
+    /**
+     * Mutations queued on the main thread before it's next idle are committed in one
+     * transaction, and an activity updated several times in a row is only written once.
+     */
+    @Test
+    public void updatesQueuedTogetherAreMergedIntoOneTransaction() throws Exception {
+        fill(5);
+        final List<Activity> activities = database.activityDao().getAll(Plan.DEFAULT_ID);
+        startCounting();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (Activity activity : activities) {
+                    for (int duration = 1; duration <= 10; duration++) {
+                        activity.duration = duration;
+                        repository.update(activity);
+                    }
+                }
+            }
+        });
+        awaitWrites();
+        assertArrayEquals(new int[]{activities.size(), 1}, readCounts());
+        for (Activity activity : database.activityDao().getAll(Plan.DEFAULT_ID)) {
+            assertEquals(10, activity.duration);
+        }
+    }
+
+    /**
+     * Mutations are applied in the order they were queued in, even when they're about
+     * different activities whose positions depend on each other.
+     */
+    @Test
+    public void mutationsAreAppliedInOrder() throws Exception {
+        fill(3);
+        final List<Activity> activities = database.activityDao().getAll(Plan.DEFAULT_ID);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                repository.move(activities.get(2), 2, 0);
+                repository.delete(activities.get(1));
+                repository.append(new Activity("Task 3", 10, 0, false));
+                repository.delete(activities.get(0));
+            }
+        });
+        awaitWrites();
+        assertEquals(Arrays.asList("Task 2", "Task 3"), readTasks());
+    }
+
+    /**
+     * Each write to the active plan is followed by one query of its activities for the UI,
+     * which reads the displayed window along with the plan's count and incomplete duration. The
+     * UI used to run four (two lists, the count and the duration).
+     */
+    @Test
+    public void eachWriteIsFollowedByOneSnapshotQuery() throws Exception {
+        List<String> oldQueries = Arrays.asList(
+                Sql.GET.replace(":planId", "?"),
+                "SELECT COUNT(*) FROM activities WHERE plan_id = ?",
+                "SELECT SUM(duration) FROM activities WHERE plan_id = ? AND is_completed = 0"
+        );
+        String snapshotQuery = Sql.GET_SNAPSHOT.replaceAll(":\\w+", "?");
+        fill(10);
+        observe();
+        awaitSnapshot();
+        final Activity activity = database.activityDao().getAll(Plan.DEFAULT_ID).get(5);
+        startCounting();
+        int writes = 3;
+        for (int write = 0; write < writes; write++) {
+            activity.isCompleted = !activity.isCompleted;
+            runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    repository.update(activity);
+                }
+            });
+            assertEquals(activity.isCompleted, awaitSnapshot().activities.get(5).isCompleted);
+        }
+        assertEquals(writes, readCounts()[0]);
+        int snapshotQueries = 0;
+        for (String query : counter.getQueries()) {
+            assertFalse(query, oldQueries.contains(query));
+            if (query.equals(snapshotQuery)) {
+                snapshotQueries++;
+            }
+        }
+        assertEquals(writes, snapshotQueries);
+    }
+
+    @Test
+    public void theFirstPageIsReadWithoutTheRestOfThePlan() throws InterruptedException {
+        fill(SIZE);
+        long start = SystemClock.elapsedRealtime();
+        observe();
+        PlanSnapshot snapshot = awaitSnapshot();
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        assertEquals(0, snapshot.offset);
+        assertEquals(ActivityRepository.PAGE_SIZE, snapshot.activities.size());
+        assertEquals(SIZE, snapshot.numberOfActivities);
+        assertTrue(elapsed + " ms", elapsed < FIRST_PAGE_MILLIS);
+    }
+
+    @Test
+    public void scrollingKeepsABoundedWindow() throws InterruptedException {
+        fill(SIZE);
+        observe();
+        PlanSnapshot snapshot = awaitSnapshot();
+        int pages = 20;
+        for (int page = 0; page < pages; page++) {
+            snapshot = slide(snapshot, snapshot.activities.size() - 1);
+            assertTrue(snapshot.activities.size() <= ActivityRepository.MAX_WINDOW_SIZE);
+            assertEquals(snapshot.offset, snapshot.activities.get(0).position);
+        }
+        assertEquals(ActivityRepository.MAX_WINDOW_SIZE, snapshot.activities.size());
+        assertEquals(
+                (pages + 1) * ActivityRepository.PAGE_SIZE,
+                snapshot.offset + snapshot.activities.size()
+        );
+        // Scrolling back drops the activities at the other end.
+        int offset = snapshot.offset;
+        snapshot = slide(snapshot, 0);
+        assertEquals(offset - ActivityRepository.PAGE_SIZE, snapshot.offset);
+        assertEquals(ActivityRepository.MAX_WINDOW_SIZE, snapshot.activities.size());
+    }
+
+    /**
+     * Inactive plans, however large, don't change what the active plan costs: its snapshot only
+     * holds its own activities, and reading it takes about as long as it did before they were
+     * added.
+     */
+    @Test
+    public void largeInactivePlansDontAffectTheActivePlan() throws Exception {
+        fill(100);
+        long alone = measureSnapshotReads();
+        final String[] tasks = new String[SIZE / INACTIVE_PLANS];
+        for (int index = 0; index < tasks.length; index++) {
+            tasks[index] = "Inactive task " + index;
+        }
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (int plan = 0; plan < INACTIVE_PLANS; plan++) {
+                    long planId = database.planDao().insertPlan(
+                            new Plan("Inactive " + plan, -1, -1, -1, -1)
+                    );
+                    TestDatabases.insert(database, planId, tasks);
+                }
+            }
+        });
+        long withInactivePlans = measureSnapshotReads();
+        assertTrue(
+                withInactivePlans / 1e6 + " ms vs " + alone / 1e6 + " ms",
+                withInactivePlans <= 2 * alone + 1000 * 1000
+        );
+        observe();
+        PlanSnapshot snapshot = awaitSnapshot();
+        assertEquals(100, snapshot.numberOfActivities);
+        assertEquals(ActivityRepository.PAGE_SIZE, snapshot.activities.size());
+        for (Activity activity : snapshot.activities) {
+            assertEquals(Plan.DEFAULT_ID, activity.planId);
+        }
+    }
+
+    /**
+     * Replaces the default plan's activities with {@code count} incomplete ones.
+     */
+    private void fill(int count) {
+        final String[] tasks = new String[count];
+        for (int index = 0; index < count; index++) {
+            tasks[index] = "Task " + index;
+        }
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                database.activityDao().deleteAll(Plan.DEFAULT_ID);
+                TestDatabases.insert(database, Plan.DEFAULT_ID, tasks);
+            }
+        });
+    }
+
+    /**
+     * Drags the activity at the position {@code from} down to the position {@code to} by
+     * writing both activities of each swap as the drag passes them, like the app used to.
+     *
+     * @return the number of statements run, and the number of changes logged
+     */
+    private int[] dragBySwapping(final int from, final int to) throws Exception {
+        return onWriter(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                ActivityDao activityDao = database.activityDao();
+                List<Activity> activities = activityDao.getAll(Plan.DEFAULT_ID);
+                database.changeDao().deleteAll();
+                counter.start();
+                for (int position = from; position < to; position++) {
+                    Activity dragged = activities.get(position);
+                    Activity next = activities.get(position + 1);
+                    dragged.position = position + 1;
+                    next.position = position;
+                    activityDao.updateActivity(dragged);
+                    activityDao.updateActivity(next);
+                    activities.set(position, next);
+                    activities.set(position + 1, dragged);
+                }
+                return new int[]{counter.getStatements(), countChanges()};
+            }
+        });
+    }
+
+    /**
+     * Drops the activity at the position {@code from} at the position {@code to} through the
+     * repository, like the app does once a drag ends.
+     *
+     * @return the number of statements run, and the number of changes logged
+     */
+    private int[] dragAndDrop(final int from, final int to) throws Exception {
+        onWriter(new Callable<Void>() {
+            @Override
+            public Void call() {
+                database.changeDao().deleteAll();
+                return null;
+            }
+        });
+        startCounting();
+        final Activity activity = database.activityDao().getAll(Plan.DEFAULT_ID).get(from);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                repository.move(activity, from, to);
+            }
+        });
+        awaitWrites();
+        return new int[]{readCounts()[0], countChanges()};
+    }
+
+    /**
+     * Reads the first page of the default plan's snapshot {@link #READS} times on the database's
+     * read executor.
+     *
+     * @return the median latency in nanoseconds
+     */
+    private long measureSnapshotReads() throws Exception {
+        long[] latencies = database.getProfile().readExecutor.submit(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                long[] latencies = new long[READS];
+                for (int read = 0; read < READS; read++) {
+                    long start = System.nanoTime();
+                    database.activityDao()
+                            .getSnapshot(Plan.DEFAULT_ID, 0, ActivityRepository.PAGE_SIZE);
+                    latencies[read] = System.nanoTime() - start;
+                }
+                return latencies;
+            }
+        }).get();
+        Arrays.sort(latencies);
+        return latencies[READS / 2];
+    }
+
+    /**
+     * Counts what the repository runs on the database from now on.
+     */
+    private void startCounting() throws Exception {
+        onWriter(new Callable<Void>() {
+            @Override
+            public Void call() {
+                counter.start();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return the number of statements and transactions the repository has run since
+     * {@link #startCounting()}
+     */
+    private int[] readCounts() throws Exception {
+        return onWriter(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return new int[]{counter.getStatements(), counter.getTransactions()};
+            }
+        });
+    }
+
+    private int countChanges() {
+        try (Cursor cursor = database.query("SELECT COUNT(*) FROM changes", null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private List<String> readTasks() {
+        List<Activity> activities = database.activityDao().getAll(Plan.DEFAULT_ID);
+        List<String> tasks = new ArrayList<>(activities.size());
+        for (Activity activity : activities) {
+            tasks.add(activity.task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Waits for the mutations queued on the main thread to be committed.
+     */
+    private void awaitWrites() throws Exception {
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        onWriter(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+    }
+
+    private <T> T onWriter(Callable<T> callable) throws Exception {
+        return database.getProfile().writeExecutor.submit(callable).get();
+    }
+
+    private void observe() {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                repository.getSnapshot().observeForever(observer);
+            }
+        });
+    }
+
+    /**
+     * Scrolls to the displayed row at the {@code index} like the list does, and waits for the
+     * window it slides to.
+     */
+    private PlanSnapshot slide(final PlanSnapshot displayed, final int index)
+            throws InterruptedException {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                repository.slideWindowIfNeeded(
+                        displayed.offset,
+                        index,
+                        displayed.activities.size(),
+                        PREFETCH_DISTANCE
+                );
+            }
+        });
+        return awaitSnapshot();
+    }
+
+    private PlanSnapshot awaitSnapshot() throws InterruptedException {
+        PlanSnapshot snapshot = snapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("Timed out", snapshot);
+        return snapshot;
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
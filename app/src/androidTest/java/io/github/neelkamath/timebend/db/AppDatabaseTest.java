@@ -0,0 +1,48 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.RoomDatabase;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class AppDatabaseTest {
+    private AppDatabase database;
+
+    @After
+    public void tearDown() {
+        if (database != null) {
+            TestDatabases.close(database);
+        }
+    }
+
+    /**
+     * A transaction holds the primary connection, which every write uses, so the setting read in
+     * one is the one commits are synced with.
+     */
+    @Test
+    public void synchronousIsSetOnTheConnectionWhichWrites() {
+        database = AppDatabase.create(
+                InstrumentationRegistry.getTargetContext(),
+                new StorageProfile.Builder("synchronous-test")
+                        .setLocation(StorageProfile.Location.TEMPORARY_FILE)
+                        .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                        .setSynchronous(StorageProfile.Synchronous.NORMAL)
+                        .build()
+        );
+        database.beginTransaction();
+        try (Cursor cursor = database.query("PRAGMA synchronous", null)) {
+            cursor.moveToFirst();
+            // NORMAL is 1.
+            assertEquals(1, cursor.getInt(0));
+        } finally {
+            database.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.neelkamath.timebend.db;
+
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class ChangeLogTest {
+    private AppDatabase database;
+    private File directory;
+    private long otherPlanId;
+
+    @Before
+    public void setUp() {
+        database = TestDatabases.createInMemory();
+        File cache = InstrumentationRegistry.getTargetContext().getCacheDir();
+        directory = new File(cache, "backup-test");
+        deleteDirectory();
+        otherPlanId = database.planDao().insertPlan(new Plan("Other", -1, -1, -1, -1));
+        TestDatabases.insert(database, Plan.DEFAULT_ID, "a", "b", "c");
+        TestDatabases.insert(database, otherPlanId, "x", "y");
+    }
+
+    @After
+    public void tearDown() {
+        TestDatabases.close(database);
+        deleteDirectory();
+    }
+
+    @Test
+    public void changesKeepOnlyTheLatestChangeOfEachActivity() {
+        Activity activity = database.activityDao().getAll(Plan.DEFAULT_ID).get(0);
+        activity.duration = 20;
+        database.activityDao().updateActivity(activity);
+        activity.isCompleted = true;
+        database.activityDao().updateActivity(activity);
+        assertEquals(5, queryInt("SELECT COUNT(*) FROM changes"));
+        assertEquals(
+                Change.UPDATE,
+                queryInt("SELECT operation FROM changes WHERE activity_id = " + activity.id)
+        );
+    }
+
+    @Test
+    public void restoreReplaysTheBaseAndTheSegmentsAfterIt() throws IOException {
+        assertEquals(5, ChangeLog.backUp(database, directory));
+        Activity activity = database.activityDao().getAll(Plan.DEFAULT_ID).get(1);
+        database.activityDao().deleteAndRenumber(activity);
+        TestDatabases.insert(database, Plan.DEFAULT_ID, "d");
+        // The deleted activity, the one renumbered after it and the inserted one.
+        assertEquals(3, ChangeLog.backUp(database, directory));
+        database.activityDao().deleteAll(Plan.DEFAULT_ID);
+
+        assertEquals(5, ChangeLog.restore(database, directory));
+        assertTasks(Plan.DEFAULT_ID, "a", "c", "d");
+        assertTasks(otherPlanId, "x", "y");
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM changes"));
+    }
+
+    /**
+     * The base snapshot has the deleted plan's activities, which are restored into a recreated
+     * plan until the segment deleting them is replayed.
+     */
+    @Test
+    public void restoreAfterAPlanWasDeleted() throws IOException {
+        ChangeLog.backUp(database, directory);
+        database.planDao().deletePlan(otherPlanId);
+        ChangeLog.backUp(database, directory);
+
+        assertEquals(3, ChangeLog.restore(database, directory));
+        assertTasks(Plan.DEFAULT_ID, "a", "b", "c");
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM plans WHERE id = " + otherPlanId));
+    }
+
+    @Test
+    public void restoreCreatesThePlansOfActivitiesWhoseBackUpOutlivedThem() throws IOException {
+        ChangeLog.backUp(database, directory);
+        database.planDao().deletePlan(otherPlanId);
+
+        assertEquals(5, ChangeLog.restore(database, directory));
+        String query = "SELECT COUNT(*) FROM plans WHERE name = 'Restored' AND id = ";
+        assertEquals(1, queryInt(query + otherPlanId));
+        assertTasks(otherPlanId, "x", "y");
+    }
+
+    @Test(expected = IOException.class)
+    public void restoreWithoutABackUpFails() throws IOException {
+        ChangeLog.restore(database, directory);
+    }
+
+    private void assertTasks(long planId, String... tasks) {
+        List<Activity> activities = database.activityDao().getAll(planId);
+        assertEquals(tasks.length, activities.size());
+        for (int index = 0; index < tasks.length; index++) {
+            assertEquals(tasks[index], activities.get(index).task);
+            assertEquals(index, activities.get(index).position);
+        }
+    }
+
+    private int queryInt(String query) {
+        try (Cursor cursor = database.query(query, null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+}
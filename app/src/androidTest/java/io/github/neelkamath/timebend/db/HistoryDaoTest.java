@@ -0,0 +1,226 @@
+package io.github.neelkamath.timebend.db;
+
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class HistoryDaoTest {
+    private static final int DAY = 17707;
+    private AppDatabase database;
+    private HistoryDao historyDao;
+
+    @Before
+    public void setUp() {
+        database = TestDatabases.createInMemory();
+        historyDao = database.historyDao();
+        TestDatabases.insert(database, Plan.DEFAULT_ID, "a", "b", "c");
+    }
+
+    @After
+    public void tearDown() {
+        TestDatabases.close(database);
+    }
+
+    @Test
+    public void archiveAddsToTheRollupAndDeletesTheActivities() {
+        archive();
+        assertEquals(0, database.activityDao().getNumberOfActivities(Plan.DEFAULT_ID));
+        assertEquals(3 * 10, historyDao.getRollupTotals(DAY).plannedMinutes);
+        assertEquals(3, count("history"));
+    }
+
+    @Test
+    public void archiveOfAnEmptyPlanArchivesNothing() {
+        archive();
+        assertEquals(-1, archive());
+        assertEquals(1, count("archives"));
+    }
+
+    @Test
+    public void restoreArchivePutsTheActivitiesBeforeNewOnes() {
+        long archiveId = archive();
+        TestDatabases.insert(database, Plan.DEFAULT_ID, "new");
+        historyDao.restoreArchive(archiveId, Plan.DEFAULT_ID, 1);
+        List<Activity> activities = database.activityDao().getAll(Plan.DEFAULT_ID);
+        assertEquals(4, activities.size());
+        for (int index = 0; index < activities.size(); index++) {
+            assertEquals(index, activities.get(index).position);
+        }
+        assertEquals("a", activities.get(0).task);
+        assertEquals("new", activities.get(3).task);
+    }
+
+    @Test
+    public void restoreArchiveOnlyAppendsToTheHistory() {
+        long archiveId = archive();
+        historyDao.restoreArchive(archiveId, Plan.DEFAULT_ID, 1);
+        assertEquals(1, count("archives"));
+        assertEquals(3, count("history"));
+        assertEquals(1, count("restorations"));
+        assertEquals(0, historyDao.getRollupTotals(DAY).plannedMinutes);
+    }
+
+    /**
+     * Undoing a reset through the {@link ActivityRepository} restores the activities with a fixed
+     * number of statements, no matter how many there are, rather than one per activity.
+     */
+    @Test
+    public void undoingAResetOfThousandsOfActivitiesIsOneBatch() throws Exception {
+        StatementCounter counter = new StatementCounter();
+        AppDatabase database = TestDatabases.createInMemory(counter);
+        try {
+            final ActivityRepository repository = new ActivityRepository(
+                    InstrumentationRegistry.getTargetContext(),
+                    database
+            );
+            final Plan plan = database.planDao().getAll().get(0);
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    repository.switchPlan(plan);
+                }
+            });
+            int[] few = resetAndUndo(repository, database, counter, 3);
+            int[] many = resetAndUndo(repository, database, counter, 3000);
+            assertArrayEquals(few, many);
+        } finally {
+            TestDatabases.close(database);
+        }
+    }
+
+    /**
+     * Reading the totals of a range of days searches the rollups by their primary key, and never
+     * reads the history however much of it there is.
+     */
+    @Test
+    public void rollupTotalsDontReadTheHistory() {
+        List<String> plan = explain("SELECT COALESCE(SUM(planned_minutes), 0) AS planned_minutes, "
+                + "COALESCE(SUM(completed_minutes), 0) AS completed_minutes "
+                + "FROM daily_rollups WHERE day >= " + DAY);
+        assertEquals(1, plan.size());
+        assertTrue(plan.get(0), plan.get(0).contains("daily_rollups USING INTEGER PRIMARY KEY"));
+    }
+
+    /**
+     * Undoing a reset takes its activities back out of the rollup by reading only the reset's
+     * archive from the history.
+     */
+    @Test
+    public void undoingAResetReadsOnlyItsArchive() {
+        List<String> plan = explain("UPDATE daily_rollups SET "
+                + "planned_minutes = planned_minutes - (SELECT COALESCE(SUM(duration), 0) "
+                + "FROM history WHERE archive_id = 1), "
+                + "completed_minutes = completed_minutes - (SELECT COALESCE(SUM(duration), 0) "
+                + "FROM history WHERE archive_id = 1 AND is_completed = 1) "
+                + "WHERE day = " + DAY);
+        int historyReads = 0;
+        for (String detail : plan) {
+            if (detail.contains("history")) {
+                assertTrue(detail, detail.contains("USING INDEX index_history_archive_id"));
+                historyReads++;
+            }
+        }
+        assertEquals(2, historyReads);
+    }
+
+    /**
+     * Resets the default plan once it has {@code count} activities, and then undoes it.
+     *
+     * @return the number of statements and transactions the undo ran
+     */
+    private static int[] resetAndUndo(final ActivityRepository repository,
+                                      final AppDatabase database,
+                                      final StatementCounter counter, int count)
+            throws Exception {
+        final String[] tasks = new String[count];
+        for (int index = 0; index < count; index++) {
+            tasks[index] = "Task " + index;
+        }
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                TestDatabases.insert(database, Plan.DEFAULT_ID, tasks);
+            }
+        });
+        final long[] token = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                token[0] = repository.archiveAndDeleteAll(-1, -1);
+            }
+        });
+        awaitWrites(database);
+        database.getProfile().writeExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                counter.start();
+            }
+        }).get();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                repository.undo(token[0]);
+            }
+        });
+        awaitWrites(database);
+        int[] counts = {counter.getStatements(), counter.getTransactions()};
+        List<Activity> activities = database.activityDao().getAll(Plan.DEFAULT_ID);
+        assertEquals(count, activities.size());
+        for (int index = 0; index < count; index++) {
+            assertEquals(index, activities.get(index).position);
+            assertEquals(tasks[index], activities.get(index).task);
+        }
+        database.activityDao().deleteAll(Plan.DEFAULT_ID);
+        return counts;
+    }
+
+    /**
+     * Waits for the mutations queued on the main thread to be committed.
+     */
+    private static void awaitWrites(AppDatabase database) throws Exception {
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        database.getProfile().writeExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    private long archive() {
+        return historyDao.archiveAndDeleteActivities(new Archive(0, DAY, -1, -1), Plan.DEFAULT_ID);
+    }
+
+    /**
+     * @return the details of the {@code EXPLAIN QUERY PLAN} of the {@code sql}
+     */
+    private List<String> explain(String sql) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = database.query("EXPLAIN QUERY PLAN " + sql, null)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        }
+        return details;
+    }
+
+    private int count(String table) {
+        try (Cursor cursor = database.query("SELECT COUNT(*) FROM " + table, null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.framework.FrameworkSQLiteOpenHelperFactory;
+import android.arch.persistence.room.migration.Migration;
+import android.arch.persistence.room.testing.MigrationTestHelper;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Creates databases from the schemas exported to {@code app/schemas}, migrates them, and checks
+ * that Room's validation of the migrated schema passes and the rows survive.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+    private static final String NAME = "migration-test";
+    /**
+     * A row of {@code EXPLAIN QUERY PLAN} reading every activity, in the formats of SQLite before
+     * and after 3.24.
+     */
+    private static final Pattern ACTIVITIES_SCAN =
+            Pattern.compile("SCAN (TABLE )?activities\\b.*");
+    @Rule
+    public final MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(),
+            AppDatabase.class.getCanonicalName(),
+            new FrameworkSQLiteOpenHelperFactory()
+    );
+
+    @Test
+    public void migrateFrom1KeepsTheActivitiesInTheDefaultPlan() throws IOException {
+        SupportSQLiteDatabase database = createMigratedFrom1();
+        assertEquals(
+                Arrays.asList("yoga", "yogurt", "tea", "write report", "read"),
+                readStrings(database, "SELECT task FROM activities WHERE plan_id = "
+                        + Plan.DEFAULT_ID + " ORDER BY position")
+        );
+        assertEquals(1, count(database, "plans"));
+        // They're left to the first base snapshot.
+        assertEquals(0, count(database, "changes"));
+        database.close();
+    }
+
+    @Test
+    public void migrateFrom1LeavesOnlyTheCurrentTables() throws IOException {
+        SupportSQLiteDatabase database = createMigratedFrom1();
+        assertEquals(
+                Arrays.asList(
+                        "activities",
+                        "activities_fts",
+                        "activities_fts_docsize",
+                        "activities_fts_segdir",
+                        "activities_fts_segments",
+                        "activities_fts_stat",
+                        "archives",
+                        "changes",
+                        "daily_rollups",
+                        "history",
+                        "plans",
+                        "restorations",
+                        "template_instances",
+                        "templates"
+                ),
+                readStrings(database, "SELECT name FROM sqlite_master WHERE type = 'table' "
+                        + "AND name NOT IN ('android_metadata', 'room_master_table', "
+                        + "'sqlite_sequence') ORDER BY name")
+        );
+        database.close();
+    }
+
+    /**
+     * {@code activities_fts} is created and filled by MIGRATION_3_4, and its triggers are
+     * recreated by MIGRATION_4_5 when {@code activities} is rebuilt.
+     */
+    @Test
+    public void migrateFrom1KeepsTheFullTextIndexInSync() throws IOException {
+        SupportSQLiteDatabase database = createMigratedFrom1();
+        assertEquals(Arrays.asList("yoga", "yogurt"), search(database, "yo*"));
+        database.execSQL("UPDATE activities SET task = 'walk' WHERE task = 'tea'");
+        database.execSQL("DELETE FROM activities WHERE task = 'read'");
+        database.execSQL("INSERT INTO activities (plan_id, position, task, duration, "
+                + "is_completed) VALUES (" + Plan.DEFAULT_ID + ", 4, 'reading', 5, 0)");
+        assertEquals(Arrays.asList("walk"), search(database, "wal*"));
+        assertEquals(Collections.emptyList(), search(database, "tea*"));
+        assertEquals(Arrays.asList("reading"), search(database, "rea*"));
+        database.close();
+    }
+
+    /**
+     * The triggers logging into {@code changes} are created by MIGRATION_6_7.
+     */
+    @Test
+    public void migrateFrom1LogsChanges() throws IOException {
+        SupportSQLiteDatabase database = createMigratedFrom1();
+        database.execSQL("UPDATE activities SET is_completed = 1 WHERE id = 3");
+        database.execSQL("DELETE FROM activities WHERE id = 5");
+        database.execSQL("INSERT INTO activities (id, plan_id, position, task, duration, "
+                + "is_completed) VALUES (6, " + Plan.DEFAULT_ID + ", 4, 'tea', 5, 0)");
+        assertEquals(
+                Arrays.asList(
+                        "3 " + Change.UPDATE,
+                        "5 " + Change.DELETE,
+                        "6 " + Change.INSERT
+                ),
+                readStrings(database, "SELECT activity_id || ' ' || operation FROM changes "
+                        + "ORDER BY activity_id")
+        );
+        database.close();
+    }
+
+    /**
+     * The indexes led by {@code plan_id} which MIGRATION_4_5 creates are the ones the app's
+     * queries of a plan's activities use, so none of them reads every activity.
+     */
+    @Test
+    public void migrateFrom1IndexesThePlansQueries() throws IOException {
+        SupportSQLiteDatabase database = createMigratedFrom1();
+        assertUsesIndex(
+                database,
+                Sql.GET_SNAPSHOT
+                        .replace(":planId", String.valueOf(Plan.DEFAULT_ID))
+                        .replace(":start", "0")
+                        .replace(":end", "50"),
+                "index_activities_plan_id_position"
+        );
+        assertUsesIndex(
+                database,
+                Sql.GET.replace(":planId", String.valueOf(Plan.DEFAULT_ID)),
+                "index_activities_plan_id_position"
+        );
+        assertUsesIndex(
+                database,
+                "SELECT SUM(duration) FROM activities WHERE plan_id = " + Plan.DEFAULT_ID
+                        + " AND is_completed = 0",
+                "index_activities_plan_id_is_completed_duration"
+        );
+        // Searching looks up the matching activities by id rather than reading the plan's.
+        assertUsesIndex(
+                database,
+                Sql.SEARCH
+                        .replaceFirst("\\?", "'\"yo*\"'")
+                        .replaceFirst("\\?", String.valueOf(Plan.DEFAULT_ID)),
+                "activities USING INTEGER PRIMARY KEY"
+        );
+        assertUsesIndex(
+                database,
+                "UPDATE activities SET position = position - 1 WHERE plan_id = "
+                        + Plan.DEFAULT_ID + " AND position > 2",
+                "index_activities_plan_id_position"
+        );
+        database.close();
+    }
+
+    @Test
+    public void migrate6To7LogsOnlyTheLatestChangeOfEachActivity() throws IOException {
+        SupportSQLiteDatabase database = helper.createDatabase(NAME, 6);
+        database.execSQL("INSERT INTO plans (id, name, start_hour, start_minute, end_hour, "
+                + "end_minute) VALUES (1, 'Default', -1, -1, -1, -1)");
+        database.execSQL("INSERT INTO activities (id, plan_id, position, task, duration, "
+                + "is_completed) VALUES (1, 1, 0, 'yoga', 20, 0)");
+        database.close();
+
+        database = helper.runMigrationsAndValidate(NAME, 7, true, Migrations.MIGRATION_6_7);
+        // The existing activity is left to the first base snapshot.
+        assertEquals(0, count(database, "changes"));
+        database.execSQL("UPDATE activities SET duration = 30 WHERE id = 1");
+        database.execSQL("UPDATE activities SET is_completed = 1 WHERE id = 1");
+        database.execSQL("INSERT INTO activities (id, plan_id, position, task, duration, "
+                + "is_completed) VALUES (2, 1, 1, 'tea', 5, 0)");
+        assertEquals(2, count(database, "changes"));
+        database.close();
+    }
+
+    @Test
+    public void migrate7To8KeepsTheHistory() throws IOException {
+        SupportSQLiteDatabase database = helper.createDatabase(NAME, 7);
+        database.execSQL("INSERT INTO archives (id, archived_at, day, start_minutes, end_minutes) "
+                + "VALUES (1, 0, 17707, -1, -1)");
+        database.execSQL("INSERT INTO history (archive_id, position, task, duration, is_completed) "
+                + "VALUES (1, 0, 'yoga', 20, 0)");
+        database.close();
+
+        database = helper.runMigrationsAndValidate(NAME, 8, true, Migrations.MIGRATION_7_8);
+        assertEquals(1, count(database, "history"));
+        database.execSQL("INSERT INTO restorations (archive_id, restored_at) VALUES (1, 0)");
+        assertEquals(1, count(database, "restorations"));
+        database.close();
+    }
+
+    /**
+     * Creates a database at version 1 with five activities, and then runs each migration in
+     * turn, validating the schema of every version.
+     *
+     * @return the database at the latest version
+     */
+    private SupportSQLiteDatabase createMigratedFrom1() throws IOException {
+        SupportSQLiteDatabase database = helper.createDatabase(NAME, 1);
+        String[] tasks = {"yoga", "yogurt", "tea", "write report", "read"};
+        for (int index = 0; index < tasks.length; index++) {
+            database.execSQL(
+                    "INSERT INTO activities (id, position, task, duration, is_completed) "
+                            + "VALUES (?, ?, ?, 10, 0)",
+                    new Object[]{index + 1, index, tasks[index]}
+            );
+        }
+        for (Migration migration : Migrations.ALL) {
+            database.close();
+            // Room doesn't know about activities_fts and its shadow tables, so it isn't asked to
+            // fail on unknown tables (see migrateFrom1LeavesOnlyTheCurrentTables()).
+            database = helper.runMigrationsAndValidate(
+                    NAME,
+                    migration.endVersion,
+                    false,
+                    migration
+            );
+        }
+        return database;
+    }
+
+    /**
+     * @return the tasks of the activities whose tasks match the FTS {@code match}, in order
+     */
+    private static List<String> search(SupportSQLiteDatabase database, String match) {
+        return readStrings(database, "SELECT activities.task FROM activities_fts "
+                + "JOIN activities ON activities.id = activities_fts.docid "
+                + "WHERE activities_fts MATCH '" + match + "' ORDER BY activities.position");
+    }
+
+    /**
+     * @return the first column of each row the {@code sql} reads
+     */
+    private static List<String> readStrings(SupportSQLiteDatabase database, String sql) {
+        List<String> tasks = new ArrayList<>();
+        try (Cursor cursor = database.query(sql)) {
+            while (cursor.moveToNext()) {
+                tasks.add(cursor.getString(0));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Asserts that the {@code sql} is run through the index and never reads every activity.
+     */
+    private static void assertUsesIndex(SupportSQLiteDatabase database, String sql,
+                                        String index) {
+        boolean isIndexUsed = false;
+        try (Cursor cursor = database.query("EXPLAIN QUERY PLAN " + sql)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                String detail = cursor.getString(detailIndex);
+                assertFalse(detail, ACTIVITIES_SCAN.matcher(detail).matches());
+                isIndexUsed |= detail.contains(index);
+            }
+        }
+        assertTrue(sql, isIndexUsed);
+    }
+
+    private static int count(SupportSQLiteDatabase database, String table) {
+        try (Cursor cursor = database.query("SELECT COUNT(*) FROM " + table)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+}
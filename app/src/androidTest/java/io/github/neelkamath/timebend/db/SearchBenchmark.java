@@ -0,0 +1,116 @@
+package io.github.neelkamath.timebend.db;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how long {@link ActivityDao#search(long, String, android.os.CancellationSignal)} takes
+ * to find a prefix on plans of 1,000 to 100,000 activities, of which the same number match. Since
+ * the prefix is looked up in the full-text index rather than compared with every task, the
+ * latency should stay flat as the plan grows. The benchmark fails if the median latency on the
+ * largest plan is more than {@link #MAX_GROWTH} times that on the smallest (plus a millisecond
+ * of leeway for timer noise). The results are logged with the tag {@code SearchBenchmark}.
+ * <p>
+ * It's skipped unless the instrumentation is given the {@code benchmark} argument, like
+ * {@link StorageProfileBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchBenchmark {
+    private static final String TAG = "SearchBenchmark";
+    private static final int[] SIZES = {1000, 10000, 100000};
+    /**
+     * The number of activities which match, however many there are.
+     */
+    private static final int MATCHES = 10;
+    private static final int SEARCHES = 200;
+    private static final double MAX_GROWTH = 2;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(
+                Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString("benchmark"))
+        );
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        long[] medians = new long[SIZES.length];
+        for (int index = 0; index < SIZES.length; index++) {
+            medians[index] = benchmark(SIZES[index]);
+        }
+        long smallest = medians[0];
+        long largest = medians[SIZES.length - 1];
+        assertTrue(
+                largest / 1e6 + " ms vs " + smallest / 1e6 + " ms",
+                largest <= smallest * MAX_GROWTH + 1000 * 1000
+        );
+    }
+
+    /**
+     * @return the median latency in nanoseconds
+     */
+    private long benchmark(final int size) throws Exception {
+        final AppDatabase database = TestDatabases.createInMemory();
+        try {
+            database.getProfile().writeExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    String[] tasks = new String[size];
+                    for (int index = 0; index < size; index++) {
+                        tasks[index] = index % (size / MATCHES) == 0
+                                ? "yoga " + index
+                                : "activity " + index;
+                    }
+                    database.beginTransaction();
+                    try {
+                        TestDatabases.insert(database, Plan.DEFAULT_ID, tasks);
+                        database.setTransactionSuccessful();
+                    } finally {
+                        database.endTransaction();
+                    }
+                }
+            }).get();
+            long[] latencies = database.getProfile().readExecutor.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    ActivityDao activityDao = database.activityDao();
+                    long[] latencies = new long[SEARCHES];
+                    for (int search = 0; search < SEARCHES; search++) {
+                        long start = System.nanoTime();
+                        int matches = activityDao.search(Plan.DEFAULT_ID, "yog", null).size();
+                        latencies[search] = System.nanoTime() - start;
+                        assertEquals(MATCHES, matches);
+                    }
+                    return latencies;
+                }
+            }).get();
+            Arrays.sort(latencies);
+            Log.i(
+                    TAG,
+                    String.format(
+                            Locale.US,
+                            "%d activities: p50=%.2fms p99=%.2fms",
+                            size,
+                            latencies[SEARCHES / 2] / 1e6,
+                            latencies[SEARCHES * 99 / 100] / 1e6
+                    )
+            );
+            return latencies[SEARCHES / 2];
+        } finally {
+            TestDatabases.close(database);
+        }
+    }
+}
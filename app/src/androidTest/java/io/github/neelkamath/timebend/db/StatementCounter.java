@@ -0,0 +1,139 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteOpenHelper;
+import android.arch.persistence.db.SupportSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.arch.persistence.db.framework.FrameworkSQLiteOpenHelperFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens databases with the framework's SQLite while counting the statements and transactions run
+ * on them by a single thread. Other threads aren't counted since Room also queries the database in
+ * the background (e.g., to find out which tables a commit invalidated), but the SQL of every
+ * thread's queries is kept so that tests can pick out the ones they're interested in.
+ */
+final class StatementCounter implements SupportSQLiteOpenHelper.Factory {
+    /**
+     * The methods of {@link SupportSQLiteDatabase} and {@link SupportSQLiteStatement} which run a
+     * statement.
+     */
+    private static final List<String> STATEMENTS = Arrays.asList(
+            "query",
+            "execSQL",
+            "insert",
+            "update",
+            "delete",
+            "execute",
+            "executeInsert",
+            "executeUpdateDelete",
+            "simpleQueryForLong",
+            "simpleQueryForString"
+    );
+    private final SupportSQLiteOpenHelper.Factory factory = new FrameworkSQLiteOpenHelperFactory();
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicInteger transactions = new AtomicInteger();
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+    private volatile Thread thread;
+    /**
+     * The number of transactions the {@link #thread} is in, which only it touches.
+     */
+    private int depth;
+
+    @Override
+    public SupportSQLiteOpenHelper create(SupportSQLiteOpenHelper.Configuration configuration) {
+        return wrap(SupportSQLiteOpenHelper.class, factory.create(configuration));
+    }
+
+    /**
+     * Resets the counts, and counts what the calling thread runs from now on.
+     */
+    void start() {
+        thread = Thread.currentThread();
+        depth = 0;
+        statements.set(0);
+        transactions.set(0);
+        queries.clear();
+    }
+
+    int getStatements() {
+        return statements.get();
+    }
+
+    /**
+     * @return the number of transactions begun, not counting ones nested in others (e.g., those
+     * Room begins for each insert while a batch is being written)
+     */
+    int getTransactions() {
+        return transactions.get();
+    }
+
+    /**
+     * @return the SQL of the queries run by any thread since {@link #start()}, in the order they
+     * were run
+     */
+    List<String> getQueries() {
+        synchronized (queries) {
+            return new ArrayList<>(queries);
+        }
+    }
+
+    private <T> T wrap(final Class<T> type, final T target) {
+        Object proxy = Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                            throws Throwable {
+                        count(method.getName());
+                        if (thread != null && method.getName().equals("query")) {
+                            queries.add(args[0] instanceof SupportSQLiteQuery
+                                    ? ((SupportSQLiteQuery) args[0]).getSql()
+                                    : (String) args[0]);
+                        }
+                        Object result;
+                        try {
+                            result = method.invoke(target, args);
+                        } catch (InvocationTargetException exception) {
+                            throw exception.getCause();
+                        }
+                        if (result instanceof SupportSQLiteDatabase) {
+                            return wrap(SupportSQLiteDatabase.class,
+                                    (SupportSQLiteDatabase) result);
+                        }
+                        if (result instanceof SupportSQLiteStatement) {
+                            return wrap(SupportSQLiteStatement.class,
+                                    (SupportSQLiteStatement) result);
+                        }
+                        return result;
+                    }
+                }
+        );
+        return type.cast(proxy);
+    }
+
+    private void count(String method) {
+        if (Thread.currentThread() != thread) {
+            return;
+        }
+        if (method.startsWith("beginTransaction")) {
+            if (depth++ == 0) {
+                transactions.incrementAndGet();
+            }
+        } else if (method.equals("endTransaction")) {
+            depth--;
+        } else if (STATEMENTS.contains(method)) {
+            statements.incrementAndGet();
+        }
+    }
+}
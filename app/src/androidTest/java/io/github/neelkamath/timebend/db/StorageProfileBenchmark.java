@@ -0,0 +1,138 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.RoomDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares how long the reads the UI makes (the first page's snapshot and the incomplete duration
+ * the reserve is computed from) take while an activity is being dragged, which commits a move for
+ * every step, with each {@link StorageProfile}. The results are logged with the tag
+ * {@code StorageProfileBenchmark}.
+ * <p>
+ * It's skipped unless the instrumentation is given the {@code benchmark} argument, e.g.,
+ * {@code ./gradlew connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.benchmark=true}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StorageProfileBenchmark {
+    private static final String TAG = "StorageProfileBenchmark";
+    private static final int ACTIVITIES = 1000;
+    private static final int READS = 500;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(
+                Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString("benchmark"))
+        );
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        RoomDatabase.JournalMode wal = RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING;
+        RoomDatabase.JournalMode truncate = RoomDatabase.JournalMode.TRUNCATE;
+        benchmark("wal full", StorageProfile.Location.TEMPORARY_FILE, wal,
+                StorageProfile.Synchronous.FULL);
+        benchmark("wal normal", StorageProfile.Location.TEMPORARY_FILE, wal,
+                StorageProfile.Synchronous.NORMAL);
+        benchmark("truncate full", StorageProfile.Location.TEMPORARY_FILE, truncate,
+                StorageProfile.Synchronous.FULL);
+        benchmark("truncate normal", StorageProfile.Location.TEMPORARY_FILE, truncate,
+                StorageProfile.Synchronous.NORMAL);
+        benchmark("memory", StorageProfile.Location.MEMORY, truncate,
+                StorageProfile.Synchronous.OFF);
+    }
+
+    private void benchmark(String name, StorageProfile.Location location,
+                           RoomDatabase.JournalMode journalMode,
+                           StorageProfile.Synchronous synchronous) throws Exception {
+        final AppDatabase database = AppDatabase.create(
+                InstrumentationRegistry.getTargetContext(),
+                new StorageProfile.Builder("benchmark")
+                        .setLocation(location)
+                        .setJournalMode(journalMode)
+                        .setSynchronous(synchronous)
+                        .build()
+        );
+        final ActivityDao activityDao = database.activityDao();
+        try {
+            database.getProfile().writeExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    String[] tasks = new String[ACTIVITIES];
+                    for (int index = 0; index < ACTIVITIES; index++) {
+                        tasks[index] = "activity " + index;
+                    }
+                    database.beginTransaction();
+                    try {
+                        TestDatabases.insert(database, Plan.DEFAULT_ID, tasks);
+                        database.setTransactionSuccessful();
+                    } finally {
+                        database.endTransaction();
+                    }
+                }
+            }).get();
+
+            final AtomicBoolean isDragging = new AtomicBoolean(true);
+            Future<Integer> drag = database.getProfile().writeExecutor.submit(
+                    new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            Activity activity = activityDao.getAll(Plan.DEFAULT_ID).get(0);
+                            int steps = 0;
+                            while (isDragging.get()) {
+                                int from = steps % 2 == 0 ? 0 : 1;
+                                activityDao.moveActivity(activity, from, 1 - from);
+                                activity.position = 1 - from;
+                                steps++;
+                            }
+                            return steps;
+                        }
+                    }
+            );
+            long[] latencies = database.getProfile().readExecutor.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    long[] latencies = new long[READS];
+                    for (int read = 0; read < READS; read++) {
+                        long start = System.nanoTime();
+                        activityDao.getSnapshot(Plan.DEFAULT_ID, 0, ActivityRepository.PAGE_SIZE);
+                        activityDao.getIncompleteActivitiesDuration(Plan.DEFAULT_ID);
+                        latencies[read] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                }
+            }).get();
+            isDragging.set(false);
+            int steps = drag.get();
+
+            Arrays.sort(latencies);
+            Log.i(
+                    TAG,
+                    String.format(
+                            Locale.US,
+                            "%s: read p50=%.2fms p99=%.2fms max=%.2fms during %d moves",
+                            name,
+                            latencies[READS / 2] / 1e6,
+                            latencies[READS * 99 / 100] / 1e6,
+                            latencies[READS - 1] / 1e6,
+                            steps
+                    )
+            );
+        } finally {
+            TestDatabases.close(database);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.neelkamath.timebend.db;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class TemplateDaoTest {
+    /**
+     * 2018-06-01, a Friday, as days since the epoch.
+     */
+    private static final int FIRST_DAY = 17683;
+    private AppDatabase database;
+    private TemplateDao templateDao;
+    private ActivityDao activityDao;
+
+    @Before
+    public void setUp() {
+        database = TestDatabases.createInMemory();
+        templateDao = database.templateDao();
+        activityDao = database.activityDao();
+    }
+
+    @After
+    public void tearDown() {
+        TestDatabases.close(database);
+    }
+
+    @Test
+    public void materializeIsIdempotent() {
+        insertTemplate(Plan.DEFAULT_ID, "yoga", Template.EVERY_DAY);
+        assertEquals(1, templateDao.materialize(FIRST_DAY, getDayBit(FIRST_DAY)));
+        assertEquals(0, templateDao.materialize(FIRST_DAY, getDayBit(FIRST_DAY)));
+        assertEquals(1, activityDao.getNumberOfActivities(Plan.DEFAULT_ID));
+    }
+
+    @Test
+    public void materializeAppendsAfterEachPlansActivities() {
+        long otherPlanId = database.planDao().insertPlan(new Plan("Other", -1, -1, -1, -1));
+        TestDatabases.insert(database, Plan.DEFAULT_ID, "a", "b");
+        insertTemplate(Plan.DEFAULT_ID, "yoga", Template.EVERY_DAY);
+        insertTemplate(otherPlanId, "email", Template.EVERY_DAY);
+        insertTemplate(Plan.DEFAULT_ID, "tea", Template.EVERY_DAY);
+        assertEquals(3, templateDao.materialize(FIRST_DAY, getDayBit(FIRST_DAY)));
+        List<Activity> activities = activityDao.getAll(Plan.DEFAULT_ID);
+        assertEquals(4, activities.size());
+        assertEquals("yoga", activities.get(2).task);
+        assertEquals(2, activities.get(2).position);
+        assertEquals("tea", activities.get(3).task);
+        assertEquals(3, activities.get(3).position);
+        assertEquals("email", activityDao.getAll(otherPlanId).get(0).task);
+        assertEquals(0, activityDao.getAll(otherPlanId).get(0).position);
+    }
+
+    /**
+     * Runs the job twice a day (e.g., at the start of the day and when the app is opened) over a
+     * month, checking that each template recurs on exactly its days.
+     */
+    @Test
+    public void materializeOverAMonthInsertsOnlyTheMissingInstances() {
+        insertTemplate(Plan.DEFAULT_ID, "yoga", Template.EVERY_DAY);
+        insertTemplate(Plan.DEFAULT_ID, "standup", Template.WEEKDAYS);
+        insertTemplate(Plan.DEFAULT_ID, "hike", Template.WEEKENDS);
+        int weekdays = 0;
+        for (int day = FIRST_DAY; day < FIRST_DAY + 30; day++) {
+            int dayBit = getDayBit(day);
+            boolean isWeekend = (dayBit & Template.WEEKENDS) != 0;
+            if (!isWeekend) {
+                weekdays++;
+            }
+            assertEquals(2, templateDao.materialize(day, dayBit));
+            assertEquals(0, templateDao.materialize(day, dayBit));
+        }
+        // June 2018 has 21 weekdays.
+        assertEquals(21, weekdays);
+        List<Activity> activities = activityDao.getAll(Plan.DEFAULT_ID);
+        assertEquals(30 + 30, activities.size());
+        int standups = 0;
+        int hikes = 0;
+        for (int index = 0; index < activities.size(); index++) {
+            assertEquals(index, activities.get(index).position);
+            if (activities.get(index).task.equals("standup")) {
+                standups++;
+            } else if (activities.get(index).task.equals("hike")) {
+                hikes++;
+            }
+        }
+        assertEquals(weekdays, standups);
+        assertEquals(30 - weekdays, hikes);
+    }
+
+    @Test
+    public void insertTemplateCountsAsMaterializedOnItsDay() {
+        templateDao.insertTemplate(
+                new Template(Plan.DEFAULT_ID, "yoga", 20, Template.EVERY_DAY),
+                FIRST_DAY
+        );
+        assertEquals(0, templateDao.materialize(FIRST_DAY, getDayBit(FIRST_DAY)));
+        assertEquals(1, templateDao.materialize(FIRST_DAY + 1, getDayBit(FIRST_DAY + 1)));
+    }
+
+    @Test
+    public void deleteTemplateStopsItRecurringButKeepsItsActivities() {
+        long templateId = insertTemplate(Plan.DEFAULT_ID, "yoga", Template.EVERY_DAY);
+        templateDao.materialize(FIRST_DAY, getDayBit(FIRST_DAY));
+        templateDao.deleteTemplate(templateId);
+        assertEquals(0, templateDao.materialize(FIRST_DAY + 1, getDayBit(FIRST_DAY + 1)));
+        assertEquals(1, activityDao.getNumberOfActivities(Plan.DEFAULT_ID));
+    }
+
+    private long insertTemplate(long planId, String task, int days) {
+        return templateDao.insertTemplateOnly(new Template(planId, task, 10, days));
+    }
+
+    /**
+     * @param day days since the epoch
+     */
+    private static int getDayBit(int day) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(day * 24L * 60 * 60 * 1000);
+        return Template.getDayBit(calendar.get(Calendar.DAY_OF_WEEK));
+    }
+}
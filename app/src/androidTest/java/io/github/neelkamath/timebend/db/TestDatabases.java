@@ -0,0 +1,55 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.db.SupportSQLiteOpenHelper;
+import android.arch.persistence.room.RoomDatabase;
+import android.support.test.InstrumentationRegistry;
+
+/**
+ * Databases for tests, which are created like the app's (so they have the default plan, the
+ * full-text index and the triggers) but kept in memory.
+ */
+final class TestDatabases {
+    private TestDatabases() {
+    }
+
+    static AppDatabase createInMemory() {
+        return createInMemory(null);
+    }
+
+    /**
+     * @param factory opens the database, or {@code null} for the framework's SQLite (e.g., a
+     *                {@link StatementCounter})
+     */
+    static AppDatabase createInMemory(SupportSQLiteOpenHelper.Factory factory) {
+        return AppDatabase.create(
+                InstrumentationRegistry.getTargetContext(),
+                new StorageProfile.Builder("test")
+                        .setLocation(StorageProfile.Location.MEMORY)
+                        .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                        .setOpenHelperFactory(factory)
+                        .build()
+        );
+    }
+
+    /**
+     * Closes the database and stops its profile's threads.
+     */
+    static void close(AppDatabase database) {
+        database.close();
+        database.getProfile().writeExecutor.shutdown();
+        database.getProfile().readExecutor.shutdown();
+    }
+
+    /**
+     * Inserts an incomplete activity for each of the {@code tasks} at the end of the plan.
+     */
+    static void insert(AppDatabase database, long planId, String... tasks) {
+        ActivityDao activityDao = database.activityDao();
+        int position = activityDao.getNumberOfActivities(planId);
+        for (String task : tasks) {
+            Activity activity = new Activity(task, 10, position++, false);
+            activity.planId = planId;
+            activityDao.insertActivity(activity);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.neelkamath.timebend;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+/**
+ * Activities are the same item if they have the same {@link Activity#id}. Their
+ * {@link Activity#position} isn't compared since it isn't displayed.
+ */
+class ActivityDiffCallback extends DiffUtil.Callback {
+    private List<Activity> oldList;
+    private List<Activity> newList;
+
+    ActivityDiffCallback(List<Activity> oldList, List<Activity> newList) {
+        this.oldList = oldList;
+        this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldList.get(oldItemPosition).id == newList.get(newItemPosition).id;
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        Activity oldActivity = oldList.get(oldItemPosition);
+        Activity newActivity = newList.get(newItemPosition);
+        return oldActivity.task.equals(newActivity.task)
+                && oldActivity.duration == newActivity.duration
+                && oldActivity.isCompleted == newActivity.isCompleted;
+    }
+}
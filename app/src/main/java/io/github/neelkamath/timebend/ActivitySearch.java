@@ -0,0 +1,92 @@
+package io.github.neelkamath.timebend;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.Activity;
+import io.github.neelkamath.timebend.db.ActivityRepository;
+
+/**
+ * Searches the active plan's activities as the user types. Only used on the main thread.
+ */
+class ActivitySearch {
+    /**
+     * How long to wait after the search text stops changing before searching.
+     */
+    private static final long DELAY_MILLIS = 150;
+    private final ActivityRepository repository;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * The trimmed text being searched for, which is empty if the activities aren't being searched.
+     */
+    private String text = "";
+    private final Runnable searcher = new Runnable() {
+        @Override
+        public void run() {
+            repository.search(
+                    text,
+                    new ActivityRepository.SearchListener() {
+                        @Override
+                        public void onSearched(List<Activity> activities) {
+                            listener.onSearched(activities);
+                        }
+                    }
+            );
+        }
+    };
+
+    ActivitySearch(ActivityRepository repository, Listener listener) {
+        this.repository = repository;
+        this.listener = listener;
+    }
+
+    /**
+     * Filters the activities to the ones matching the {@code text} once it stops changing, or
+     * shows every activity if it's blank. Whatever search is running is cancelled straight away
+     * rather than being waited for.
+     */
+    void setText(String text) {
+        this.text = text.trim();
+        if (this.text.isEmpty()) {
+            handler.removeCallbacks(searcher);
+            repository.cancelSearch();
+            listener.onSearchCleared();
+        } else {
+            schedule();
+        }
+    }
+
+    /**
+     * Searches again if the activities are being searched, since they've changed.
+     */
+    void onActivitiesChanged() {
+        if (!text.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Searches for the {@link #text} after {@link #DELAY_MILLIS} unless this is called again
+     * first.
+     */
+    private void schedule() {
+        handler.removeCallbacks(searcher);
+        repository.cancelSearch();
+        handler.postDelayed(searcher, DELAY_MILLIS);
+    }
+
+    interface Listener {
+        /**
+         * @param activities the activities matching the latest text, in order
+         */
+        void onSearched(List<Activity> activities);
+
+        /**
+         * Called when the text is cleared, after which every activity should be shown again.
+         */
+        void onSearchCleared();
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.neelkamath.timebend;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+
+/**
+ * Exports the active plan's activities to, or imports them from, a CSV file the user picks
+ * through the Storage Access Framework.
+ */
+final class CsvTransfers {
+    private static final int EXPORT_REQUEST = 1;
+    private static final int IMPORT_REQUEST = 2;
+    private static final String CSV_TYPE = "text/csv";
+
+    private CsvTransfers() {
+    }
+
+    /**
+     * Lets the user pick the file to export to, after which the {@code activity} must pass the
+     * result to {@link #onActivityResult(Activity, ActivityRepository, int, int, Intent)}.
+     */
+    static void pickExportFile(Activity activity) {
+        activity.startActivityForResult(
+                new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                        .addCategory(Intent.CATEGORY_OPENABLE)
+                        .setType(CSV_TYPE)
+                        .putExtra(Intent.EXTRA_TITLE, "activities.csv"),
+                EXPORT_REQUEST
+        );
+    }
+
+    /**
+     * Lets the user pick the file to import from, after which the {@code activity} must pass the
+     * result to {@link #onActivityResult(Activity, ActivityRepository, int, int, Intent)}.
+     */
+    static void pickImportFile(Activity activity) {
+        activity.startActivityForResult(
+                new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                        .addCategory(Intent.CATEGORY_OPENABLE)
+                        .setType("text/*"),
+                IMPORT_REQUEST
+        );
+    }
+
+    /**
+     * Exports to or imports from the file the user picked, if the result is for one of this
+     * class's requests and a file was picked.
+     */
+    static void onActivityResult(Activity activity, ActivityRepository repository,
+                                 int requestCode, int resultCode, Intent data) {
+        if (resultCode != Activity.RESULT_OK || data == null || data.getData() == null) {
+            return;
+        }
+        if (requestCode == EXPORT_REQUEST) {
+            repository.exportTo(
+                    activity.getContentResolver(),
+                    data.getData(),
+                    new TransferToaster(activity, R.string.exported)
+            );
+        } else if (requestCode == IMPORT_REQUEST) {
+            repository.importFrom(
+                    activity.getContentResolver(),
+                    data.getData(),
+                    new TransferToaster(activity, R.string.imported)
+            );
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.neelkamath.timebend;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Updates the widgets and notification at the times scheduled by {@link GlanceUpdater}, and when
+ * the system's time or time zone changes.
+ */
+public class GlanceReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        GlanceUpdater.updateInBackground(context.getApplicationContext(), goAsync());
+    }
+}
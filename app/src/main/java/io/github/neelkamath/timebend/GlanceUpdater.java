@@ -0,0 +1,200 @@
+package io.github.neelkamath.timebend;
+
+import android.app.AlarmManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.support.v4.app.NotificationCompat;
+import android.widget.RemoteViews;
+
+import java.util.Calendar;
+import java.util.Locale;
+
+import io.github.neelkamath.timebend.db.Activity;
+import io.github.neelkamath.timebend.db.GlanceSnapshot;
+
+/**
+ * Shows the reserve and the next incomplete activity on the home-screen widgets and in an ongoing
+ * notification, from the {@link GlanceSnapshot} alone so that the database is never opened. It's
+ * run when the snapshot is rewritten and at the next minute the reserve can change (see
+ * {@link ReserveClock#getNextChangeMinute(int, int, int)}), and nothing is scheduled while nothing
+ * is showing it.
+ */
+final class GlanceUpdater {
+    /**
+     * The {@link SharedPreferences} key for whether the ongoing notification is shown.
+     */
+    static final String NOTIFICATION_SHOWN_KEY = "isNotificationShown";
+    private static final String CHANNEL_ID = "glance";
+    private static final int NOTIFICATION_ID = 1;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    private GlanceUpdater() {
+    }
+
+    /**
+     * @return the preferences storing whether the ongoing notification is shown
+     */
+    static SharedPreferences getSettings(Context context) {
+        return context.getSharedPreferences("settings", Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Updates in the background on behalf of a {@link BroadcastReceiver}.
+     *
+     * @param result from {@link BroadcastReceiver#goAsync()}, which is finished once updated
+     */
+    static void updateInBackground(final Context context,
+                                   final BroadcastReceiver.PendingResult result) {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                update(context);
+                result.finish();
+            }
+        });
+    }
+
+    /**
+     * Reads a file, so it should be called off the main thread.
+     */
+    static void update(Context context) {
+        AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
+        int[] widgetIds = widgetManager.getAppWidgetIds(
+                new ComponentName(context, GlanceWidgetProvider.class)
+        );
+        boolean isNotificationShown = getSettings(context)
+                .getBoolean(NOTIFICATION_SHOWN_KEY, false);
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(
+                Context.NOTIFICATION_SERVICE
+        );
+        if (!isNotificationShown && notificationManager != null) {
+            notificationManager.cancel(NOTIFICATION_ID);
+        }
+        if (widgetIds.length == 0 && !isNotificationShown) {
+            scheduleNextUpdate(context, -1);
+            return;
+        }
+
+        GlanceSnapshot snapshot = GlanceSnapshot.read(context);
+        Calendar now = Calendar.getInstance();
+        int currMinutes = now.get(Calendar.HOUR_OF_DAY) * MINUTES_PER_HOUR
+                + now.get(Calendar.MINUTE);
+        String reserve = context.getString(R.string.glance_no_day);
+        long nextUpdate = -1;
+        if (snapshot != null
+                && snapshot.startHour != -1 && snapshot.startMinute != -1
+                && snapshot.endHour != -1 && snapshot.endMinute != -1) {
+            int startMinutes = snapshot.startHour * MINUTES_PER_HOUR + snapshot.startMinute;
+            int endMinutes = ReserveClock.getEndMinutes(
+                    snapshot.startHour,
+                    snapshot.endHour,
+                    snapshot.endMinute
+            );
+            char[] buffer = new char[TimeFormatter.BUFFER_SIZE];
+            int length = TimeFormatter.formatDuration(
+                    ReserveClock.computeReserve(
+                            startMinutes,
+                            endMinutes,
+                            currMinutes,
+                            snapshot.incompleteDuration
+                    ),
+                    buffer,
+                    0
+            );
+            reserve = context.getString(R.string.glance_reserve, new String(buffer, 0, length));
+            int nextChange = ReserveClock.getNextChangeMinute(
+                    startMinutes,
+                    endMinutes,
+                    currMinutes
+            );
+            if (nextChange != ReserveClock.NEVER) {
+                now.set(Calendar.HOUR_OF_DAY, 0);
+                now.set(Calendar.MINUTE, 0);
+                now.set(Calendar.SECOND, 0);
+                now.set(Calendar.MILLISECOND, 0);
+                nextUpdate = now.getTimeInMillis() + nextChange * MILLIS_PER_MINUTE;
+            }
+        }
+        String next = context.getString(R.string.glance_nothing_next);
+        if (snapshot != null && !snapshot.nextActivities.isEmpty()) {
+            Activity activity = snapshot.nextActivities.get(0);
+            next = String.format(Locale.US, "%s (%d)", activity.task, activity.duration);
+        }
+
+        PendingIntent opener = PendingIntent.getActivity(
+                context,
+                0,
+                new Intent(context, MainActivity.class),
+                PendingIntent.FLAG_UPDATE_CURRENT
+        );
+        if (widgetIds.length > 0) {
+            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.glance_widget);
+            views.setTextViewText(R.id.glanceReserveTextView, reserve);
+            views.setTextViewText(R.id.glanceNextTextView, next);
+            views.setOnClickPendingIntent(R.id.glanceLayout, opener);
+            widgetManager.updateAppWidget(widgetIds, views);
+        }
+        if (isNotificationShown && notificationManager != null) {
+            createChannel(context, notificationManager);
+            notificationManager.notify(
+                    NOTIFICATION_ID,
+                    new NotificationCompat.Builder(context, CHANNEL_ID)
+                            .setSmallIcon(R.mipmap.ic_launcher)
+                            .setContentTitle(reserve)
+                            .setContentText(next)
+                            .setContentIntent(opener)
+                            .setOngoing(true)
+                            .setOnlyAlertOnce(true)
+                            .setShowWhen(false)
+                            .build()
+            );
+        }
+        scheduleNextUpdate(context, nextUpdate);
+    }
+
+    /**
+     * Schedules the next update at the {@code time}, replacing any scheduled one.
+     *
+     * @param time milliseconds since the epoch, or {@code -1} to only cancel the scheduled update
+     */
+    private static void scheduleNextUpdate(Context context, long time) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(
+                Context.ALARM_SERVICE
+        );
+        if (alarmManager == null) {
+            return;
+        }
+        PendingIntent updater = PendingIntent.getBroadcast(
+                context,
+                0,
+                new Intent(context, GlanceReceiver.class),
+                PendingIntent.FLAG_UPDATE_CURRENT
+        );
+        if (time == -1) {
+            alarmManager.cancel(updater);
+        } else {
+            // It doesn't wake the device since nothing can be seen while it's asleep.
+            alarmManager.setExact(AlarmManager.RTC, time, updater);
+        }
+    }
+
+    private static void createChannel(Context context, NotificationManager notificationManager) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            notificationManager.createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID,
+                    context.getString(R.string.glance_channel),
+                    NotificationManager.IMPORTANCE_LOW
+            ));
+        }
+    }
+}
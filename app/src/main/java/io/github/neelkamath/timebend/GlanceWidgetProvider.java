@@ -0,0 +1,22 @@
+package io.github.neelkamath.timebend;
+
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.Context;
+
+/**
+ * The home-screen widget showing the reserve and the next incomplete activity. Its contents come
+ * from {@link GlanceUpdater}, so updating it never opens the database.
+ */
+public class GlanceWidgetProvider extends AppWidgetProvider {
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        GlanceUpdater.updateInBackground(context.getApplicationContext(), goAsync());
+    }
+
+    @Override
+    public void onDisabled(Context context) {
+        // Stops the scheduled updates unless the notification still needs them.
+        GlanceUpdater.updateInBackground(context.getApplicationContext(), goAsync());
+    }
+}
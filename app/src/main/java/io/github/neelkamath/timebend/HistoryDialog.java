@@ -0,0 +1,36 @@
+package io.github.neelkamath.timebend;
+
+import android.app.AlertDialog;
+import android.content.Context;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+import io.github.neelkamath.timebend.db.RollupTotals;
+
+/**
+ * The dialog summarizing the history of reset plans.
+ */
+final class HistoryDialog {
+    private HistoryDialog() {
+    }
+
+    /**
+     * Shows how many of the minutes planned over the last week and month were completed.
+     */
+    static void show(final Context context, ActivityRepository repository) {
+        repository.readHistory(new ActivityRepository.HistoryListener() {
+            @Override
+            public void onHistoryRead(RollupTotals week, RollupTotals month) {
+                new AlertDialog.Builder(context)
+                        .setTitle(R.string.history)
+                        .setMessage(context.getString(
+                                R.string.history_summary,
+                                week.completedMinutes,
+                                week.plannedMinutes,
+                                month.completedMinutes,
+                                month.plannedMinutes
+                        ))
+                        .show();
+            }
+        });
+    }
+}
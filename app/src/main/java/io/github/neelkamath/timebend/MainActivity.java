@@ -9,96 +9,149 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.content.res.Resources;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.design.widget.Snackbar;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.support.v7.widget.helper.ItemTouchHelper;
 import android.text.format.DateFormat;
 import android.text.method.LinkMovementMethod;
-import android.text.util.Linkify;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.TimePicker;
 import android.widget.Toast;
 
-import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 
 import io.github.neelkamath.timebend.db.Activity;
-import io.github.neelkamath.timebend.db.ActivityDao;
-import io.github.neelkamath.timebend.db.AppDatabase;
+import io.github.neelkamath.timebend.db.ActivityRepository;
+import io.github.neelkamath.timebend.db.PlanSnapshot;
 
-public class MainActivity extends AppCompatActivity {
-    private ActivityDao activityDao;
+public class MainActivity extends AppCompatActivity implements ReserveClock.Listener {
+    private ActivityRepository repository;
     private SharedPreferences times;
     private RecyclerView recyclerView;
     private ActivityAdapter activityAdapter;
     private BroadcastReceiver broadcastReceiver;
+    private ReserveClock reserveClock;
+    private ActivitySearch search;
+    /**
+     * Whether the user prefers 24-hour time, which is cached since it's needed on every bind.
+     */
+    private boolean is24HourTime;
+    /**
+     * The text of the reserve, which is rewritten rather than reallocated every minute.
+     */
+    private final char[] reserveBuffer = new char[TimeFormatter.BUFFER_SIZE];
+    /**
+     * The texts of the start and end buttons, which each need their own buffer since the buttons
+     * keep using it (see {@link TimeFormatter}).
+     */
+    private final char[] startBuffer = new char[TimeFormatter.BUFFER_SIZE];
+    private final char[] endBuffer = new char[TimeFormatter.BUFFER_SIZE];
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        activityDao = AppDatabase.getInstance(this).activityDao();
+        repository = TimeBendApplication.getRepository(this);
         times = getSharedPreferences("times", Context.MODE_PRIVATE);
         recyclerView = findViewById(R.id.recyclerView);
-        new ActivityAdapterSetter(this).execute();
+        reserveClock = new ReserveClock(times, this);
         broadcastReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                setTimes();
+                // This is also sent when the user switches between 12- and 24-hour time.
+                readTimeFormat();
+                reserveClock.onTimeChanged();
             }
         };
 
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setHasFixedSize(true);
-        new AdapterSetter(this).execute();
+        // This is also called after a layout changes the visible rows.
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                activityAdapter.slideWindowIfNeeded(
+                        layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition()
+                );
+            }
+        });
+        /*
+        The activities are filled in by the repository's snapshot, whose first page is being
+        prefetched by the StartupPipeline the app started.
+         */
+        activityAdapter = new ActivityAdapter(new ArrayList<Activity>(), this);
+        recyclerView.setAdapter(activityAdapter);
+        search = new ActivitySearch(repository, new ActivitySearch.Listener() {
+            @Override
+            public void onSearched(List<Activity> activities) {
+                activityAdapter.showSearchResults(activities);
+            }
+
+            @Override
+            public void onSearchCleared() {
+                activityAdapter.clearSearchResults();
+            }
+        });
+        new ItemTouchHelper(new ActivityTouchCallback()).attachToRecyclerView(recyclerView);
 
-        setTimes();
-        setResetVisibility();
+        is24HourTime = DateFormat.is24HourFormat(this);
+        setDayTimesText();
 
-        activityDao.getAllLive().observe(
+        repository.getSnapshot().observe(
                 this,
-                new Observer<List<Activity>>() {
+                new Observer<PlanSnapshot>() {
                     @Override
-                    public void onChanged(@Nullable List<Activity> activities) {
-                        setTimes();
-                        setResetVisibility();
+                    public void onChanged(@Nullable PlanSnapshot snapshot) {
+                        if (snapshot == null) {
+                            return;
+                        }
+                        findViewById(R.id.resetButton).setVisibility(
+                                snapshot.numberOfActivities == 0 ? View.INVISIBLE : View.VISIBLE
+                        );
+                        reserveClock.setIncompleteDuration(snapshot.incompleteDuration);
+                        search.onActivitiesChanged();
                     }
                 }
         );
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-
-        setTimes();
-    }
-
     @Override
     protected void onStart() {
         super.onStart();
 
-        registerReceiver(broadcastReceiver, new IntentFilter(Intent.ACTION_TIME_TICK));
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        registerReceiver(broadcastReceiver, filter);
+        readTimeFormat();
+        reserveClock.start();
     }
 
     @Override
@@ -106,6 +159,134 @@ public class MainActivity extends AppCompatActivity {
         super.onStop();
 
         unregisterReceiver(broadcastReceiver);
+        reserveClock.stop();
+        repository.backUp();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        activityAdapter.rowModels.trim(level);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.notificationItem).setChecked(
+                GlanceUpdater.getSettings(this)
+                        .getBoolean(GlanceUpdater.NOTIFICATION_SHOWN_KEY, false)
+        );
+        SearchView searchView = (SearchView) menu.findItem(R.id.searchItem).getActionView();
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search.setText(newText);
+                return true;
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Lets the user pick a file through the Storage Access Framework to export the activities to
+     * or import them from.
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.plansItem:
+                PlanDialogs.show(this, repository, new ActivityRepository.PlanListener() {
+                    @Override
+                    public void onPlanSwitched() {
+                        MainActivity.this.onPlanSwitched();
+                    }
+                });
+                return true;
+            case R.id.templatesItem:
+                TemplateDialogs.show(this, repository);
+                return true;
+            case R.id.historyItem:
+                HistoryDialog.show(this, repository);
+                return true;
+            case R.id.metricsItem:
+                MetricsDialog.show(this);
+                return true;
+            case R.id.notificationItem:
+                item.setChecked(!item.isChecked());
+                GlanceUpdater.getSettings(this)
+                        .edit()
+                        .putBoolean(GlanceUpdater.NOTIFICATION_SHOWN_KEY, item.isChecked())
+                        .apply();
+                final Context appContext = getApplicationContext();
+                AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        GlanceUpdater.update(appContext);
+                    }
+                });
+                return true;
+            case R.id.exportItem:
+                CsvTransfers.pickExportFile(this);
+                return true;
+            case R.id.importItem:
+                CsvTransfers.pickImportFile(this);
+                return true;
+            case R.id.restoreItem:
+                RestoreDialog.show(this, repository);
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+    /**
+     * Shows the plan which was just switched to, whose activities are loaded by the repository's
+     * snapshot.
+     */
+    private void onPlanSwitched() {
+        activityAdapter.clear();
+        setDayTimesText();
+        TemplateScheduler.schedule(this);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        CsvTransfers.onActivityResult(this, repository, requestCode, resultCode, data);
+    }
+
+    /**
+     * Sets the reserve left on the UI, or hides it if the start or end of the day hasn't been set.
+     */
+    @Override
+    public void onReserveChanged(int reserve) {
+        TextView reserveLeft = findViewById(R.id.reserveLeftTextView);
+        if (reserve == ReserveClock.NO_RESERVE) {
+            activityAdapter.setScheduleStart(ReserveClock.NO_RESERVE);
+            reserveLeft.setVisibility(View.INVISIBLE);
+            return;
+        }
+        activityAdapter.setScheduleStart(reserveClock.getScheduleStart());
+        reserveLeft.setVisibility(View.VISIBLE);
+        int length = TimeFormatter.formatDuration(reserve, reserveBuffer, 0);
+        ((TextView) findViewById(R.id.reserveTextView)).setText(reserveBuffer, 0, length);
+    }
+
+    /**
+     * Redisplays the times if the user has switched between 12- and 24-hour time.
+     */
+    private void readTimeFormat() {
+        boolean is24HourTime = DateFormat.is24HourFormat(this);
+        if (this.is24HourTime != is24HourTime) {
+            this.is24HourTime = is24HourTime;
+            setDayTimesText();
+            activityAdapter.notifySchedulesChanged(0, activityAdapter.getItemCount());
+        }
     }
 
     public void openHowToGuide(View view) {
@@ -117,7 +298,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Deletes all the activities from the database
+     * Archives the activities into the history and then deletes them from the database
      *
      * @param view the {@link android.view.View} clicked on
      */
@@ -129,10 +310,12 @@ public class MainActivity extends AppCompatActivity {
                         new DialogInterface.OnClickListener() {
                             @Override
                             public void onClick(DialogInterface dialogInterface, int i) {
-                                new ActivitiesDeleter(MainActivity.this).execute();
-                                int size = activityAdapter.activityList.size();
-                                activityAdapter.activityList.clear();
-                                activityAdapter.notifyItemRangeRemoved(0, size);
+                                long token = repository.archiveAndDeleteAll(
+                                        getDayMinutes("start"),
+                                        getDayMinutes("end")
+                                );
+                                activityAdapter.clear();
+                                showUndo(R.string.reset_done, token);
                             }
                         }
                 )
@@ -155,7 +338,7 @@ public class MainActivity extends AppCompatActivity {
      * @param view the {@link android.view.View} clicked on
      */
     public void createActivity(View view) {
-        new ActivityDialog(this, null).execute();
+        showActivityDialog(null);
     }
 
     /**
@@ -177,7 +360,8 @@ public class MainActivity extends AppCompatActivity {
                                 .putInt(type + "Hour", hour)
                                 .putInt(type + "Minute", min)
                                 .apply();
-                        setTimes();
+                        setDayTimesText();
+                        TemplateScheduler.schedule(MainActivity.this);
                     }
                 },
                 times.getInt(type + "Hour", calendar.get(Calendar.HOUR_OF_DAY)),
@@ -187,41 +371,71 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * @param hour The hour to format to 12- or 24-hour format (according to the user's preference).
-     * @return The formatted hour.
+     * Offers to undo the deletion or reset which was just made. The snackbar only ever undoes
+     * that mutation, even if others have been made since it was shown.
+     *
+     * @param message a string resource describing what was done
+     * @param token   the token the repository returned for the mutation
      */
-    private int formatHour(int hour) {
-        final int lenOfDay = 12;
-        if (!DateFormat.is24HourFormat(this) && hour > lenOfDay) {
-            hour -= lenOfDay;
-        }
-        return hour;
+    private void showUndo(int message, final long token) {
+        Snackbar.make(recyclerView, message, Snackbar.LENGTH_LONG)
+                .setAction(
+                        R.string.undo,
+                        new View.OnClickListener() {
+                            @Override
+                            public void onClick(View view) {
+                                repository.undo(token);
+                            }
+                        }
+                )
+                .show();
     }
 
     /**
-     * Sets the visibility of the reset button based on whether there are any activities or not.
+     * @param type {@code "start"} for the start of the day, else {@code "end"} for the end of the
+     *             day
+     * @return minutes from midnight to the time, or {@code -1} if it hasn't been set
      */
-    private void setResetVisibility() {
-        new VisibilitySetter(this).execute();
+    private int getDayMinutes(String type) {
+        int hour = times.getInt(type + "Hour", -1);
+        int minute = times.getInt(type + "Minute", -1);
+        final int minutes = 60;
+        return hour == -1 || minute == -1 ? -1 : hour * minutes + minute;
     }
 
     /**
-     * Sets the text for start, end and reserve left provided the user has set them.
+     * Sets the text for the start and end of the day, or clears it if the user hasn't set them.
      */
-    private void setTimes() {
-        new TimesSetter(this).execute();
+    private void setDayTimesText() {
+        int startHour = times.getInt("startHour", -1);
+        int startMin = times.getInt("startMinute", -1);
+        int endHour = times.getInt("endHour", -1);
+        int endMin = times.getInt("endMinute", -1);
+        if (startHour != -1 && startMin != -1) {
+            setTimesText(true, startHour, startMin);
+        } else {
+            ((Button) findViewById(R.id.startButton)).setText(null);
+        }
+        if (endHour != -1 && endMin != -1) {
+            setTimesText(false, endHour, endMin);
+        } else {
+            ((Button) findViewById(R.id.endButton)).setText(null);
+        }
     }
 
     /**
-     * Gives a two digit number (e.g., {@code 7} will become {@code "07"} and {@code 334} will
-     * become {@code "334"}).
+     * Sets the start or end time on the UI.
      *
-     * @param num number to modify
-     * @return two digit number if the number is one digit long else the number passed in
+     * @param isStart whether it's the start button ({@code true} or end button to set
+     *                ({@code false}
+     * @param hour    the hour to set
+     * @param min     the minute to set
      */
-    private String makeTwoDigits(int num) {
-        String number = Integer.toString(num);
-        return number.length() == 1 ? String.format(Locale.US, "0%s", number) : number;
+    private void setTimesText(boolean isStart, int hour, int min) {
+        int id = isStart ? R.id.startButton : R.id.endButton;
+        char[] buffer = isStart ? startBuffer : endBuffer;
+        int length = TimeFormatter.formatDayTime(hour, min, is24HourTime, buffer, 0);
+        ((Button) findViewById(id)).setText(buffer, 0, length);
     }
 
     private void toggleKeyboardShown() {
@@ -234,525 +448,435 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * If there are no activities, the reset button will be hidden else it will be shown.
+     * Creates or updates an existing activity.
+     *
+     * @param activity If the task is to be updated, then this should be the task to update.
+     *                 Otherwise, this should be {@code null}
      */
-    private static class VisibilitySetter extends AsyncTask<Void, Void, Void> {
-        WeakReference<MainActivity> reference;
-
-        VisibilitySetter(MainActivity mainActivity) {
-            this.reference = new WeakReference<>(mainActivity);
+    private void showActivityDialog(final Activity activity) {
+        View view = View.inflate(this, R.layout.creator_layout, null);
+        final EditText activityEditText = view.findViewById(R.id.activityEditText);
+        final EditText durationEditText = view.findViewById(R.id.durationEditText);
+        final Spinner recurrenceSpinner = view.findViewById(R.id.recurrenceSpinner);
+        final AlertDialog dialog = new AlertDialog.Builder(this)
+                .setView(view)
+                .setPositiveButton(activity == null ? R.string.create : R.string.update, null)
+                .setNegativeButton(R.string.cancel, null)
+                .create();
+
+        dialog.show();
+        if (activity != null) {
+            activityEditText.setText(activity.task);
+            durationEditText.setText(String.valueOf(activity.duration));
+            // Only new activities can be made to recur.
+            recurrenceSpinner.setVisibility(View.GONE);
         }
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            final int numOfActivities = reference.get().activityDao.getNumberOfActivities();
-            reference.get().runOnUiThread(
-                    new Runnable() {
-                        @Override
-                        public void run() {
-                            reference.get().findViewById(R.id.resetButton).setVisibility(
-                                    numOfActivities == 0 ? View.INVISIBLE : View.VISIBLE
-                            );
+        dialog.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(
+                new View.OnClickListener() {
+                    @Override
+                    public void onClick(View view) {
+                        boolean isValidTxt = true;
+                        boolean isValidDuration;
+                        int msg = activity == null ? R.string.created : R.string.updated;
+
+                        String s = activityEditText.getText().toString().trim();
+                        if (s.isEmpty()) {
+                            isValidTxt = false;
+                            msg = R.string.no_activity_specified;
+                        }
+
+                        String duration = durationEditText.getText().toString();
+                        if (duration.isEmpty()) {
+                            isValidDuration = false;
+                            msg = R.string.duration_empty;
+                        } else {
+                            isValidDuration = true;
+                            int length = Integer.parseInt(duration);
+                            final int oneHour = 60;
+                            if (length < 1 || length > oneHour) {
+                                isValidDuration = false;
+                                msg = R.string.invalid_duration_length;
+                            }
+                        }
+
+                        Toast.makeText(
+                                MainActivity.this,
+                                getResources().getString(msg),
+                                Toast.LENGTH_SHORT
+                        ).show();
+                        if (isValidTxt && isValidDuration) {
+                            int time = Integer.parseInt(durationEditText.getText().toString());
+                            int days = TemplateDialogs.RECURRENCES[
+                                    recurrenceSpinner.getSelectedItemPosition()
+                            ];
+                            if (activity == null && days == 0) {
+                                repository.append(new Activity(s, time, 0, false));
+                            } else if (activity == null) {
+                                repository.appendRecurring(new Activity(s, time, 0, false), days);
+                            } else {
+                                activity.task = s;
+                                activity.duration = time;
+                                repository.update(activity);
+                                int index = activityAdapter.activityList.indexOf(activity);
+                                if (index != -1) {
+                                    activityAdapter.onActivityChanged(index);
+                                }
+                            }
+                            dialog.dismiss();
+
+                            toggleKeyboardShown();
                         }
                     }
-            );
-            return null;
-        }
+                }
+        );
     }
 
     /**
-     * Sets the start, end and reserve times on the UI if applicable.
+     * Handles dragging activities to reorder them and swiping them to complete or delete them.
      */
-    private static class TimesSetter extends AsyncTask<Void, Void, Void> {
-        private WeakReference<MainActivity> reference;
-
-        TimesSetter(MainActivity mainActivity) {
-            this.reference = new WeakReference<>(mainActivity);
-        }
-
+    private class ActivityTouchCallback extends ItemTouchHelper.Callback {
         /**
-         * Sets the start or end time on the UI.
-         *
-         * @param isStart whether it's the start button ({@code true} or end button to set
-         *                ({@code false}
-         * @param hour    the hour to set
-         * @param min     the minute to set
+         * {@code null} until its icons have been decoded off the main thread, before which swipes
+         * are drawn without decoration.
          */
-        private void setTimesText(final boolean isStart, final int hour, final int min) {
-            reference.get().runOnUiThread(
-                    new Runnable() {
+        private SwipeDecorator swipeDecorator;
+        /**
+         * The position the dragged activity started at, or {@link RecyclerView#NO_POSITION} if
+         * nothing is being dragged.
+         */
+        private int dragFrom = RecyclerView.NO_POSITION;
+        private int dragTo;
+
+        ActivityTouchCallback() {
+            final Resources resources = getResources();
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final SwipeDecorator decorator = new SwipeDecorator(resources);
+                    runOnUiThread(new Runnable() {
                         @Override
                         public void run() {
-                            int id = isStart ? R.id.startButton : R.id.endButton;
-                            final int lenOfDay = 12;
-                            ((Button) reference.get().findViewById(id)).setText(
-                                    String.format(
-                                            Locale.US,
-                                            "%s:%s %s",
-                                            reference.get().formatHour(hour),
-                                            reference.get().makeTwoDigits(min),
-                                            hour < lenOfDay ? "AM" : "PM"
-                                    )
-                            );
+                            swipeDecorator = decorator;
                         }
-                    }
+                    });
+                }
+            });
+        }
+
+        @Override
+        public int getMovementFlags(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+            // Search results can't be reordered since they aren't every activity.
+            return makeMovementFlags(
+                    activityAdapter.isFiltering ? 0 : ItemTouchHelper.UP | ItemTouchHelper.DOWN,
+                    ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT
             );
         }
 
         @Override
-        protected Void doInBackground(Void... voids) {
-            final int startHour = reference.get().times.getInt("startHour", -1);
-            final int startMin = reference.get().times.getInt("startMinute", -1);
-            final int endHour = reference.get().times.getInt("endHour", -1);
-            final int endMin = reference.get().times.getInt("endMinute", -1);
-            boolean isValidStart = startHour != -1 && startMin != -1;
-            boolean isValidEnd = endHour != -1 && endMin != -1;
-
-            if (isValidStart) {
-                setTimesText(true, startHour, startMin);
-            }
-            if (isValidEnd) {
-                setTimesText(false, endHour, endMin);
+        public boolean onMove(RecyclerView recyclerView,
+                              RecyclerView.ViewHolder viewHolder,
+                              RecyclerView.ViewHolder target) {
+            int fromPosition = viewHolder.getAdapterPosition();
+            int toPosition = target.getAdapterPosition();
+            if (dragFrom == RecyclerView.NO_POSITION) {
+                dragFrom = fromPosition;
             }
+            dragTo = toPosition;
+            // The swap is only saved once the activity is dropped.
+            activityAdapter.swap(fromPosition, toPosition);
+            return true;
+        }
 
+        @Override
+        public void onSelectedChanged(RecyclerView.ViewHolder viewHolder, int actionState) {
+            super.onSelectedChanged(viewHolder, actionState);
+            if (actionState == ItemTouchHelper.ACTION_STATE_DRAG) {
+                activityAdapter.setDragging(true);
+            }
+        }
 
-            final TextView reserveLeft = reference.get().findViewById(R.id.reserveLeftTextView);
-            if (isValidStart && isValidEnd) {
-                final int minutes = 60;
-                int startMinutes = startHour * minutes + startMin;
-                final int dayInHours = 24;
-                int hour = startHour > endHour ? (endHour + dayInHours) : endHour;
-                int endMinutes = (hour * minutes) + endMin;
-                Calendar calendar = Calendar.getInstance();
-                int currMinutes = calendar.get(Calendar.HOUR_OF_DAY) * minutes
-                        + calendar.get(Calendar.MINUTE);
-                if (currMinutes > startMinutes && currMinutes < endMinutes) {
-                    startMinutes = currMinutes;
-                }
-                int diff = endMinutes - startMinutes
-                        - reference.get().activityDao.getIncompleteActivitiesDuration();
-                String minus = "";
-                if (diff < 0) {
-                    minus = "-";
-                    diff = Math.abs(diff);
+        @Override
+        public void clearView(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+            super.clearView(recyclerView, viewHolder);
+            long metricsStart = Metrics.start();
+            if (dragFrom != RecyclerView.NO_POSITION && dragFrom != dragTo) {
+                List<Activity> activityList = activityAdapter.activityList;
+                int offset = activityAdapter.offset;
+                int start = Math.min(dragFrom, dragTo);
+                int end = Math.max(dragFrom, dragTo);
+                for (int count = start; count <= end; count++) {
+                    activityList.get(count).position = offset + count;
                 }
-                final String minusSign = minus;
-                final int difference = diff;
-                reference.get().runOnUiThread(
-                        new Runnable() {
-                            @Override
-                            public void run() {
-                                reserveLeft.setVisibility(View.VISIBLE);
-                                ((TextView) reference.get().findViewById(R.id.reserveTextView))
-                                        .setText(
-                                                String.format(
-                                                        Locale.US,
-                                                        "%s%d:%s",
-                                                        minusSign,
-                                                        difference / minutes,
-                                                        reference.get().makeTwoDigits(
-                                                                difference % minutes
-                                                        )
-                                                )
-                                        );
-                            }
-                        }
-                );
-            } else {
-                reference.get().runOnUiThread(
-                        new Runnable() {
-                            @Override
-                            public void run() {
-                                reserveLeft.setVisibility(View.INVISIBLE);
-                            }
-                        }
-                );
+                repository.move(activityList.get(dragTo), offset + dragFrom, offset + dragTo);
             }
-            return null;
+            dragFrom = RecyclerView.NO_POSITION;
+            activityAdapter.setDragging(false);
+            Metrics.end(Metrics.GESTURE_DROP, metricsStart);
         }
-    }
-
-    /**
-     * Inserts an activity into the database.
-     */
-    private static class ActivityCreator extends AsyncTask<Void, Void, Void> {
-        ActivityDao activityDao;
-        Activity activity;
 
-        ActivityCreator(ActivityDao activityDao, Activity activity) {
-            this.activityDao = activityDao;
-            this.activity = activity;
+        @Override
+        public void onSwiped(RecyclerView.ViewHolder viewHolder, int direction) {
+            long start = Metrics.start();
+            int index = viewHolder.getAdapterPosition();
+            Activity activity = activityAdapter.activityList.get(index);
+            switch (direction) {
+                case ItemTouchHelper.RIGHT:
+                    activity.isCompleted = !activity.isCompleted;
+                    activityAdapter.onActivityChanged(index);
+                    repository.update(activity);
+                    break;
+                case ItemTouchHelper.LEFT:
+                    activityAdapter.remove(index);
+                    showUndo(R.string.deleted, repository.delete(activity));
+            }
+            Metrics.end(Metrics.GESTURE_SWIPE, start);
         }
 
         @Override
-        protected Void doInBackground(Void... voids) {
-            activityDao.insertActivity(activity);
-            return null;
+        public void onChildDraw(Canvas c, RecyclerView recyclerView,
+                                RecyclerView.ViewHolder viewHolder,
+                                float dX, float dY, int actionState,
+                                boolean isCurrentlyActive) {
+            if (swipeDecorator != null) {
+                swipeDecorator.draw(c, viewHolder.itemView, dX);
+            }
+            super.onChildDraw(c, recyclerView, viewHolder, dX, dY, actionState, isCurrentlyActive);
         }
     }
 
     /**
-     * Creates or updates an existing activity.
+     * Lists from the database are diffed against the displayed list on a background thread so that
+     * only the rows which changed are rebound. Changes made by the UI itself (e.g., swiping) must
+     * go through the adapter's methods (e.g., {@link #remove(int)}) rather than modifying
+     * {@link #activityList} directly.
      */
-    private static class ActivityDialog extends AsyncTask<Void, Void, Void> {
-        WeakReference<MainActivity> reference;
-        Activity activity;
-
+    private static class ActivityAdapter extends RecyclerView.Adapter<ActivityAdapter.ViewHolder> {
         /**
-         * @param mainActivity {@link MainActivity}
-         * @param activity     If the task is to be updated, then this should be the task to
-         *                     update. Otherwise, this should be {@code null}
+         * How close to either end of the loaded activities a row must be for the window to slide.
          */
-        ActivityDialog(MainActivity mainActivity, Activity activity) {
-            reference = new WeakReference<>(mainActivity);
-            this.activity = activity;
-        }
+        private static final int PREFETCH_DISTANCE = 10;
+        /**
+         * Payload for rebinding only the projected schedule of a row.
+         */
+        private static final Object SCHEDULE_PAYLOAD = new Object();
+        private List<Activity> activityList;
+        /**
+         * The {@link Activity#position} of the first activity in the {@link #activityList}, since
+         * only a window of the plan is loaded.
+         */
+        private int offset = 0;
+        /**
+         * The duration of the incomplete activities before the {@link #offset}, which the
+         * projected schedule starts after.
+         */
+        private int durationBefore = 0;
+        private MainActivity mainActivity;
+        private final ScheduleProjection projection = new ScheduleProjection();
+        /**
+         * Filled in for each list off the main thread while it's being diffed.
+         */
+        private final RowModelCache rowModels = new RowModelCache();
+        /**
+         * Minutes from midnight at which the projected schedule starts, or
+         * {@link ReserveClock#NO_RESERVE} if it isn't shown.
+         */
+        private int scheduleStart = ReserveClock.NO_RESERVE;
+        /**
+         * Incremented whenever {@link #activityList} changes. A diff is only applied if it was
+         * computed against the current version.
+         */
+        private int version = 0;
+        private boolean isDragging = false;
+        /**
+         * The latest snapshot from the database received while {@link #isDragging}.
+         */
+        private PlanSnapshot deferredSnapshot;
+        /**
+         * The latest snapshot from the database.
+         */
+        private PlanSnapshot databaseSnapshot;
+        /**
+         * Whether search results are being shown instead of the {@link #databaseList}.
+         */
+        private boolean isFiltering = false;
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            final int numOfActivities = reference.get().activityDao.getNumberOfActivities();
+        ActivityAdapter(List<Activity> activities, final MainActivity mainActivity) {
+            this.activityList = activities;
+            this.mainActivity = mainActivity;
+            projection.reset(activities);
 
-            reference.get().runOnUiThread(
-                    new Runnable() {
+            mainActivity.repository.getSnapshot().observe(
+                    this.mainActivity,
+                    new Observer<PlanSnapshot>() {
                         @Override
-                        public void run() {
-                            View view = View.inflate(
-                                    reference.get(),
-                                    R.layout.creator_layout,
-                                    null
-                            );
-                            final EditText activityEditText = view.findViewById(
-                                    R.id.activityEditText
-                            );
-                            final EditText durationEditText = view.findViewById(
-                                    R.id.durationEditText
-                            );
-                            final AlertDialog.Builder builder = new AlertDialog.Builder(
-                                    reference.get()
-                            )
-                                    .setView(view)
-                                    .setPositiveButton(
-                                            activity == null ? R.string.create : R.string.update,
-                                            null
-                                    )
-                                    .setNegativeButton(R.string.cancel, null);
-
-                            final AlertDialog dialog = builder.create();
-
-                            dialog.show();
-                            if (activity != null) {
-                                activityEditText.setText(activity.task);
-                                durationEditText.setText(String.valueOf(activity.duration));
+                        public void onChanged(@Nullable PlanSnapshot snapshot) {
+                            if (snapshot != null) {
+                                databaseSnapshot = snapshot;
+                                if (!isFiltering) {
+                                    submitSnapshot(snapshot);
+                                }
                             }
-
-                            dialog.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(
-                                    new View.OnClickListener() {
-                                        @Override
-                                        public void onClick(View view) {
-                                            boolean isValidTxt = true;
-                                            boolean isValidDuration;
-                                            int msg = activity == null
-                                                    ? R.string.created
-                                                    : R.string.updated;
-
-                                            String s = activityEditText.getText().toString().trim();
-                                            if (s.isEmpty()) {
-                                                isValidTxt = false;
-                                                msg = R.string.no_activity_specified;
-                                            }
-
-                                            String duration = durationEditText.getText().toString();
-                                            if (duration.isEmpty()) {
-                                                isValidDuration = false;
-                                                msg = R.string.duration_empty;
-                                            } else {
-                                                isValidDuration = true;
-                                                int length = Integer.parseInt(duration);
-                                                final int oneHour = 60;
-                                                if (length < 1 || length > oneHour) {
-                                                    isValidDuration = false;
-                                                    msg = R.string.invalid_duration_length;
-                                                }
-                                            }
-
-                                            Toast.makeText(
-                                                    reference.get(),
-                                                    reference.get().getResources().getString(msg),
-                                                    Toast.LENGTH_SHORT
-                                            ).show();
-                                            if (isValidTxt && isValidDuration) {
-                                                int time = Integer.parseInt(
-                                                        durationEditText.getText().toString()
-                                                );
-                                                if (activity == null) {
-                                                    new ActivityCreator(
-                                                            reference.get().activityDao,
-                                                            new Activity(
-                                                                    s,
-                                                                    time,
-                                                                    numOfActivities,
-                                                                    false
-                                                            )
-                                                    ).execute();
-                                                } else {
-                                                    activity.task = s;
-                                                    activity.duration = time;
-                                                    new ActivityUpdater(
-                                                            reference.get().activityDao,
-                                                            activity
-                                                    ).execute();
-                                                    reference
-                                                            .get()
-                                                            .activityAdapter
-                                                            .notifyItemChanged(activity.position);
-                                                }
-                                                dialog.dismiss();
-
-                                                reference.get().toggleKeyboardShown();
-                                            }
-                                        }
-                                    }
-                            );
                         }
                     }
             );
-
-            return null;
         }
-    }
 
-    /**
-     * Deletes all the activities.
-     */
-    private static class ActivitiesDeleter extends AsyncTask<Void, Void, Void> {
-        private WeakReference<MainActivity> reference;
-
-        ActivitiesDeleter(MainActivity mainActivity) {
-            this.reference = new WeakReference<>(mainActivity);
+        /**
+         * Shows only the {@code activities}, which are diffed against the displayed ones like any
+         * other list so that each search only rebinds the rows which changed.
+         */
+        void showSearchResults(List<Activity> activities) {
+            isFiltering = true;
+            submitList(activities, 0, 0);
         }
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            reference.get().activityDao.deleteAll();
-            return null;
+        /**
+         * Shows every activity again if search results were being shown.
+         */
+        void clearSearchResults() {
+            if (isFiltering) {
+                isFiltering = false;
+                if (databaseSnapshot == null) {
+                    submitList(new ArrayList<Activity>(), 0, 0);
+                } else {
+                    submitSnapshot(databaseSnapshot);
+                }
+            }
         }
-    }
-
-    /**
-     * Sets {@link #activityAdapter}.
-     */
-    private static class ActivityAdapterSetter extends AsyncTask<Void, Void, Void> {
-        private WeakReference<MainActivity> reference;
 
-        ActivityAdapterSetter(MainActivity mainActivity) {
-            reference = new WeakReference<>(mainActivity);
+        /**
+         * Must be called whenever the UI modifies {@link #activityList} itself.
+         */
+        private void discardPendingDiffs() {
+            version++;
         }
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            reference.get().activityAdapter = new ActivityAdapter(
-                    reference.get().activityDao.getAll(),
-                    reference.get()
-            );
-            return null;
+        void setScheduleStart(int scheduleStart) {
+            if (this.scheduleStart != scheduleStart) {
+                this.scheduleStart = scheduleStart;
+                notifyItemRangeChanged(0, getItemCount(), SCHEDULE_PAYLOAD);
+            }
         }
-    }
-
-    /**
-     * Sets the adapter and {@link android.support.v7.widget.helper.ItemTouchHelper} for the
-     * {@link io.github.neelkamath.timebend.MainActivity#recyclerView} using the
-     * {@link #activityAdapter}
-     */
-    private static class AdapterSetter extends AsyncTask<Void, Void, Void> {
-        private WeakReference<MainActivity> reference;
 
-        AdapterSetter(MainActivity mainActivity) {
-            this.reference = new WeakReference<>(mainActivity);
+        /**
+         * Rebinds the activity at the {@code index} after it has been completed or edited.
+         */
+        void onActivityChanged(int index) {
+            boolean isDurationChanged = projection.update(index, activityList.get(index));
+            notifyItemChanged(index);
+            if (isDurationChanged) {
+                notifySchedulesChanged(index + 1, getItemCount());
+            }
         }
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            reference.get().recyclerView.setAdapter(reference.get().activityAdapter);
-            final ItemTouchHelper helper = new ItemTouchHelper(
-                    new ItemTouchHelper.Callback() {
-                        @Override
-                        public int getMovementFlags(RecyclerView recyclerView,
-                                                    RecyclerView.ViewHolder viewHolder) {
-                            return makeMovementFlags(
-                                    ItemTouchHelper.UP | ItemTouchHelper.DOWN,
-                                    ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT
-                            );
-                        }
-
-                        @Override
-                        public boolean onMove(RecyclerView recyclerView,
-                                              RecyclerView.ViewHolder viewHolder,
-                                              RecyclerView.ViewHolder target) {
-                            int fromPosition = viewHolder.getAdapterPosition();
-                            int toPosition = target.getAdapterPosition();
-                            List<Activity> activityList = reference
-                                    .get()
-                                    .activityAdapter
-                                    .activityList;
-                            Activity activity = activityList.get(fromPosition);
-                            reference.get().activityAdapter.notifyItemMoved(
-                                    fromPosition,
-                                    toPosition
-                            );
-                            activity.position = toPosition;
-                            new ActivityUpdater(reference.get().activityDao, activity).execute();
-
-                            activity = activityList.get(toPosition);
-                            activity.position = fromPosition;
-                            new ActivityUpdater(reference.get().activityDao, activity).execute();
-                            Collections.swap(activityList, fromPosition, toPosition);
-                            return true;
-                        }
-
-                        @Override
-                        public void onSwiped(RecyclerView.ViewHolder viewHolder, int direction) {
-                            List<Activity> activityList = reference
-                                    .get()
-                                    .activityAdapter
-                                    .activityList;
-                            int index = viewHolder.getAdapterPosition();
-                            Activity activity = activityList.get(index);
-                            switch (direction) {
-                                case ItemTouchHelper.RIGHT:
-                                    activity.isCompleted = !activity.isCompleted;
-                                    reference.get().activityAdapter.notifyItemChanged(index);
-                                    new ActivityUpdater(reference.get().activityDao, activity)
-                                            .execute();
-                                    break;
-                                case ItemTouchHelper.LEFT:
-                                    activityList.remove(index);
-                                    reference.get().activityAdapter.notifyItemRemoved(index);
-                                    new ActivityDeleter(activity, reference.get().activityDao)
-                                            .execute();
-                                    for (int count = 0; count < activityList.size(); count++) {
-                                        Activity a = activityList.get(count);
-                                        a.position = count;
-                                        new ActivityUpdater(reference.get().activityDao, a)
-                                                .execute();
-                                    }
-                            }
-                        }
-
-                        @Override
-                        public void onChildDraw(Canvas c, RecyclerView recyclerView,
-                                                RecyclerView.ViewHolder viewHolder,
-                                                float dX, float dY, int actionState,
-                                                boolean isCurrentlyActive) {
-                            boolean isRight = dX > 0;
-                            Paint paint = new Paint();
-                            paint.setColor(isRight ? Color.GREEN : Color.RED);
-                            c.drawRect(
-                                    isRight ? viewHolder.itemView.getLeft()
-                                            : (viewHolder.itemView.getRight() + dX),
-                                    viewHolder.itemView.getTop(),
-                                    isRight ? dX : viewHolder.itemView.getRight(),
-                                    viewHolder.itemView.getBottom(),
-                                    paint
-                            );
-                            Bitmap bitmap = BitmapFactory.decodeResource(
-                                    reference.get().getResources(),
-                                    isRight ? R.mipmap.check_foreground : R.mipmap.clear_foreground
-                            );
-                            int i = viewHolder.itemView.getBottom() - viewHolder.itemView.getTop()
-                                    - bitmap.getHeight();
-                            final int len = i / 2;
-                            c.drawBitmap(
-                                    bitmap,
-                                    isRight ? (dX - bitmap.getWidth())
-                                            : (viewHolder.itemView.getRight() + dX),
-                                    viewHolder.itemView.getTop() + len,
-                                    paint
-                            );
-                            super.onChildDraw(
-                                    c,
-                                    recyclerView,
-                                    viewHolder,
-                                    dX,
-                                    dY,
-                                    actionState,
-                                    isCurrentlyActive
-                            );
-                        }
-                    }
-            );
-            reference.get().runOnUiThread(
-                    new Runnable() {
-                        @Override
-                        public void run() {
-                            helper.attachToRecyclerView(reference.get().recyclerView);
-                        }
-                    }
+        /**
+         * Swaps two activities while one is being dragged.
+         */
+        void swap(int fromPosition, int toPosition) {
+            discardPendingDiffs();
+            Collections.swap(activityList, fromPosition, toPosition);
+            projection.swap(fromPosition, toPosition);
+            notifyItemMoved(fromPosition, toPosition);
+            notifySchedulesChanged(
+                    Math.min(fromPosition, toPosition),
+                    Math.max(fromPosition, toPosition) + 1
             );
-            return null;
         }
 
-        private static class ActivityDeleter extends AsyncTask<Void, Void, Void> {
-            private Activity activity;
-            private ActivityDao activityDao;
-
-            ActivityDeleter(Activity activity, ActivityDao activityDao) {
-                this.activity = activity;
-                this.activityDao = activityDao;
+        /**
+         * Removes the activity at the {@code index} and renumbers the ones after it. The database
+         * renumbers itself; only the UI's copy is updated here. Since search results aren't every
+         * activity, the activities are renumbered by their positions rather than their indices.
+         */
+        void remove(int index) {
+            discardPendingDiffs();
+            Activity removed = activityList.remove(index);
+            for (int count = index; count < activityList.size(); count++) {
+                Activity activity = activityList.get(count);
+                if (activity.position > removed.position) {
+                    activity.position--;
+                }
             }
-
-            @Override
-            protected Void doInBackground(Void... voids) {
-                activityDao.deleteActivity(activity);
-                return null;
+            projection.remove(index);
+            notifyItemRemoved(index);
+            if (!removed.isCompleted) {
+                notifySchedulesChanged(index, getItemCount());
             }
         }
-    }
 
-    private static class ActivityUpdater extends AsyncTask<Void, Void, Void> {
-        private ActivityDao activityDao;
-        private Activity activity;
-
-        ActivityUpdater(ActivityDao activityDao, Activity activity) {
-            this.activityDao = activityDao;
-            this.activity = activity;
+        void clear() {
+            discardPendingDiffs();
+            int size = activityList.size();
+            activityList.clear();
+            projection.reset(activityList);
+            notifyItemRangeRemoved(0, size);
         }
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            activityDao.updateActivity(activity);
-            return null;
+        /**
+         * Rebinds the projected schedules of the activities from {@code start} (inclusive) to
+         * {@code end} (exclusive). Only the rows on screen are actually rebound.
+         */
+        private void notifySchedulesChanged(int start, int end) {
+            if (scheduleStart != ReserveClock.NO_RESERVE && start < end) {
+                notifyItemRangeChanged(start, end - start, SCHEDULE_PAYLOAD);
+            }
         }
-    }
 
-    /**
-     * Don't call {@link ActivityAdapter#notifyItemInserted(int)} or
-     * {@link ActivityAdapter#notifyItemRemoved(int)} as it automatically updates.
-     */
-    private static class ActivityAdapter extends RecyclerView.Adapter<ActivityAdapter.ViewHolder> {
-        private List<Activity> activityList;
-        private MainActivity mainActivity;
+        /**
+         * While an activity is being dragged, the database's order is outdated so snapshots from
+         * it are held back until the drop.
+         */
+        void setDragging(boolean isDragging) {
+            this.isDragging = isDragging;
+            if (!isDragging && deferredSnapshot != null) {
+                submitSnapshot(deferredSnapshot);
+                deferredSnapshot = null;
+            }
+        }
 
-        ActivityAdapter(List<Activity> activities, final MainActivity mainActivity) {
-            this.activityList = activities;
-            this.mainActivity = mainActivity;
+        private void submitSnapshot(PlanSnapshot snapshot) {
+            if (isDragging) {
+                deferredSnapshot = snapshot;
+                return;
+            }
+            submitList(snapshot.activities, snapshot.offset, snapshot.incompleteDurationBefore);
+        }
 
-            mainActivity.activityDao.getAllLive().observe(
-                    this.mainActivity,
-                    new Observer<List<Activity>>() {
+        /**
+         * @param offset         the {@link Activity#position} of the first of the
+         *                       {@code activities}
+         * @param durationBefore the duration of the incomplete activities before the
+         *                       {@code offset}
+         */
+        private void submitList(final List<Activity> activities, final int offset,
+                                final int durationBefore) {
+            final List<Activity> oldList = new ArrayList<>(activityList);
+            final int diffVersion = ++version;
+            AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    rowModels.prefetch(activities);
+                    final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                            new ActivityDiffCallback(oldList, activities)
+                    );
+                    mainActivity.runOnUiThread(new Runnable() {
                         @Override
-                        public void onChanged(@Nullable List<Activity> activities) {
-                            /*
-                            Only update if an task has been added or removed. If updates are
-                            allowed otherwise, activities won't be movable. The moving activities
-                            logic is implemented for the UI anyways.
-                             */
-                            if (activities == null || activities.size() != activityList.size()) {
+                        public void run() {
+                            if (diffVersion == version) {
+                                boolean isDurationBeforeChanged =
+                                        ActivityAdapter.this.durationBefore != durationBefore;
                                 activityList = activities;
-                                notifyDataSetChanged();
+                                ActivityAdapter.this.offset = offset;
+                                ActivityAdapter.this.durationBefore = durationBefore;
+                                ProjectionUpdater updater = new ProjectionUpdater();
+                                result.dispatchUpdatesTo(updater);
+                                updater.apply(activities, isDurationBeforeChanged);
                             }
                         }
-                    }
-            );
+                    });
+                }
+            });
         }
 
         @Override
@@ -765,57 +889,194 @@ public class MainActivity extends AppCompatActivity {
             );
         }
 
+        @Override
+        public void onBindViewHolder(@NonNull ActivityAdapter.ViewHolder holder, int position,
+                                     @NonNull List<Object> payloads) {
+            if (payloads.contains(SCHEDULE_PAYLOAD) && payloads.size() == 1) {
+                long start = Metrics.start();
+                bindSchedule(holder, position);
+                Metrics.end(Metrics.BIND_SCHEDULE, start);
+            } else {
+                onBindViewHolder(holder, position);
+            }
+        }
+
         @Override
         public void onBindViewHolder(@NonNull final ActivityAdapter.ViewHolder holder,
                                      int position) {
-            final Activity activity = activityList.get(position);
-
-            holder.activityTextView.setAutoLinkMask(Linkify.ALL);
-            holder.activityTextView.setText(activity.task);
-            holder.durationTextView.setText(
-                    String.format(Locale.US, "%d", activity.duration)
+            long start = Metrics.start();
+            Activity activity = activityList.get(position);
+            StartupMetrics.markFirstRowBound();
+
+            RowModelCache.RowModel model = rowModels.get(activity);
+            holder.activityTextView.setText(model.task);
+            // Like autoLink, but only for rows which have links.
+            holder.activityTextView.setMovementMethod(
+                    model.hasLinks ? LinkMovementMethod.getInstance() : null
             );
+            holder.durationTextView.setText(model.duration);
+
+            holder.activityTextView.setTextColor(model.color);
+            holder.durationTextView.setTextColor(model.color);
+            setStruckThrough(holder.activityTextView, model.isStruckThrough);
+            setStruckThrough(holder.durationTextView, model.isStruckThrough);
+            bindSchedule(holder, position);
+            Metrics.end(Metrics.BIND, start);
+        }
 
-            int color = activity.isCompleted ? Color.LTGRAY : Color.BLACK;
-            holder.activityTextView.setTextColor(color);
-            holder.durationTextView.setTextColor(color);
+        @Override
+        public int getItemCount() {
+            return activityList.size();
+        }
 
-            holder.activityTextView.setPaintFlags(Paint.STRIKE_THRU_TEXT_FLAG);
-            holder.durationTextView.setPaintFlags(Paint.STRIKE_THRU_TEXT_FLAG);
-            if (!activity.isCompleted) {
-                holder.activityTextView.setPaintFlags(
-                        holder.activityTextView.getPaintFlags() & ~Paint.STRIKE_THRU_TEXT_FLAG
-                );
-                holder.durationTextView.setPaintFlags(
-                        holder.durationTextView.getPaintFlags() & ~Paint.STRIKE_THRU_TEXT_FLAG
-                );
+        /**
+         * Slides the repository's window if the visible rows are close to either end of the
+         * loaded activities. This is called as the list scrolls rather than as rows are bound so
+         * that binding a row only displays it.
+         *
+         * @param first the index of the first visible row, or {@link RecyclerView#NO_POSITION}
+         * @param last  the index of the last visible row, or {@link RecyclerView#NO_POSITION}
+         */
+        void slideWindowIfNeeded(int first, int last) {
+            if (isFiltering || first == RecyclerView.NO_POSITION) {
+                return;
             }
+            int size = activityList.size();
+            mainActivity.repository.slideWindowIfNeeded(
+                    offset,
+                    last >= size - PREFETCH_DISTANCE ? last : first,
+                    size,
+                    PREFETCH_DISTANCE
+            );
+        }
 
-            holder.itemView.setOnClickListener(
-                    new View.OnClickListener() {
-                        @Override
-                        public void onClick(View view) {
-                            new ActivityDialog(mainActivity, activity).execute();
-                        }
-                    }
+        private static void setStruckThrough(TextView textView, boolean isStruckThrough) {
+            int flags = textView.getPaintFlags();
+            textView.setPaintFlags(
+                    isStruckThrough
+                            ? flags | Paint.STRIKE_THRU_TEXT_FLAG
+                            : flags & ~Paint.STRIKE_THRU_TEXT_FLAG
             );
         }
 
-        @Override
-        public int getItemCount() {
-            return activityList.size();
+        /**
+         * Shows when the activity is projected to start and end, unless it has been completed or
+         * search results are being shown (since the activities between them are missing).
+         */
+        private void bindSchedule(ActivityAdapter.ViewHolder holder, int position) {
+            Activity activity = activityList.get(position);
+            if (scheduleStart == ReserveClock.NO_RESERVE
+                    || isFiltering
+                    || activity.isCompleted
+                    || position >= projection.size()) {
+                holder.scheduleTextView.setText(null);
+                return;
+            }
+            int start = scheduleStart + durationBefore + projection.getMinutesBefore(position);
+            int length = TimeFormatter.formatClockRange(
+                    start,
+                    start + activity.duration,
+                    mainActivity.is24HourTime,
+                    holder.scheduleBuffer,
+                    0
+            );
+            holder.scheduleTextView.setText(holder.scheduleBuffer, 0, length);
+        }
+
+        /**
+         * Forwards a diff's updates to the adapter while noting what the {@link #projection}
+         * needs. If the diff only changed rows in place, their durations are updated one at a
+         * time; otherwise (e.g., the window slid or the plan was switched) the projection is
+         * reset. Either way, only the schedules from the first row affected are rebound.
+         */
+        private class ProjectionUpdater implements ListUpdateCallback {
+            private final List<int[]> changedRanges = new ArrayList<>();
+            private boolean isStructural = false;
+            /**
+             * Every row before this is the same in both lists. The diff is dispatched from the
+             * end of the list, so the lowest index it reports is in both lists' terms.
+             */
+            private int firstIndex = Integer.MAX_VALUE;
+
+            @Override
+            public void onInserted(int position, int count) {
+                isStructural = true;
+                firstIndex = Math.min(firstIndex, position);
+                notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                isStructural = true;
+                firstIndex = Math.min(firstIndex, position);
+                notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                isStructural = true;
+                firstIndex = Math.min(firstIndex, Math.min(fromPosition, toPosition));
+                notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                changedRanges.add(new int[]{position, count});
+                notifyItemRangeChanged(position, count, payload);
+            }
+
+            /**
+             * Brings the projection up to date with the {@code activities} the diff was
+             * dispatched for, and rebinds the schedules which may have changed.
+             *
+             * @param isDurationBeforeChanged whether the duration before the window changed, in
+             *                                which case every schedule has
+             */
+            void apply(List<Activity> activities, boolean isDurationBeforeChanged) {
+                if (isStructural) {
+                    projection.reset(activities);
+                    for (int[] range : changedRanges) {
+                        firstIndex = Math.min(firstIndex, range[0]);
+                    }
+                } else {
+                    for (int[] range : changedRanges) {
+                        for (int index = range[0]; index < range[0] + range[1]; index++) {
+                            if (projection.update(index, activities.get(index))) {
+                                firstIndex = Math.min(firstIndex, index + 1);
+                            }
+                        }
+                    }
+                }
+                notifySchedulesChanged(isDurationBeforeChanged ? 0 : firstIndex, getItemCount());
+            }
         }
 
         class ViewHolder extends RecyclerView.ViewHolder {
 
             TextView activityTextView;
+            TextView scheduleTextView;
             TextView durationTextView;
+            /**
+             * The text of {@link #scheduleTextView}, which is rewritten rather than reallocated.
+             */
+            final char[] scheduleBuffer = new char[TimeFormatter.BUFFER_SIZE];
 
             ViewHolder(View itemView) {
                 super(itemView);
 
                 activityTextView = itemView.findViewById(R.id.activityTextView);
+                scheduleTextView = itemView.findViewById(R.id.scheduleTextView);
                 durationTextView = itemView.findViewById(R.id.durationTextView);
+                // Set once rather than on every bind.
+                itemView.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View view) {
+                        int position = getAdapterPosition();
+                        if (position != RecyclerView.NO_POSITION) {
+                            mainActivity.showActivityDialog(activityList.get(position));
+                        }
+                    }
+                });
             }
         }
     }
@@ -0,0 +1,232 @@
+package io.github.neelkamath.timebend;
+
+import android.os.SystemClock;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts and latency histograms of the app's hot paths, which are off until
+ * {@link #setEnabled(boolean)} is called. A path is timed by passing the value of
+ * {@link #start()} to {@link #end(int, long)}. While it's disabled, this costs a volatile read
+ * and a comparison. Recording never allocates, so it can be used in bind and draw paths.
+ * <p>
+ * Each histogram has four buckets per power of two of nanoseconds (like an HDR histogram with
+ * two significant bits), so any recorded latency is reported to within 25%.
+ */
+public final class Metrics {
+    /**
+     * A batch of mutations being committed.
+     */
+    public static final int DAO_WRITE = 0;
+    /**
+     * The first page being read at startup.
+     */
+    public static final int DAO_PREFETCH = 1;
+    public static final int DAO_SEARCH = 2;
+    /**
+     * An export, import or restore.
+     */
+    public static final int DAO_TRANSFER = 3;
+    public static final int DAO_HISTORY = 4;
+    /**
+     * The next incomplete activities being read for the widget's snapshot.
+     */
+    public static final int DAO_GLANCE = 5;
+    /**
+     * The plans or the active plan's templates being read.
+     */
+    public static final int DAO_PLANS = 6;
+    /**
+     * The changes since the last backup being written, which is timed apart from
+     * {@link #DAO_TRANSFER} since it happens every time the app stops.
+     */
+    public static final int DAO_BACKUP = 7;
+    /**
+     * A batch of mutations being flushed or the loaded window being moved, until the activities
+     * read for it by {@code ActivityDao.getSnapshotLive} are delivered to the UI.
+     */
+    public static final int DAO_SNAPSHOT = 8;
+    /**
+     * A row being fully bound.
+     */
+    public static final int BIND = 9;
+    /**
+     * A row's projected schedule being rebound.
+     */
+    public static final int BIND_SCHEDULE = 10;
+    public static final int RESERVE_UPDATE = 11;
+    public static final int GESTURE_SWIPE = 12;
+    public static final int GESTURE_DROP = 13;
+    private static final String[] NAMES = {
+            "dao write",
+            "dao prefetch",
+            "dao search",
+            "dao transfer",
+            "dao history",
+            "dao glance",
+            "dao plans",
+            "dao backup",
+            "dao snapshot",
+            "bind",
+            "bind schedule",
+            "reserve update",
+            "gesture swipe",
+            "gesture drop"
+    };
+    private static final int SUB_BITS = 2;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /**
+     * The largest latency counted separately is about {@code 2^41} nanoseconds (37 minutes).
+     */
+    private static final int MAX_EXPONENT = 40;
+    /**
+     * The bucket after the ones for each power of two up to {@link #MAX_EXPONENT}, which counts
+     * every longer latency.
+     */
+    private static final int OVERFLOW_BUCKET = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+    private static final int BUCKETS = OVERFLOW_BUCKET + 1;
+    private static final AtomicLongArray counts = new AtomicLongArray(NAMES.length * BUCKETS);
+    private static final AtomicLongArray totals = new AtomicLongArray(NAMES.length);
+    private static final AtomicLongArray maximums = new AtomicLongArray(NAMES.length);
+    private static volatile boolean isEnabled = false;
+
+    private Metrics() {
+    }
+
+    static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    static void setEnabled(boolean isEnabled) {
+        Metrics.isEnabled = isEnabled;
+    }
+
+    /**
+     * @return the value to pass to {@link #end(int, long)}, which is {@code 0} if recording is
+     * disabled
+     */
+    public static long start() {
+        return isEnabled ? SystemClock.elapsedRealtimeNanos() : 0;
+    }
+
+    /**
+     * Records the time since {@code start} unless recording was disabled when it was taken.
+     *
+     * @param metric one of the constants (e.g., {@link #BIND})
+     * @param start  the value {@link #start()} returned
+     */
+    public static void end(int metric, long start) {
+        if (start != 0) {
+            record(metric, SystemClock.elapsedRealtimeNanos() - start);
+        }
+    }
+
+    static void record(int metric, long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(metric * BUCKETS + getBucket(nanos));
+        totals.addAndGet(metric, nanos);
+        long max = maximums.get(metric);
+        while (nanos > max && !maximums.compareAndSet(metric, max, nanos)) {
+            max = maximums.get(metric);
+        }
+    }
+
+    static void reset() {
+        for (int index = 0; index < counts.length(); index++) {
+            counts.set(index, 0);
+        }
+        for (int metric = 0; metric < NAMES.length; metric++) {
+            totals.set(metric, 0);
+            maximums.set(metric, 0);
+        }
+    }
+
+    /**
+     * @return a line for each metric recorded so far with its count, mean, 50th, 90th and 99th
+     * percentiles and maximum, followed by the number of latencies in the
+     * {@link #OVERFLOW_BUCKET} if there were any
+     */
+    static String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (int metric = 0; metric < NAMES.length; metric++) {
+            long count = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                count += counts.get(metric * BUCKETS + bucket);
+            }
+            if (count == 0) {
+                continue;
+            }
+            dump.append(
+                    String.format(
+                            Locale.US,
+                            "%s: n=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                            NAMES[metric],
+                            count,
+                            toMillis(totals.get(metric) / count),
+                            toMillis(getPercentile(metric, count, 0.5)),
+                            toMillis(getPercentile(metric, count, 0.9)),
+                            toMillis(getPercentile(metric, count, 0.99)),
+                            toMillis(maximums.get(metric))
+                    )
+            );
+            long overflows = counts.get(metric * BUCKETS + OVERFLOW_BUCKET);
+            if (overflows > 0) {
+                dump.append(" overflows=").append(overflows);
+            }
+            dump.append('\n');
+        }
+        return dump.toString();
+    }
+
+    /**
+     * @return the highest latency in the bucket the {@code fraction} of the {@code count}
+     * recordings fall within, or the maximum if that's the {@link #OVERFLOW_BUCKET} (which has no
+     * upper bound)
+     */
+    private static long getPercentile(int metric, long count, double fraction) {
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int bucket = 0; bucket < OVERFLOW_BUCKET; bucket++) {
+            seen += counts.get(metric * BUCKETS + bucket);
+            if (seen >= rank) {
+                return Math.min(getLowest(bucket + 1) - 1, maximums.get(metric));
+            }
+        }
+        return maximums.get(metric);
+    }
+
+    /**
+     * Values below {@link #SUB_COUNT} get a bucket each. Every power of two above that is split
+     * into {@link #SUB_COUNT} buckets by the bits after its highest one.
+     */
+    private static int getBucket(long nanos) {
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent < SUB_BITS) {
+            return (int) nanos;
+        }
+        if (exponent > MAX_EXPONENT) {
+            return OVERFLOW_BUCKET;
+        }
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return the lowest latency counted in the {@code bucket}
+     */
+    private static long getLowest(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT - 1 + SUB_BITS;
+        long sub = bucket % SUB_COUNT;
+        return (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+}
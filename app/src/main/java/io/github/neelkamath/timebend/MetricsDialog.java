@@ -0,0 +1,64 @@
+package io.github.neelkamath.timebend;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.content.Intent;
+
+/**
+ * The dialog showing the {@link Metrics} recorded so far.
+ */
+final class MetricsDialog {
+    private MetricsDialog() {
+    }
+
+    /**
+     * Shows the {@link Metrics} recorded so far, and lets them be turned on or off, reset or
+     * shared as text.
+     */
+    static void show(final Context context) {
+        final String dump = Metrics.dump();
+        String message = dump;
+        if (dump.isEmpty()) {
+            message = context.getString(
+                    Metrics.isEnabled() ? R.string.metrics_empty : R.string.metrics_disabled
+            );
+        }
+        new AlertDialog.Builder(context)
+                .setTitle(R.string.metrics)
+                .setMessage(message)
+                .setPositiveButton(
+                        Metrics.isEnabled() ? R.string.disable : R.string.enable,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialogInterface, int i) {
+                                Metrics.setEnabled(!Metrics.isEnabled());
+                            }
+                        }
+                )
+                .setNeutralButton(
+                        R.string.reset,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialogInterface, int i) {
+                                Metrics.reset();
+                            }
+                        }
+                )
+                .setNegativeButton(
+                        R.string.share,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialogInterface, int i) {
+                                context.startActivity(Intent.createChooser(
+                                        new Intent(Intent.ACTION_SEND)
+                                                .setType("text/plain")
+                                                .putExtra(Intent.EXTRA_TEXT, dump),
+                                        context.getString(R.string.share)
+                                ));
+                            }
+                        }
+                )
+                .show();
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.neelkamath.timebend;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+import io.github.neelkamath.timebend.db.Plan;
+
+/**
+ * The dialogs for switching between, creating and deleting plans.
+ */
+final class PlanDialogs {
+    private PlanDialogs() {
+    }
+
+    /**
+     * Lets the user switch to another plan, create one or delete the active one.
+     *
+     * @param listener told on the main thread whenever another plan has been switched to
+     */
+    static void show(final Context context, final ActivityRepository repository,
+                     final ActivityRepository.PlanListener listener) {
+        repository.readPlans(new ActivityRepository.PlansListener() {
+            @Override
+            public void onPlansRead(final List<Plan> plans) {
+                String[] names = new String[plans.size()];
+                int activeIndex = -1;
+                for (int index = 0; index < plans.size(); index++) {
+                    names[index] = plans.get(index).name;
+                    if (plans.get(index).id == repository.getPlanId()) {
+                        activeIndex = index;
+                    }
+                }
+                final int active = activeIndex;
+                AlertDialog.Builder builder = new AlertDialog.Builder(context)
+                        .setTitle(R.string.plans)
+                        .setSingleChoiceItems(
+                                names,
+                                active,
+                                new DialogInterface.OnClickListener() {
+                                    @Override
+                                    public void onClick(DialogInterface dialogInterface, int i) {
+                                        if (i != active) {
+                                            repository.switchPlan(plans.get(i));
+                                            listener.onPlanSwitched();
+                                        }
+                                        dialogInterface.dismiss();
+                                    }
+                                }
+                        )
+                        .setPositiveButton(
+                                R.string.new_plan,
+                                new DialogInterface.OnClickListener() {
+                                    @Override
+                                    public void onClick(DialogInterface dialogInterface, int i) {
+                                        showCreator(context, repository, listener);
+                                    }
+                                }
+                        );
+                if (active != -1 && plans.size() > 1) {
+                    builder.setNeutralButton(
+                            R.string.delete_plan,
+                            new DialogInterface.OnClickListener() {
+                                @Override
+                                public void onClick(DialogInterface dialogInterface, int i) {
+                                    delete(
+                                            context,
+                                            repository,
+                                            plans.get(active),
+                                            plans.get(active == 0 ? 1 : 0),
+                                            listener
+                                    );
+                                }
+                            }
+                    );
+                }
+                builder.show();
+            }
+        });
+    }
+
+    /**
+     * Prompts for the name of a new plan, which is switched to once it's been created.
+     */
+    private static void showCreator(final Context context, final ActivityRepository repository,
+                                    final ActivityRepository.PlanListener listener) {
+        View view = View.inflate(context, R.layout.plan_name_layout, null);
+        final EditText nameEditText = view.findViewById(R.id.planNameEditText);
+        new AlertDialog.Builder(context)
+                .setView(view)
+                .setPositiveButton(
+                        R.string.create,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialogInterface, int i) {
+                                String name = nameEditText.getText().toString().trim();
+                                if (name.isEmpty()) {
+                                    Toast.makeText(
+                                            context,
+                                            R.string.no_plan_name,
+                                            Toast.LENGTH_SHORT
+                                    ).show();
+                                    return;
+                                }
+                                repository.createPlan(name, listener);
+                            }
+                        }
+                )
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Deletes the active plan after the user confirms it, switching to the {@code next} plan.
+     */
+    private static void delete(Context context, final ActivityRepository repository,
+                               final Plan plan, final Plan next,
+                               final ActivityRepository.PlanListener listener) {
+        new AlertDialog.Builder(context)
+                .setMessage(context.getString(R.string.delete_plan_sure, plan.name))
+                .setPositiveButton(
+                        R.string.yes,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialogInterface, int i) {
+                                repository.switchPlan(next);
+                                repository.deletePlan(plan.id);
+                                listener.onPlanSwitched();
+                            }
+                        }
+                )
+                .setNegativeButton(R.string.no, null)
+                .show();
+    }
+}
@@ -0,0 +1,271 @@
+package io.github.neelkamath.timebend;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Calendar;
+
+/**
+ * Keeps track of the reserve left, which is the time left in the day minus the duration of the
+ * incomplete activities. Rather than waking up every minute, it only wakes up at the next minute
+ * the reserve can change (e.g., it stays the same outside the start and end of the day). The
+ * {@link Listener} is only told about the reserve when it changes.
+ * <p>
+ * The start and end of the day are cached from the {@code times} {@link SharedPreferences}, and
+ * kept up to date by listening for changes to them.
+ */
+class ReserveClock implements SharedPreferences.OnSharedPreferenceChangeListener {
+    /**
+     * Given to the {@link Listener} when the start or end of the day hasn't been set.
+     */
+    static final int NO_RESERVE = Integer.MIN_VALUE;
+    /**
+     * Returned by {@link #getNextChangeMinute(int, int, int)} if the reserve will never change.
+     */
+    static final int NEVER = -1;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private final SharedPreferences times;
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final Listener listener;
+    private int startHour;
+    private int startMinute;
+    private int endHour;
+    private int endMinute;
+    private int incompleteDuration = 0;
+    private int reserve = NO_RESERVE;
+    private int scheduleStart = NO_RESERVE;
+    private boolean isStarted = false;
+    /**
+     * Reused by every {@link #update()} so that waking up each minute doesn't allocate. It's only
+     * replaced when it may have the wrong time zone (see {@link #onTimeChanged()}).
+     */
+    private Calendar calendar = Calendar.getInstance();
+    private final Runnable waker = new Runnable() {
+        @Override
+        public void run() {
+            update();
+        }
+    };
+
+    ReserveClock(SharedPreferences times, Listener listener) {
+        this(
+                times,
+                new Clock() {
+                    @Override
+                    public long currentTimeMillis() {
+                        return System.currentTimeMillis();
+                    }
+                },
+                new HandlerScheduler(),
+                listener
+        );
+    }
+
+    ReserveClock(SharedPreferences times, Clock clock, Scheduler scheduler, Listener listener) {
+        this.times = times;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        readDayBounds();
+    }
+
+    /**
+     * Computes the reserve left the same way the app always has. If the end of the day is before
+     * its start, the end is taken to be on the next day.
+     *
+     * @param startMinutes       minutes from midnight to the start of the day
+     * @param endMinutes         minutes from midnight to the end of the day (more than a day's
+     *                           worth if it's on the next day)
+     * @param currMinutes        minutes from midnight to now
+     * @param incompleteDuration the duration of the incomplete activities
+     * @return the reserve in minutes, which is negative if the day has been overplanned
+     */
+    static int computeReserve(int startMinutes, int endMinutes, int currMinutes,
+                              int incompleteDuration) {
+        if (currMinutes > startMinutes && currMinutes < endMinutes) {
+            startMinutes = currMinutes;
+        }
+        return endMinutes - startMinutes - incompleteDuration;
+    }
+
+    /**
+     * @return minutes from midnight to the end of the day, which is taken to be on the next day if
+     * its hour is before the start's
+     */
+    static int getEndMinutes(int startHour, int endHour, int endMinute) {
+        int hour = startHour > endHour ? (endHour + 24) : endHour;
+        return hour * MINUTES_PER_HOUR + endMinute;
+    }
+
+    /**
+     * @return the minute (from today's midnight, so it may be more than a day's worth) after
+     * {@code currMinutes} at which {@link #computeReserve(int, int, int, int)} may give a
+     * different value, or {@link #NEVER}
+     */
+    static int getNextChangeMinute(int startMinutes, int endMinutes, int currMinutes) {
+        if (startMinutes + 1 >= endMinutes) {
+            return NEVER;
+        }
+        if (currMinutes <= startMinutes) {
+            return startMinutes + 1;
+        }
+        if (currMinutes < endMinutes) {
+            return currMinutes + 1;
+        }
+        return MINUTES_PER_DAY + startMinutes + 1;
+    }
+
+    /**
+     * Starts waking up to track the reserve, and tells the {@link Listener} the current reserve.
+     */
+    void start() {
+        isStarted = true;
+        calendar = Calendar.getInstance();
+        times.registerOnSharedPreferenceChangeListener(this);
+        readDayBounds();
+        reserve = NO_RESERVE;
+        scheduleStart = NO_RESERVE;
+        update();
+        if (reserve == NO_RESERVE) {
+            listener.onReserveChanged(NO_RESERVE);
+        }
+    }
+
+    void stop() {
+        isStarted = false;
+        times.unregisterOnSharedPreferenceChangeListener(this);
+        scheduler.cancel(waker);
+    }
+
+    /**
+     * @return the minutes from midnight at which the activities are projected to start (i.e., now
+     * if the day has started, otherwise the start of the day), or {@link #NO_RESERVE}
+     */
+    int getScheduleStart() {
+        return scheduleStart;
+    }
+
+    void setIncompleteDuration(int incompleteDuration) {
+        if (this.incompleteDuration != incompleteDuration) {
+            this.incompleteDuration = incompleteDuration;
+            update();
+        }
+    }
+
+    /**
+     * Should be called when the system's time or time zone has been changed, since the scheduled
+     * wake-up is no longer correct.
+     */
+    void onTimeChanged() {
+        calendar = Calendar.getInstance();
+        update();
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        readDayBounds();
+        update();
+    }
+
+    private void readDayBounds() {
+        startHour = times.getInt("startHour", -1);
+        startMinute = times.getInt("startMinute", -1);
+        endHour = times.getInt("endHour", -1);
+        endMinute = times.getInt("endMinute", -1);
+    }
+
+    /**
+     * Recomputes the reserve, tells the {@link Listener} if it changed, and schedules the next
+     * wake-up.
+     */
+    private void update() {
+        if (!isStarted) {
+            return;
+        }
+        long start = Metrics.start();
+        scheduler.cancel(waker);
+        if (startHour == -1 || startMinute == -1 || endHour == -1 || endMinute == -1) {
+            if (reserve != NO_RESERVE) {
+                reserve = NO_RESERVE;
+                scheduleStart = NO_RESERVE;
+                listener.onReserveChanged(NO_RESERVE);
+            }
+            Metrics.end(Metrics.RESERVE_UPDATE, start);
+            return;
+        }
+        int startMinutes = startHour * MINUTES_PER_HOUR + startMinute;
+        int endMinutes = getEndMinutes(startHour, endHour, endMinute);
+        long now = clock.currentTimeMillis();
+        calendar.setTimeInMillis(now);
+        int currMinutes = calendar.get(Calendar.HOUR_OF_DAY) * MINUTES_PER_HOUR
+                + calendar.get(Calendar.MINUTE);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        int newReserve = computeReserve(startMinutes, endMinutes, currMinutes, incompleteDuration);
+        int newScheduleStart = currMinutes > startMinutes && currMinutes < endMinutes
+                ? currMinutes
+                : startMinutes;
+        if (newReserve != reserve || newScheduleStart != scheduleStart) {
+            reserve = newReserve;
+            scheduleStart = newScheduleStart;
+            listener.onReserveChanged(reserve);
+        }
+
+        int nextChange = getNextChangeMinute(startMinutes, endMinutes, currMinutes);
+        if (nextChange != NEVER) {
+            long wakeAt = calendar.getTimeInMillis() + nextChange * MILLIS_PER_MINUTE;
+            scheduler.schedule(waker, Math.max(0, wakeAt - now));
+        }
+        Metrics.end(Metrics.RESERVE_UPDATE, start);
+    }
+
+    interface Listener {
+        /**
+         * Called when the reserve or the {@link #getScheduleStart()} changes.
+         *
+         * @param reserve the reserve left in minutes (negative if the day has been overplanned),
+         *                or {@link #NO_RESERVE}
+         */
+        void onReserveChanged(int reserve);
+    }
+
+    /**
+     * The source of the current time, which can be swapped out in tests.
+     */
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    /**
+     * Runs the clock's wake-ups, which can be swapped out in tests.
+     */
+    interface Scheduler {
+        void schedule(Runnable runnable, long delayMillis);
+
+        void cancel(Runnable runnable);
+    }
+
+    /**
+     * Runs wake-ups on the main thread.
+     */
+    private static class HandlerScheduler implements Scheduler {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void schedule(Runnable runnable, long delayMillis) {
+            handler.postDelayed(runnable, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable runnable) {
+            handler.removeCallbacks(runnable);
+        }
+    }
+}
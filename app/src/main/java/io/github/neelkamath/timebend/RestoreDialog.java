@@ -0,0 +1,36 @@
+package io.github.neelkamath.timebend;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+
+/**
+ * The dialog for restoring the activities last backed up.
+ */
+final class RestoreDialog {
+    private RestoreDialog() {
+    }
+
+    /**
+     * Asks the user before replacing every plan's activities with the ones last backed up.
+     */
+    static void show(final Context context, final ActivityRepository repository) {
+        new AlertDialog.Builder(context)
+                .setMessage(R.string.restore_backup_sure)
+                .setPositiveButton(
+                        R.string.restore_backup,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialogInterface, int i) {
+                                repository.restoreBackup(
+                                        new TransferToaster(context, R.string.restored)
+                                );
+                            }
+                        }
+                )
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+}
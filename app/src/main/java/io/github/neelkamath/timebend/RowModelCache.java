@@ -0,0 +1,148 @@
+package io.github.neelkamath.timebend;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Color;
+import android.text.SpannableString;
+import android.text.util.Linkify;
+import android.util.SparseArray;
+
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+/**
+ * The {@link RowModel}s of the activities, so that rows don't format their text or run
+ * {@link Linkify}'s regular expressions every time they're bound. Models are keyed by the
+ * activity's {@link Activity#id} and only used while the activity's displayed fields are
+ * unchanged, so edited activities get new models rather than stale ones.
+ * <p>
+ * The models are kept in {@link SparseArray}s so that looking one up while binding doesn't box
+ * its ID. They're bounded like an LRU cache by keeping two generations: models are added to the
+ * {@link #recent} one, which replaces the {@link #old} one once it's full, and a model found in
+ * the old one is moved back to the recent one.
+ */
+class RowModelCache {
+    private static final int MAX_SIZE = 500;
+    private static final int MAX_DURATION = 60;
+    /**
+     * The text of every valid duration, so that models share them.
+     */
+    private static final String[] DURATIONS = new String[MAX_DURATION + 1];
+
+    static {
+        for (int duration = 0; duration <= MAX_DURATION; duration++) {
+            DURATIONS[duration] = Integer.toString(duration);
+        }
+    }
+
+    private static final int GENERATION_SIZE = MAX_SIZE / 2;
+    private SparseArray<RowModel> recent = new SparseArray<>(GENERATION_SIZE);
+    private SparseArray<RowModel> old = new SparseArray<>(GENERATION_SIZE);
+
+    /**
+     * Builds the models of the activities which aren't cached yet. This may be called on any
+     * thread, and should be called off the main thread whenever activities are loaded.
+     */
+    synchronized void prefetch(List<Activity> activities) {
+        for (Activity activity : activities) {
+            get(activity);
+        }
+    }
+
+    synchronized RowModel get(Activity activity) {
+        RowModel model = recent.get(activity.id);
+        if (model == null) {
+            model = old.get(activity.id);
+            if (model != null) {
+                old.remove(activity.id);
+                put(activity.id, model);
+            }
+        }
+        if (model == null || !model.isFor(activity)) {
+            model = new RowModel(activity, model);
+            put(activity.id, model);
+        }
+        return model;
+    }
+
+    /**
+     * Adds the model to the {@link #recent} generation, first dropping the {@link #old} one if
+     * the recent one is full.
+     */
+    private void put(int id, RowModel model) {
+        if (recent.size() >= GENERATION_SIZE && recent.indexOfKey(id) < 0) {
+            SparseArray<RowModel> full = recent;
+            recent = old;
+            recent.clear();
+            old = full;
+        }
+        recent.put(id, model);
+    }
+
+    /**
+     * Frees memory when asked to by the system.
+     *
+     * @param level the level given to {@link ComponentCallbacks2#onTrimMemory(int)}
+     */
+    synchronized void trim(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            recent.clear();
+            old.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            old.clear();
+        }
+    }
+
+    /**
+     * @return the number of models cached, which is never more than {@link #MAX_SIZE}
+     */
+    synchronized int size() {
+        return recent.size() + old.size();
+    }
+
+    /**
+     * How an {@link Activity} is displayed, ready to be bound.
+     */
+    static final class RowModel {
+        /**
+         * The task as a {@link android.text.Spannable} if it has links, otherwise as it is.
+         */
+        final CharSequence task;
+        final boolean hasLinks;
+        final String duration;
+        final int color;
+        final boolean isStruckThrough;
+        private final String rawTask;
+        private final int rawDuration;
+        private final boolean isCompleted;
+
+        /**
+         * @param previous the activity's previous model, whose links are reused if its task is
+         *                 unchanged, or {@code null}
+         */
+        private RowModel(Activity activity, RowModel previous) {
+            rawTask = activity.task;
+            rawDuration = activity.duration;
+            isCompleted = activity.isCompleted;
+            if (previous != null && previous.rawTask.equals(rawTask)) {
+                task = previous.task;
+                hasLinks = previous.hasLinks;
+            } else {
+                SpannableString spannable = new SpannableString(rawTask);
+                hasLinks = Linkify.addLinks(spannable, Linkify.ALL);
+                task = hasLinks ? spannable : rawTask;
+            }
+            duration = rawDuration >= 0 && rawDuration <= MAX_DURATION
+                    ? DURATIONS[rawDuration]
+                    : Integer.toString(rawDuration);
+            color = isCompleted ? Color.LTGRAY : Color.BLACK;
+            isStruckThrough = isCompleted;
+        }
+
+        private boolean isFor(Activity activity) {
+            return rawTask.equals(activity.task)
+                    && rawDuration == activity.duration
+                    && isCompleted == activity.isCompleted;
+        }
+    }
+}
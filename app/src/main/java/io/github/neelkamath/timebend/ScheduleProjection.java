@@ -0,0 +1,135 @@
+package io.github.neelkamath.timebend;
+
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+/**
+ * Projects when each activity will start if the incomplete activities are done one after the
+ * other in order of their {@link Activity#position}. The durations are kept in a Fenwick tree
+ * indexed by position so that completing, editing, swapping or removing an activity and looking
+ * up any activity's projected start all take {@code O(log n)} time rather than recomputing every
+ * prefix sum.
+ * <p>
+ * A removed activity's slot is kept with a duration of {@code 0} until the next
+ * {@link #reset(List)}, and a second Fenwick tree counting the slots still in use maps each index
+ * to its slot.
+ */
+class ScheduleProjection {
+    /**
+     * The duration counted for each slot ({@code 0} for completed or removed activities).
+     */
+    private int[] durations = new int[0];
+    /**
+     * One-based Fenwick tree over {@link #durations}.
+     */
+    private int[] tree = new int[1];
+    /**
+     * One-based Fenwick tree over whether each slot is still in use.
+     */
+    private int[] slots = new int[1];
+    private int size = 0;
+
+    /**
+     * Replaces every duration in {@code O(n)} time.
+     */
+    void reset(List<Activity> activities) {
+        size = activities.size();
+        durations = new int[size];
+        tree = new int[size + 1];
+        slots = new int[size + 1];
+        for (int index = 0; index < size; index++) {
+            durations[index] = getCountedDuration(activities.get(index));
+            tree[index + 1] += durations[index];
+            slots[index + 1]++;
+            int parent = index + 1 + ((index + 1) & -(index + 1));
+            if (parent <= size) {
+                tree[parent] += tree[index + 1];
+                slots[parent] += slots[index + 1];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Updates the activity at the {@code index} after it has been completed or edited.
+     *
+     * @return whether the duration counted for it changed, in which case the projected start of
+     * every activity after it has too
+     */
+    boolean update(int index, Activity activity) {
+        int slot = getSlot(index);
+        int delta = getCountedDuration(activity) - durations[slot];
+        add(slot, delta);
+        return delta != 0;
+    }
+
+    /**
+     * Swaps two activities, as happens for every step of a drag.
+     */
+    void swap(int firstIndex, int secondIndex) {
+        int firstSlot = getSlot(firstIndex);
+        int secondSlot = getSlot(secondIndex);
+        int first = durations[firstSlot];
+        int second = durations[secondSlot];
+        add(firstSlot, second - first);
+        add(secondSlot, first - second);
+    }
+
+    /**
+     * Removes the activity at the {@code index}, so that the ones after it move up by one.
+     */
+    void remove(int index) {
+        int slot = getSlot(index);
+        add(slot, -durations[slot]);
+        for (int node = slot + 1; node < slots.length; node += node & -node) {
+            slots[node]--;
+        }
+        size--;
+    }
+
+    /**
+     * @return the total duration of the incomplete activities before the one at the {@code index}
+     */
+    int getMinutesBefore(int index) {
+        if (index == 0) {
+            return 0;
+        }
+        int sum = 0;
+        for (int node = getSlot(index - 1) + 1; node > 0; node -= node & -node) {
+            sum += tree[node];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the slot of the activity at the {@code index}, found by descending the
+     * {@link #slots} tree in {@code O(log n)} time
+     */
+    private int getSlot(int index) {
+        int slot = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(durations.length); step > 0; step >>= 1) {
+            int node = slot + step;
+            if (node < slots.length && slots[node] < remaining) {
+                slot = node;
+                remaining -= slots[node];
+            }
+        }
+        return slot;
+    }
+
+    private void add(int slot, int delta) {
+        durations[slot] += delta;
+        for (int node = slot + 1; node < tree.length; node += node & -node) {
+            tree[node] += delta;
+        }
+    }
+
+    private static int getCountedDuration(Activity activity) {
+        return activity.isCompleted ? 0 : activity.duration;
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.neelkamath.timebend;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Timestamps of the app's cold start, in milliseconds of {@link SystemClock#elapsedRealtime()}.
+ * A timestamp is {@code -1} until the step it's for has happened.
+ */
+final class StartupMetrics {
+    private static final String TAG = "StartupMetrics";
+    private static volatile long applicationCreated = -1;
+    private static volatile long firstPageLoaded = -1;
+    private static volatile long dayBoundsLoaded = -1;
+    private static volatile long firstRowBound = -1;
+
+    private StartupMetrics() {
+    }
+
+    /**
+     * Starts timing a cold start, forgetting the steps of any earlier one. The app only has one
+     * per process, but tests create the application for each test.
+     */
+    static void markApplicationCreated() {
+        firstPageLoaded = -1;
+        dayBoundsLoaded = -1;
+        firstRowBound = -1;
+        applicationCreated = SystemClock.elapsedRealtime();
+    }
+
+    static void markFirstPageLoaded() {
+        firstPageLoaded = SystemClock.elapsedRealtime();
+    }
+
+    static void markDayBoundsLoaded() {
+        dayBoundsLoaded = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Called on every bind, so it returns immediately after the first one.
+     */
+    static void markFirstRowBound() {
+        if (firstRowBound == -1) {
+            firstRowBound = SystemClock.elapsedRealtime();
+            Log.i(TAG, "Time to first bound row: " + getTimeToFirstRow() + " ms");
+        }
+    }
+
+    /**
+     * @return the milliseconds from the application being created to the first page of activities
+     * being read from the database, or {@code -1} if it hasn't been read yet
+     */
+    static long getTimeToFirstPage() {
+        return since(firstPageLoaded);
+    }
+
+    /**
+     * @return the milliseconds from the application being created to the day's bounds being read,
+     * or {@code -1} if they haven't been read yet
+     */
+    static long getTimeToDayBounds() {
+        return since(dayBoundsLoaded);
+    }
+
+    /**
+     * @return the milliseconds from the application being created to the first activity being
+     * displayed, or {@code -1} if one hasn't been displayed yet
+     */
+    static long getTimeToFirstRow() {
+        return since(firstRowBound);
+    }
+
+    private static long since(long timestamp) {
+        return timestamp == -1 || applicationCreated == -1 ? -1 : timestamp - applicationCreated;
+    }
+}
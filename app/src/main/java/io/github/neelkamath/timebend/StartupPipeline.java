@@ -0,0 +1,48 @@
+package io.github.neelkamath.timebend;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+
+/**
+ * Work started as soon as the app is created so that it's done by the time {@link MainActivity}
+ * needs it. The repository is created, the database opened and its first page of activities read
+ * in parallel with the day's bounds being read from disk. {@link MainActivity} then attaches its
+ * adapter on the main thread and is filled in by {@link ActivityRepository#getSnapshot()}. The
+ * day's recurring activities are then materialized (see {@link TemplateScheduler}), and whatever
+ * changed since the last backup is backed up (see {@link ActivityRepository#backUp()}).
+ * <p>
+ * The app is also created for broadcasts (e.g., to update the widgets). Those never wait for the
+ * pipeline since it only runs in the background, and they only read the
+ * {@link io.github.neelkamath.timebend.db.GlanceSnapshot} (see {@link GlanceUpdater}).
+ */
+final class StartupPipeline {
+    private StartupPipeline() {
+    }
+
+    /**
+     * Called once by {@link TimeBendApplication#onCreate()}.
+     */
+    static void start(Context context) {
+        final Context appContext = context.getApplicationContext();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                TimeBendApplication.getRepository(appContext).prefetch();
+                StartupMetrics.markFirstPageLoaded();
+                // Queued after the first page is read so that it doesn't delay it.
+                TemplateScheduler.materialize(appContext, null);
+                TimeBendApplication.getRepository(appContext).backUp();
+            }
+        });
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // SharedPreferences are loaded from disk in the background; this waits for it.
+                appContext.getSharedPreferences("times", Context.MODE_PRIVATE).getAll();
+                StartupMetrics.markDayBoundsLoaded();
+            }
+        });
+    }
+}
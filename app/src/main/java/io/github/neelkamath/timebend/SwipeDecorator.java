@@ -0,0 +1,55 @@
+package io.github.neelkamath.timebend;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * Draws the background and icon shown behind an activity while it's being swiped. Since this is
+ * done on every frame of the swipe, the bitmaps and paints are created once and reused.
+ */
+class SwipeDecorator {
+    private final Bitmap completeBitmap;
+    private final Bitmap deleteBitmap;
+    private final Paint completePaint = new Paint();
+    private final Paint deletePaint = new Paint();
+
+    /**
+     * Decodes the icons, so it should be constructed once and off the main thread rather than
+     * when a swipe starts.
+     */
+    SwipeDecorator(Resources resources) {
+        completeBitmap = BitmapFactory.decodeResource(resources, R.mipmap.check_foreground);
+        deleteBitmap = BitmapFactory.decodeResource(resources, R.mipmap.clear_foreground);
+        completePaint.setColor(Color.GREEN);
+        deletePaint.setColor(Color.RED);
+    }
+
+    /**
+     * @param itemView the view being swiped
+     * @param dX       how far it has been swiped (positive if swiped right)
+     */
+    void draw(Canvas canvas, View itemView, float dX) {
+        boolean isRight = dX > 0;
+        Paint paint = isRight ? completePaint : deletePaint;
+        Bitmap bitmap = isRight ? completeBitmap : deleteBitmap;
+        canvas.drawRect(
+                isRight ? itemView.getLeft() : (itemView.getRight() + dX),
+                itemView.getTop(),
+                isRight ? dX : itemView.getRight(),
+                itemView.getBottom(),
+                paint
+        );
+        int len = (itemView.getBottom() - itemView.getTop() - bitmap.getHeight()) / 2;
+        canvas.drawBitmap(
+                bitmap,
+                isRight ? (dX - bitmap.getWidth()) : (itemView.getRight() + dX),
+                itemView.getTop() + len,
+                paint
+        );
+    }
+}
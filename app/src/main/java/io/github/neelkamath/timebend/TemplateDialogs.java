@@ -0,0 +1,97 @@
+package io.github.neelkamath.timebend;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.widget.Toast;
+
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+import io.github.neelkamath.timebend.db.Template;
+
+/**
+ * The dialogs listing the active plan's recurring activities.
+ */
+final class TemplateDialogs {
+    /**
+     * The {@link Template#days} of each of the {@code recurrences} offered when creating an
+     * activity, where {@code 0} is for activities which don't recur.
+     */
+    static final int[] RECURRENCES = {
+            0,
+            Template.EVERY_DAY,
+            Template.WEEKDAYS,
+            Template.WEEKENDS
+    };
+
+    private TemplateDialogs() {
+    }
+
+    /**
+     * Lists the active plan's recurring activities, any of which can be stopped from recurring.
+     */
+    static void show(final Context context, final ActivityRepository repository) {
+        repository.readTemplates(new ActivityRepository.TemplatesListener() {
+            @Override
+            public void onTemplatesRead(final List<Template> templates) {
+                if (templates.isEmpty()) {
+                    Toast.makeText(
+                            context,
+                            R.string.no_recurring_activities,
+                            Toast.LENGTH_SHORT
+                    ).show();
+                    return;
+                }
+                String[] recurrences = context.getResources().getStringArray(R.array.recurrences);
+                String[] items = new String[templates.size()];
+                for (int index = 0; index < templates.size(); index++) {
+                    Template template = templates.get(index);
+                    String recurrence = "";
+                    for (int count = 0; count < RECURRENCES.length; count++) {
+                        if (RECURRENCES[count] == template.days) {
+                            recurrence = recurrences[count];
+                        }
+                    }
+                    items[index] = context.getString(
+                            R.string.recurring_activity,
+                            template.task,
+                            recurrence
+                    );
+                }
+                new AlertDialog.Builder(context)
+                        .setTitle(R.string.recurring_activities)
+                        .setItems(
+                                items,
+                                new DialogInterface.OnClickListener() {
+                                    @Override
+                                    public void onClick(DialogInterface dialogInterface, int i) {
+                                        stopRecurring(context, repository, templates.get(i));
+                                    }
+                                }
+                        )
+                        .show();
+            }
+        });
+    }
+
+    /**
+     * Stops the {@code template} from recurring after the user confirms it.
+     */
+    private static void stopRecurring(Context context, final ActivityRepository repository,
+                                      final Template template) {
+        new AlertDialog.Builder(context)
+                .setMessage(context.getString(R.string.stop_recurring_sure, template.task))
+                .setPositiveButton(
+                        R.string.yes,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialogInterface, int i) {
+                                repository.deleteTemplate(template.id);
+                            }
+                        }
+                )
+                .setNegativeButton(R.string.no, null)
+                .show();
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.neelkamath.timebend;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Materializes the day's recurring activities at the start of the day scheduled by
+ * {@link TemplateScheduler}.
+ */
+public class TemplateReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        TemplateScheduler.materialize(context.getApplicationContext(), goAsync());
+    }
+}
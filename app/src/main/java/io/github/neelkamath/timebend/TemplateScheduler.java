@@ -0,0 +1,110 @@
+package io.github.neelkamath.timebend;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.support.annotation.Nullable;
+
+import java.util.Calendar;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+
+/**
+ * Materializes the day's recurring activities when the app is started and at the start of each
+ * day (as set in the {@code times} {@link SharedPreferences}, or midnight if it isn't set). Since
+ * materializing is idempotent, it doesn't matter how often it's run on the same day.
+ */
+final class TemplateScheduler {
+    private static final ReserveClock.Clock SYSTEM_CLOCK = new ReserveClock.Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private TemplateScheduler() {
+    }
+
+    /**
+     * @see #materialize(Context, ReserveClock.Clock, BroadcastReceiver.PendingResult)
+     */
+    static void materialize(Context context, @Nullable BroadcastReceiver.PendingResult result) {
+        materialize(context, SYSTEM_CLOCK, result);
+    }
+
+    /**
+     * Materializes the activities recurring on the {@code clock}'s day, and schedules the next
+     * run for the start of the following day.
+     *
+     * @param result from {@link BroadcastReceiver#goAsync()}, which is finished once the
+     *               activities have been committed, or {@code null}
+     */
+    static void materialize(Context context, ReserveClock.Clock clock,
+                            @Nullable final BroadcastReceiver.PendingResult result) {
+        TimeBendApplication.getRepository(context).materializeTemplates(
+                clock.currentTimeMillis(),
+                new ActivityRepository.MaterializeListener() {
+                    @Override
+                    public void onMaterialized(int count) {
+                        if (result != null) {
+                            result.finish();
+                        }
+                    }
+                }
+        );
+        schedule(context, clock);
+    }
+
+    /**
+     * @see #schedule(Context, ReserveClock.Clock)
+     */
+    static void schedule(Context context) {
+        schedule(context, SYSTEM_CLOCK);
+    }
+
+    /**
+     * Schedules the next run for the next start of the day, replacing any scheduled one. It should
+     * be called whenever the start of the day changes.
+     */
+    static void schedule(Context context, ReserveClock.Clock clock) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(
+                Context.ALARM_SERVICE
+        );
+        if (alarmManager == null) {
+            return;
+        }
+        alarmManager.set(
+                AlarmManager.RTC_WAKEUP,
+                getNextDayStart(context, clock.currentTimeMillis()),
+                PendingIntent.getBroadcast(
+                        context,
+                        0,
+                        new Intent(context, TemplateReceiver.class),
+                        PendingIntent.FLAG_UPDATE_CURRENT
+                )
+        );
+    }
+
+    /**
+     * @param now milliseconds since the epoch
+     * @return milliseconds since the epoch of the first start of the day after {@code now}
+     */
+    private static long getNextDayStart(Context context, long now) {
+        SharedPreferences times = context.getSharedPreferences("times", Context.MODE_PRIVATE);
+        int hour = times.getInt("startHour", -1);
+        int minute = times.getInt("startMinute", -1);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.HOUR_OF_DAY, hour == -1 ? 0 : hour);
+        calendar.set(Calendar.MINUTE, minute == -1 ? 0 : minute);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (calendar.getTimeInMillis() <= now) {
+            calendar.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        return calendar.getTimeInMillis();
+    }
+}
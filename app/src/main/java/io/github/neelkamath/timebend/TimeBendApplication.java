@@ -0,0 +1,40 @@
+package io.github.neelkamath.timebend;
+
+import android.app.Application;
+import android.content.Context;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+
+public class TimeBendApplication extends Application {
+    private static boolean isGlanceListenerSet = false;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        StartupMetrics.markApplicationCreated();
+        StartupPipeline.start(this);
+    }
+
+    /**
+     * Gets the repository, which updates the widgets and notification whenever it rewrites the
+     * {@link io.github.neelkamath.timebend.db.GlanceSnapshot}. It's first called by the
+     * {@link StartupPipeline} in the background, so creating it (which reads the settings from
+     * disk) never happens on the main thread. Receivers which only show the snapshot (e.g.,
+     * {@link GlanceReceiver}) never call it.
+     */
+    static synchronized ActivityRepository getRepository(Context context) {
+        final Context appContext = context.getApplicationContext();
+        ActivityRepository repository = ActivityRepository.getInstance(appContext);
+        if (!isGlanceListenerSet) {
+            isGlanceListenerSet = true;
+            repository.setGlanceListener(new ActivityRepository.GlanceListener() {
+                @Override
+                public void onGlanceSnapshotWritten() {
+                    GlanceUpdater.update(appContext);
+                }
+            });
+        }
+        return repository;
+    }
+}
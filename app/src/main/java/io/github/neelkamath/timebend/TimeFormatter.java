@@ -0,0 +1,111 @@
+package io.github.neelkamath.timebend;
+
+/**
+ * Formats times into a {@code char[]} rather than a {@link String} so that text which changes
+ * every minute (e.g., the reserve and projected schedules) can be shown without allocating, using
+ * {@link android.widget.TextView#setText(char[], int, int)}. Since the {@code TextView} keeps
+ * using the array, each one needs its own buffer.
+ * <p>
+ * Each method writes at the {@code offset} and returns the offset after what it wrote.
+ */
+final class TimeFormatter {
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+    private static final int HOURS_PER_HALF_DAY = 12;
+    /**
+     * Long enough for anything written by this class.
+     */
+    static final int BUFFER_SIZE = 24;
+
+    private TimeFormatter() {
+    }
+
+    /**
+     * Writes a time of day such as {@code 9:05}.
+     *
+     * @param minutes      minutes from midnight (which may be past the next midnight)
+     * @param is24HourTime whether the user prefers 24-hour time
+     */
+    static int formatClockTime(int minutes, boolean is24HourTime, char[] buffer, int offset) {
+        minutes %= MINUTES_PER_DAY;
+        offset = formatInt(formatHour(minutes / MINUTES_PER_HOUR, is24HourTime), buffer, offset);
+        buffer[offset++] = ':';
+        return formatTwoDigits(minutes % MINUTES_PER_HOUR, buffer, offset);
+    }
+
+    /**
+     * Writes the range of times from {@code startMinutes} to {@code endMinutes} such as
+     * {@code 9:05-9:25}.
+     *
+     * @see #formatClockTime(int, boolean, char[], int)
+     */
+    static int formatClockRange(int startMinutes, int endMinutes, boolean is24HourTime,
+                                char[] buffer, int offset) {
+        offset = formatClockTime(startMinutes, is24HourTime, buffer, offset);
+        buffer[offset++] = '-';
+        return formatClockTime(endMinutes, is24HourTime, buffer, offset);
+    }
+
+    /**
+     * Writes the start or end of the day such as {@code 9:05 PM}, which always has its AM or PM.
+     */
+    static int formatDayTime(int hour, int minute, boolean is24HourTime, char[] buffer,
+                             int offset) {
+        offset = formatInt(formatHour(hour, is24HourTime), buffer, offset);
+        buffer[offset++] = ':';
+        offset = formatTwoDigits(minute, buffer, offset);
+        buffer[offset++] = ' ';
+        buffer[offset++] = hour < HOURS_PER_HALF_DAY ? 'A' : 'P';
+        buffer[offset++] = 'M';
+        return offset;
+    }
+
+    /**
+     * Writes a duration in hours and minutes such as {@code -1:05}.
+     *
+     * @param minutes which may be negative (e.g., the reserve of an overplanned day)
+     */
+    static int formatDuration(int minutes, char[] buffer, int offset) {
+        if (minutes < 0) {
+            buffer[offset++] = '-';
+            minutes = -minutes;
+        }
+        offset = formatInt(minutes / MINUTES_PER_HOUR, buffer, offset);
+        buffer[offset++] = ':';
+        return formatTwoDigits(minutes % MINUTES_PER_HOUR, buffer, offset);
+    }
+
+    /**
+     * @return the hour in 12- or 24-hour time (according to the user's preference)
+     */
+    private static int formatHour(int hour, boolean is24HourTime) {
+        if (!is24HourTime && hour > HOURS_PER_HALF_DAY) {
+            hour -= HOURS_PER_HALF_DAY;
+        }
+        return hour;
+    }
+
+    /**
+     * Writes a non-negative number.
+     */
+    private static int formatInt(int number, char[] buffer, int offset) {
+        int digits = 1;
+        for (int remaining = number / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        for (int index = offset + digits - 1; index >= offset; index--) {
+            buffer[index] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return offset + digits;
+    }
+
+    /**
+     * Writes a number from {@code 0} to {@code 99} with a leading zero if it's one digit long.
+     */
+    private static int formatTwoDigits(int number, char[] buffer, int offset) {
+        buffer[offset++] = (char) ('0' + number / 10);
+        buffer[offset++] = (char) ('0' + number % 10);
+        return offset;
+    }
+}
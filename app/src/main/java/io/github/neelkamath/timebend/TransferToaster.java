@@ -0,0 +1,36 @@
+package io.github.neelkamath.timebend;
+
+import android.content.Context;
+import android.widget.Toast;
+
+import io.github.neelkamath.timebend.db.ActivityRepository;
+
+/**
+ * Tells the user how an export, import or restore went.
+ */
+class TransferToaster implements ActivityRepository.TransferListener {
+    private final Context context;
+    private final int successMessage;
+
+    /**
+     * @param successMessage a string resource taking the number of activities transferred
+     */
+    TransferToaster(Context context, int successMessage) {
+        this.context = context;
+        this.successMessage = successMessage;
+    }
+
+    @Override
+    public void onTransferred(int count) {
+        Toast.makeText(
+                context,
+                context.getString(successMessage, count),
+                Toast.LENGTH_SHORT
+        ).show();
+    }
+
+    @Override
+    public void onTransferFailed() {
+        Toast.makeText(context, R.string.transfer_failed, Toast.LENGTH_SHORT).show();
+    }
+}
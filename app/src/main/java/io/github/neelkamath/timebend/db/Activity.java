@@ -2,14 +2,32 @@ package io.github.neelkamath.timebend.db;
 
 import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Index;
 import android.arch.persistence.room.PrimaryKey;
 
-@Entity(tableName = "activities")
+@Entity(
+        tableName = "activities",
+        foreignKeys = @ForeignKey(
+                entity = Plan.class,
+                parentColumns = "id",
+                childColumns = "plan_id"
+        ),
+        indices = {
+                @Index({"plan_id", "position"}),
+                @Index({"plan_id", "is_completed", "duration"})
+        }
+)
 public class Activity {
     @PrimaryKey(autoGenerate = true)
     public int id;
     /**
-     * Used for the UI's positioning of the activity. It should start from {@code 0}.
+     * The {@link Plan#id} of the plan the activity belongs to.
+     */
+    @ColumnInfo(name = "plan_id")
+    public long planId;
+    /**
+     * Used for the UI's positioning of the activity. It should start from {@code 0} in each plan.
      */
     public int position;
     public String task;
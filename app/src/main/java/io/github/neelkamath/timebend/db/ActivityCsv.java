@@ -0,0 +1,173 @@
+package io.github.neelkamath.timebend.db;
+
+import android.database.Cursor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams activities to and from CSV with the header {@code task,duration,is_completed}. Neither
+ * direction holds more than one row (or one batch of rows) in memory.
+ */
+final class ActivityCsv {
+    static final String HEADER = "task,duration,is_completed";
+
+    private ActivityCsv() {
+    }
+
+    /**
+     * Writes every row of the {@code cursor}, which must have the {@code activities} table's
+     * columns.
+     *
+     * @return the number of activities written
+     */
+    static int write(Cursor cursor, Writer writer) throws IOException {
+        int taskColumn = cursor.getColumnIndexOrThrow("task");
+        int durationColumn = cursor.getColumnIndexOrThrow("duration");
+        int isCompletedColumn = cursor.getColumnIndexOrThrow("is_completed");
+        writer.write(HEADER);
+        writer.write('\n');
+        int count = 0;
+        while (cursor.moveToNext()) {
+            writeField(writer, cursor.getString(taskColumn));
+            writer.write(',');
+            writer.write(Integer.toString(cursor.getInt(durationColumn)));
+            writer.write(',');
+            writer.write(cursor.getInt(isCompletedColumn) == 0 ? "0" : "1");
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Quotes the {@code field} if it contains a comma, quote or line break.
+     */
+    static void writeField(Writer writer, String field) throws IOException {
+        if (field == null) {
+            return;
+        }
+        boolean isQuoted = false;
+        for (int index = 0; index < field.length() && !isQuoted; index++) {
+            char c = field.charAt(index);
+            isQuoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (isQuoted) {
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(field);
+        }
+    }
+
+    /**
+     * Reads one record at a time from CSV. Quoted fields may contain commas, escaped quotes and
+     * line breaks.
+     */
+    static class RecordReader {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+        /**
+         * A character which has been read but not consumed, or {@code -2} if there isn't one.
+         */
+        private int peeked = -2;
+
+        /**
+         * @param reader should be buffered since it's read a character at a time
+         */
+        RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the fields of the next record, or {@code null} at the end of the input
+         * @throws IOException if the input can't be read or a quoted field is never closed
+         */
+        List<String> read() throws IOException {
+            int c = next();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>(3);
+            boolean isQuoted = false;
+            field.setLength(0);
+            while (true) {
+                if (isQuoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int following = next();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            isQuoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    isQuoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    if (c == '\r') {
+                        int following = next();
+                        if (following != '\n') {
+                            peeked = following;
+                        }
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = next();
+            }
+        }
+
+        private int next() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+
+    /**
+     * @param fields a record read by the {@link RecordReader}
+     * @return the activity the record is for, or {@code null} if the record isn't a valid activity
+     * (e.g., the header)
+     */
+    static Activity parse(List<String> fields) {
+        if (fields.size() != 3 || fields.get(0).trim().isEmpty()) {
+            return null;
+        }
+        int duration;
+        try {
+            duration = Integer.parseInt(fields.get(1).trim());
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+        final int oneHour = 60;
+        if (duration < 1 || duration > oneHour) {
+            return null;
+        }
+        String isCompleted = fields.get(2).trim();
+        return new Activity(
+                fields.get(0).trim(),
+                duration,
+                0,
+                isCompleted.equals("1") || isCompleted.equalsIgnoreCase("true")
+        );
+    }
+}
@@ -1,37 +1,218 @@
 package io.github.neelkamath.timebend.db;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.persistence.db.SimpleSQLiteQuery;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Delete;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
+import android.arch.persistence.room.RoomDatabase;
+import android.arch.persistence.room.Transaction;
 import android.arch.persistence.room.Update;
+import android.database.Cursor;
+import android.os.CancellationSignal;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Dao
-public interface ActivityDao {
+public abstract class ActivityDao {
+    private final RoomDatabase database;
+
+    ActivityDao(RoomDatabase database) {
+        this.database = database;
+    }
+
     @Query(Sql.GET)
-    LiveData<List<Activity>> getAllLive();
+    public abstract List<Activity> getAll(long planId);
 
+    /**
+     * Reads every activity of the plan in order without loading them all into memory at once, as
+     * is needed for exporting them. The caller must close the cursor.
+     */
     @Query(Sql.GET)
-    List<Activity> getAll();
+    abstract Cursor getAllCursor(long planId);
+
+    /**
+     * Reads the plan's activities positioned from the {@code start} up to the {@code end} along
+     * with the plan's aggregates using a single query per invalidation. Since positions are
+     * contiguous, this is a range scan on the {@code (plan_id, position)} index which reads
+     * exactly the activities displayed rather than the whole table. Use
+     * {@link ActivityRepository#getSnapshot()} instead.
+     *
+     * @param planId the {@link Plan#id} of the plan to read
+     * @param start  the position of the first activity to load
+     * @param end    the position after the last activity to load
+     */
+    @Query(Sql.GET_SNAPSHOT)
+    abstract LiveData<List<PlanRow>> getSnapshotLive(long planId, int start, int end);
+
+    /**
+     * @see #getSnapshotLive(long, int, int)
+     */
+    @Query(Sql.GET_SNAPSHOT)
+    abstract List<PlanRow> getSnapshot(long planId, int start, int end);
+
+    /**
+     * Finds the plan's activities whose tasks contain words starting with each word of the
+     * {@code text} using the {@code activities_fts} index (see
+     * {@link Migrations#createActivitiesFts}). Room can't run cancellable queries, so the query is
+     * run directly.
+     *
+     * @param signal cancels the query, in which case an
+     *               {@link android.os.OperationCanceledException} is thrown
+     * @return the matching activities in order, or none if the {@code text} has no words
+     */
+    public List<Activity> search(long planId, String text, CancellationSignal signal) {
+        List<Activity> activities = new ArrayList<>();
+        String match = Sql.toPrefixMatch(text);
+        if (match.isEmpty()) {
+            return activities;
+        }
+        try (Cursor cursor = database.getOpenHelper().getReadableDatabase().query(
+                new SimpleSQLiteQuery(Sql.SEARCH, new Object[]{match, planId}),
+                signal
+        )) {
+            int idColumn = cursor.getColumnIndexOrThrow("id");
+            int planIdColumn = cursor.getColumnIndexOrThrow("plan_id");
+            int positionColumn = cursor.getColumnIndexOrThrow("position");
+            int taskColumn = cursor.getColumnIndexOrThrow("task");
+            int durationColumn = cursor.getColumnIndexOrThrow("duration");
+            int isCompletedColumn = cursor.getColumnIndexOrThrow("is_completed");
+            while (cursor.moveToNext()) {
+                Activity activity = new Activity(
+                        cursor.getString(taskColumn),
+                        cursor.getInt(durationColumn),
+                        cursor.getInt(positionColumn),
+                        cursor.getInt(isCompletedColumn) != 0
+                );
+                activity.id = cursor.getInt(idColumn);
+                activity.planId = cursor.getLong(planIdColumn);
+                activities.add(activity);
+            }
+        }
+        return activities;
+    }
 
-    @Query("SELECT COUNT(*) FROM activities")
-    int getNumberOfActivities();
+    @Query("SELECT COUNT(*) FROM activities WHERE plan_id = :planId")
+    public abstract int getNumberOfActivities(long planId);
 
-    @Query("SELECT SUM(duration) FROM activities WHERE is_completed = 0")
-    int getIncompleteActivitiesDuration();
+    @Query("SELECT SUM(duration) FROM activities WHERE plan_id = :planId AND is_completed = 0")
+    public abstract int getIncompleteActivitiesDuration(long planId);
 
-    @Query("DELETE FROM activities")
-    void deleteAll();
+    /**
+     * @param limit the most activities to read
+     * @return the plan's first incomplete activities in order
+     */
+    @Query("SELECT * FROM activities WHERE plan_id = :planId AND is_completed = 0 "
+            + "ORDER BY position LIMIT :limit")
+    abstract List<Activity> getNextIncompleteActivities(long planId, int limit);
 
+    @Query("DELETE FROM activities WHERE plan_id = :planId")
+    public abstract void deleteAll(long planId);
+
+    @Insert
+    public abstract void insertActivity(Activity activity);
+
+    /**
+     * Inserts a batch of activities using a single prepared statement.
+     */
     @Insert
-    void insertActivity(Activity activity);
+    abstract void insertActivities(List<Activity> activities);
 
     @Update
-    void updateActivity(Activity activity);
+    public abstract void updateActivity(Activity activity);
 
     @Delete
-    void deleteActivity(Activity activity);
+    public abstract void deleteActivity(Activity activity);
+
+    /**
+     * Moves every activity of the plan after the {@code position} up by one.
+     *
+     * @param position the position of the activity which was removed
+     */
+    @Query("UPDATE activities SET position = position - 1 "
+            + "WHERE plan_id = :planId AND position > :position")
+    abstract void shiftPositionsAfter(long planId, int position);
+
+    @Query("SELECT position FROM activities WHERE id = :id")
+    abstract Integer getPosition(int id);
+
+    /**
+     * Deletes the activity and closes the gap it leaves in the positions in a single transaction
+     * (i.e., one write and one invalidation regardless of the number of activities). The gap is
+     * found from the activity's stored position rather than its {@link Activity#position}, which
+     * may be outdated (e.g., if another activity was deleted after it was read).
+     *
+     * @param activity the activity to delete, whose {@link Activity#position} is set to the one it
+     *                 was deleted from
+     * @return whether it was deleted, which it isn't if it had already been
+     */
+    @Transaction
+    public boolean deleteAndRenumber(Activity activity) {
+        Integer position = getPosition(activity.id);
+        if (position == null) {
+            return false;
+        }
+        activity.position = position;
+        deleteActivity(activity);
+        shiftPositionsAfter(activity.planId, position);
+        return true;
+    }
+
+    /**
+     * Moves the plan's activity at the {@code position} and every activity after it down by one.
+     */
+    @Query("UPDATE activities SET position = position + 1 "
+            + "WHERE plan_id = :planId AND position >= :position")
+    abstract void shiftPositionsFrom(long planId, int position);
+
+    /**
+     * Inserts the activity at its {@link Activity#position}, moving the activities from there on
+     * down by one, in a single transaction. This is the inverse of
+     * {@link #deleteAndRenumber(Activity)}. If the plan has fewer activities than the position
+     * (e.g., others have been deleted since), it's inserted after the last one instead so that
+     * the positions stay contiguous.
+     */
+    @Transaction
+    public void insertAndRenumber(Activity activity) {
+        activity.position = Math.min(activity.position, getNumberOfActivities(activity.planId));
+        shiftPositionsFrom(activity.planId, activity.position);
+        insertActivity(activity);
+    }
+
+    /**
+     * Moves the plan's activities in the range ({@code from}, {@code to}] up by one.
+     */
+    @Query("UPDATE activities SET position = position - 1 "
+            + "WHERE plan_id = :planId AND position > :from AND position <= :to")
+    abstract void shiftPositionsUp(long planId, int from, int to);
+
+    /**
+     * Moves the plan's activities in the range [{@code to}, {@code from}) down by one.
+     */
+    @Query("UPDATE activities SET position = position + 1 "
+            + "WHERE plan_id = :planId AND position >= :to AND position < :from")
+    abstract void shiftPositionsDown(long planId, int from, int to);
+
+    @Query("UPDATE activities SET position = :position WHERE id = :id")
+    abstract void setPosition(int id, int position);
+
+    /**
+     * Moves an activity to a new position in its plan in a single transaction. Only the
+     * activities between {@code from} and {@code to} are rewritten.
+     *
+     * @param activity the activity being moved
+     * @param from     the activity's position before it was dragged
+     * @param to       the position it was dropped at
+     */
+    @Transaction
+    public void moveActivity(Activity activity, int from, int to) {
+        if (from < to) {
+            shiftPositionsUp(activity.planId, from, to);
+        } else {
+            shiftPositionsDown(activity.planId, from, to);
+        }
+        setPosition(activity.id, to);
+    }
 }
@@ -0,0 +1,1190 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.core.util.Function;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Observer;
+import android.arch.lifecycle.Transformations;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.github.neelkamath.timebend.Metrics;
+
+/**
+ * The only thing which writes to the database. Mutations are queued in the order they're made and
+ * committed by a single background thread. Everything queued during one turn of the main thread's
+ * looper (e.g., a gesture) is committed in one transaction.
+ * <p>
+ * It's scoped to the application rather than an {@link android.app.Activity} so that pending
+ * writes survive configuration changes without leaking the UI.
+ */
+public class ActivityRepository {
+    /**
+     * The number of activities loaded at a time.
+     */
+    public static final int PAGE_SIZE = 50;
+    /**
+     * The most activities loaded at once. Once the window reaches this size, it slides instead of
+     * growing, so scrolling through a huge plan keeps a bounded number of rows in memory.
+     */
+    static final int MAX_WINDOW_SIZE = 4 * PAGE_SIZE;
+    /**
+     * The number of imported activities held in memory and inserted at a time.
+     */
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+    /**
+     * The least time between two backups, so that leaving and returning to the app repeatedly
+     * doesn't write (and sync) a file each time. Changes made in between stay in the database's
+     * change log until the next backup.
+     */
+    static final long BACKUP_INTERVAL_MILLIS = 15 * 60 * 1000;
+    /**
+     * The {@code settings} {@link SharedPreferences} key for the {@link Plan#id} of the active
+     * plan.
+     */
+    private static final String PLAN_ID_KEY = "activePlanId";
+    private static ActivityRepository instance;
+    private final Context context;
+    private final AppDatabase database;
+    private final ActivityDao activityDao;
+    private final HistoryDao historyDao;
+    private final PlanDao planDao;
+    private final TemplateDao templateDao;
+    private final ExecutorService writer;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * Runs searches and the {@link GlanceSnapshot}'s reads, which only read, so that they never
+     * wait for (or hold up) the {@link #writer}.
+     */
+    private final ExecutorService searcher;
+    /**
+     * Cancels the latest search. Only used on the main thread.
+     */
+    private CancellationSignal searchSignal;
+    /**
+     * Incremented for every search so that only the latest one's results are delivered. Only used
+     * on the main thread.
+     */
+    private int searchGeneration = 0;
+    /**
+     * Mutations which haven't been handed to the {@link #writer} yet. Guarded by itself.
+     */
+    private final List<Mutation> pending = new ArrayList<>();
+    private final MutationJournal journal = new MutationJournal();
+    /**
+     * The {@link SystemClock#elapsedRealtime()} at which the last backup succeeded, which is
+     * initially early enough for the first one to go ahead. Only used on the {@link #writer}.
+     */
+    private long lastBackupRealtime = -BACKUP_INTERVAL_MILLIS;
+    /**
+     * The token the next undoable mutation is identified by. Only used on the main thread.
+     */
+    private long nextUndoToken = 0;
+    /**
+     * The bounds of the active plan, which are copied into its {@link Plan} row whenever they
+     * change.
+     */
+    private final SharedPreferences times;
+    private final SharedPreferences settings;
+    /**
+     * The {@link Plan#id} of the active plan, which is the only one whose activities are read.
+     * It's only written on the main thread.
+     */
+    private volatile long planId;
+    /**
+     * Syncs the active plan's bounds and rewrites the {@link GlanceSnapshot} when the day's
+     * bounds change. It's a field since {@link SharedPreferences} only holds weak references to
+     * its listeners.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener timesListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+                                                      String key) {
+                    writer.execute(boundsWriter);
+                }
+            };
+    private final Runnable boundsWriter = new Runnable() {
+        @Override
+        public void run() {
+            long start = Metrics.start();
+            planDao.updateBounds(
+                    planId,
+                    times.getInt("startHour", -1),
+                    times.getInt("startMinute", -1),
+                    times.getInt("endHour", -1),
+                    times.getInt("endMinute", -1)
+            );
+            Metrics.end(Metrics.DAO_WRITE, start);
+            scheduleGlanceSnapshot();
+        }
+    };
+    private volatile GlanceListener glanceListener;
+    private boolean isFlushScheduled = false;
+    /**
+     * The positions of the active plan's activities which are loaded. Only used on the main
+     * thread.
+     */
+    private final MutableLiveData<Window> window = new MutableLiveData<>();
+    private final MediatorLiveData<PlanSnapshot> snapshot = new MediatorLiveData<>();
+    /**
+     * The {@link Metrics#start()} of the earliest flush or window move whose snapshot hasn't been
+     * delivered yet, or {@code 0} if there's none (see {@link Metrics#DAO_SNAPSHOT}). Only used
+     * on the main thread.
+     */
+    private long snapshotStart = 0;
+    /**
+     * The first page read by {@link #prefetch()}. It's only used until the database's own snapshot
+     * has been read.
+     */
+    private final MutableLiveData<PlanSnapshot> prefetchedSnapshot = new MutableLiveData<>();
+    private final Runnable flusher = new Runnable() {
+        @Override
+        public void run() {
+            startSnapshotTimer();
+            flush();
+        }
+    };
+    /**
+     * Reads the loaded window again so that the UI drops the changes it made optimistically for
+     * mutations which couldn't be committed.
+     */
+    private final Runnable snapshotReloader = new Runnable() {
+        @Override
+        public void run() {
+            Window current = window.getValue();
+            if (current != null) {
+                window.setValue(new Window(current.start, current.end));
+            }
+        }
+    };
+    /**
+     * Whether the {@link GlanceSnapshot} is older than the latest commit and a rewrite of it has
+     * been queued on the {@link #searcher} which hasn't started yet.
+     */
+    private final AtomicBoolean isGlanceSnapshotStale = new AtomicBoolean(false);
+    private final Runnable glanceWriter = new Runnable() {
+        @Override
+        public void run() {
+            isGlanceSnapshotStale.set(false);
+            writeGlanceSnapshot();
+        }
+    };
+
+    ActivityRepository(Context context, AppDatabase database) {
+        this.context = context;
+        this.database = database;
+        writer = database.getProfile().writeExecutor;
+        searcher = database.getProfile().readExecutor;
+        times = context.getSharedPreferences("times", Context.MODE_PRIVATE);
+        times.registerOnSharedPreferenceChangeListener(timesListener);
+        settings = context.getSharedPreferences("settings", Context.MODE_PRIVATE);
+        planId = settings.getLong(PLAN_ID_KEY, Plan.DEFAULT_ID);
+        activityDao = database.activityDao();
+        historyDao = database.historyDao();
+        planDao = database.planDao();
+        templateDao = database.templateDao();
+        window.postValue(new Window(0, PAGE_SIZE));
+        LiveData<PlanSnapshot> windowSnapshot = Transformations.switchMap(
+                window,
+                new Function<Window, LiveData<PlanSnapshot>>() {
+                    @Override
+                    public LiveData<PlanSnapshot> apply(final Window window) {
+                        return Transformations.map(
+                                activityDao.getSnapshotLive(planId, window.start, window.end),
+                                new Function<List<PlanRow>, PlanSnapshot>() {
+                                    @Override
+                                    public PlanSnapshot apply(List<PlanRow> rows) {
+                                        Metrics.end(Metrics.DAO_SNAPSHOT, snapshotStart);
+                                        snapshotStart = 0;
+                                        return new PlanSnapshot(rows, window.start);
+                                    }
+                                }
+                        );
+                    }
+                }
+        );
+        snapshot.addSource(
+                prefetchedSnapshot,
+                new Observer<PlanSnapshot>() {
+                    @Override
+                    public void onChanged(@Nullable PlanSnapshot planSnapshot) {
+                        snapshot.setValue(planSnapshot);
+                    }
+                }
+        );
+        snapshot.addSource(
+                windowSnapshot,
+                new Observer<PlanSnapshot>() {
+                    @Override
+                    public void onChanged(@Nullable PlanSnapshot planSnapshot) {
+                        snapshot.removeSource(prefetchedSnapshot);
+                        if (planSnapshot != null
+                                && planSnapshot.activities.isEmpty()
+                                && planSnapshot.offset > 0) {
+                            // Activities were deleted from under the window, so it's moved to
+                            // the plan's last page instead of showing nothing.
+                            int start = Math.max(0, planSnapshot.numberOfActivities - PAGE_SIZE);
+                            window.setValue(new Window(start, start + PAGE_SIZE));
+                            return;
+                        }
+                        snapshot.setValue(planSnapshot);
+                    }
+                }
+        );
+    }
+
+    public static synchronized ActivityRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ActivityRepository(
+                    context.getApplicationContext(),
+                    AppDatabase.getInstance(context)
+            );
+        }
+        return instance;
+    }
+
+    /**
+     * Opens the database (running any migrations) and reads the first page of the
+     * {@link #getSnapshot()}. This blocks, so it must be called off the main thread.
+     */
+    public void prefetch() {
+        long start = Metrics.start();
+        prefetchedSnapshot.postValue(
+                new PlanSnapshot(activityDao.getSnapshot(planId, 0, PAGE_SIZE), 0)
+        );
+        Metrics.end(Metrics.DAO_PREFETCH, start);
+        // The active plan's bounds may have been set before there were plans.
+        writer.execute(boundsWriter);
+    }
+
+    /**
+     * @param listener told on a background thread whenever the {@link GlanceSnapshot} has been
+     *                 rewritten
+     */
+    public void setGlanceListener(GlanceListener listener) {
+        glanceListener = listener;
+    }
+
+    /**
+     * Rewrites the {@link GlanceSnapshot} on the {@link #searcher}. It's called on the
+     * {@link #writer} after each commit. Commits made before a queued rewrite starts are covered by
+     * it, so a burst of them (e.g., checking off several activities) only rewrites it once or
+     * twice, and the snapshot is always as of the latest one.
+     */
+    private void scheduleGlanceSnapshot() {
+        if (!isGlanceSnapshotStale.getAndSet(true)) {
+            searcher.execute(glanceWriter);
+        }
+    }
+
+    /**
+     * Only called on the {@link #searcher} (see {@link #scheduleGlanceSnapshot()}).
+     */
+    private void writeGlanceSnapshot() {
+        long planId = this.planId;
+        long start = Metrics.start();
+        int incompleteDuration = activityDao.getIncompleteActivitiesDuration(planId);
+        List<Activity> activities =
+                activityDao.getNextIncompleteActivities(planId, GlanceSnapshot.MAX_ROWS);
+        Metrics.end(Metrics.DAO_GLANCE, start);
+        GlanceSnapshot snapshot = new GlanceSnapshot(
+                times.getInt("startHour", -1),
+                times.getInt("startMinute", -1),
+                times.getInt("endHour", -1),
+                times.getInt("endMinute", -1),
+                incompleteDuration,
+                activities
+        );
+        try {
+            snapshot.write(context);
+        } catch (IOException exception) {
+            Log.e(ActivityRepository.class.getSimpleName(), "Couldn't write snapshot", exception);
+            return;
+        }
+        GlanceListener listener = glanceListener;
+        if (listener != null) {
+            listener.onGlanceSnapshotWritten();
+        }
+    }
+
+    /**
+     * Every part of the UI which displays data from the database should read it from here so that
+     * each change to the database is read by a single query. The totals are kept in memory by the
+     * snapshot, so readers such as the clock ticking never query the database.
+     */
+    public LiveData<PlanSnapshot> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Slides the window of activities loaded into the {@link #getSnapshot()} by a
+     * {@link #PAGE_SIZE} if the row at the {@code index} is close to either end of it. The
+     * window grows until it has {@link #MAX_WINDOW_SIZE} activities, after which the ones
+     * farthest from the row are dropped as others are loaded. Nothing happens until the
+     * displayed activities are the current window's, so scrolling further while the next
+     * window loads doesn't slide it twice.
+     *
+     * @param offset           the {@link Activity#position} of the first activity displayed
+     * @param index            the index of a row being displayed in the loaded activities
+     * @param loadedCount      the number of activities currently displayed
+     * @param prefetchDistance how close to either end the row must be
+     */
+    public void slideWindowIfNeeded(int offset, int index, int loadedCount,
+                                    int prefetchDistance) {
+        Window current = window.getValue();
+        if (current == null || current.start != offset) {
+            return;
+        }
+        int size = current.end - current.start;
+        if (index >= loadedCount - prefetchDistance && loadedCount >= size) {
+            int end = current.end + PAGE_SIZE;
+            startSnapshotTimer();
+            window.setValue(new Window(Math.max(current.start, end - MAX_WINDOW_SIZE), end));
+        } else if (index < prefetchDistance && current.start > 0) {
+            int start = Math.max(0, current.start - PAGE_SIZE);
+            startSnapshotTimer();
+            window.setValue(new Window(start, Math.min(current.end, start + MAX_WINDOW_SIZE)));
+        }
+    }
+
+    /**
+     * Starts timing the next snapshot to be delivered unless it's already being timed. Nothing is
+     * timed while the snapshot isn't observed since it won't be read until it is.
+     */
+    private void startSnapshotTimer() {
+        if (snapshotStart == 0 && snapshot.hasActiveObservers()) {
+            snapshotStart = Metrics.start();
+        }
+    }
+
+    /**
+     * @return the {@link Plan#id} of the active plan
+     */
+    public long getPlanId() {
+        return planId;
+    }
+
+    /**
+     * Reads every plan, including any created before this was called.
+     *
+     * @param listener told the plans on the main thread
+     */
+    public void readPlans(final PlansListener listener) {
+        flush();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = Metrics.start();
+                final List<Plan> plans = planDao.getAll();
+                Metrics.end(Metrics.DAO_PLANS, start);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onPlansRead(plans);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Makes the {@code plan} the active one. Only a plan's ID is stored with its activities, so
+     * switching loads the plan's first page through its index rather than rewriting any rows.
+     * The plan's bounds become the ones in the {@code times} {@link SharedPreferences}.
+     */
+    public void switchPlan(Plan plan) {
+        planId = plan.id;
+        settings.edit().putLong(PLAN_ID_KEY, plan.id).apply();
+        times
+                .edit()
+                .putInt("startHour", plan.startHour)
+                .putInt("startMinute", plan.startMinute)
+                .putInt("endHour", plan.endHour)
+                .putInt("endMinute", plan.endMinute)
+                .apply();
+        startSnapshotTimer();
+        window.setValue(new Window(0, PAGE_SIZE));
+        // The bounds may be unchanged, in which case the listener isn't told.
+        writer.execute(boundsWriter);
+    }
+
+    /**
+     * Creates a plan with the active plan's bounds and no activities, and then switches to it.
+     *
+     * @param listener told on the main thread once it's been switched to
+     */
+    public void createPlan(String name, final PlanListener listener) {
+        final Plan plan = new Plan(
+                name,
+                times.getInt("startHour", -1),
+                times.getInt("startMinute", -1),
+                times.getInt("endHour", -1),
+                times.getInt("endMinute", -1)
+        );
+        enqueue(new Mutation(null, false) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                plan.id = planDao.insertPlan(plan);
+            }
+
+            @Override
+            void onCommitted() {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        switchPlan(plan);
+                        listener.onPlanSwitched();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Deletes the plan and its activities. Since deleted activities can no longer be restored
+     * into it, nothing made before this can be {@link #undo(long)}ne.
+     *
+     * @param planId the {@link Plan#id} of a plan which isn't the active one
+     */
+    public void deletePlan(final long planId) {
+        if (planId == this.planId) {
+            throw new IllegalArgumentException("The active plan can't be deleted");
+        }
+        enqueue(new Mutation(null, false) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                planDao.deletePlan(planId);
+            }
+
+            @Override
+            void onCommitted() {
+                journal.clear();
+            }
+        });
+    }
+
+    /**
+     * Searches the active plan's activities' tasks for words starting with each word of the
+     * {@code text}, cancelling the previous search if it's still running.
+     *
+     * @param listener told the matching activities on the main thread, unless another search is
+     *                 started or {@link #cancelSearch()} is called first
+     * @see ActivityDao#search(long, String, CancellationSignal)
+     */
+    public void search(final String text, final SearchListener listener) {
+        cancelSearch();
+        final CancellationSignal signal = new CancellationSignal();
+        searchSignal = signal;
+        final int generation = searchGeneration;
+        final long planId = this.planId;
+        searcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (signal.isCanceled()) {
+                    return;
+                }
+                final List<Activity> activities;
+                long start = Metrics.start();
+                try {
+                    activities = activityDao.search(planId, text, signal);
+                } catch (OperationCanceledException exception) {
+                    return;
+                }
+                Metrics.end(Metrics.DAO_SEARCH, start);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == searchGeneration) {
+                            listener.onSearched(activities);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancels the latest search, whose results won't be delivered.
+     */
+    public void cancelSearch() {
+        searchGeneration++;
+        if (searchSignal != null) {
+            searchSignal.cancel();
+            searchSignal = null;
+        }
+    }
+
+    /**
+     * Inserts the activity after every other activity of the active plan. Its
+     * {@link Activity#position} and {@link Activity#planId} are ignored.
+     */
+    public void append(Activity activity) {
+        Activity appended = copy(activity);
+        appended.planId = planId;
+        enqueue(new Mutation(appended, false) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                row.position = activityDao.getNumberOfActivities(row.planId);
+                activityDao.insertActivity(row);
+            }
+        });
+    }
+
+    /**
+     * Appends the activity like {@link #append(Activity)}, and has it recur on the {@code days}
+     * from the next one on (see {@link #materializeTemplates(long, MaterializeListener)}).
+     *
+     * @param days the {@link Template#days} it recurs on
+     */
+    public void appendRecurring(Activity activity, int days) {
+        append(activity);
+        final Template template = new Template(planId, activity.task, activity.duration, days);
+        final int today = getDay(System.currentTimeMillis());
+        enqueue(new Mutation(null, false) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                templateDao.insertTemplate(template, today);
+            }
+        });
+    }
+
+    /**
+     * Appends the activities recurring on the day it is at the time {@code now} to their plans
+     * in a single transaction, skipping any already materialized on that day.
+     *
+     * @param now      milliseconds since the epoch, which is passed in so that the day can be
+     *                 chosen (e.g., by a fake clock)
+     * @param listener told the number of activities appended on the main thread, or {@code null}
+     * @see TemplateDao#materialize(int, int)
+     */
+    public void materializeTemplates(final long now, @Nullable final MaterializeListener listener) {
+        flush();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTimeInMillis(now);
+                long start = Metrics.start();
+                final int count = templateDao.materialize(
+                        getDay(now),
+                        Template.getDayBit(calendar.get(Calendar.DAY_OF_WEEK))
+                );
+                Metrics.end(Metrics.DAO_WRITE, start);
+                if (count > 0) {
+                    scheduleGlanceSnapshot();
+                }
+                if (listener != null) {
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onMaterialized(count);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the active plan's recurring activities, including any created before this was
+     * called.
+     *
+     * @param listener told the templates on the main thread
+     */
+    public void readTemplates(final TemplatesListener listener) {
+        flush();
+        final long planId = this.planId;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = Metrics.start();
+                final List<Template> templates = templateDao.getAll(planId);
+                Metrics.end(Metrics.DAO_PLANS, start);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onTemplatesRead(templates);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops the template from recurring, keeping the activities it has already materialized.
+     */
+    public void deleteTemplate(final long templateId) {
+        enqueue(new Mutation(null, false) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                templateDao.deleteTemplate(templateId);
+            }
+        });
+    }
+
+    public void update(Activity activity) {
+        enqueue(new Mutation(copy(activity), true) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                activityDao.updateActivity(row);
+            }
+        });
+    }
+
+    /**
+     * Deletes the activity and renumbers the ones after it.
+     *
+     * @return the token to {@link #undo(long)} the deletion with
+     */
+    public long delete(Activity activity) {
+        final long token = nextUndoToken++;
+        enqueue(new Mutation(copy(activity), false) {
+            private boolean isDeleted;
+
+            @Override
+            void apply(ActivityDao activityDao) {
+                isDeleted = activityDao.deleteAndRenumber(row);
+            }
+
+            @Override
+            void onCommitted() {
+                if (isDeleted) {
+                    journal.record(new MutationJournal.Entry(token, 1) {
+                        @Override
+                        void undo(AppDatabase database) {
+                            database.activityDao().insertAndRenumber(row);
+                        }
+                    });
+                }
+            }
+        });
+        return token;
+    }
+
+    /**
+     * @see ActivityDao#moveActivity(Activity, int, int)
+     */
+    public void move(Activity activity, final int from, final int to) {
+        enqueue(new Mutation(copy(activity), false) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                activityDao.moveActivity(row, from, to);
+            }
+        });
+    }
+
+    /**
+     * Deletes every activity of the active plan.
+     */
+    public void deleteAll() {
+        final long planId = this.planId;
+        enqueue(new Mutation(null, false) {
+            @Override
+            void apply(ActivityDao activityDao) {
+                activityDao.deleteAll(planId);
+            }
+        });
+    }
+
+    /**
+     * Archives the active plan into the history and then deletes its activities. Undoing it
+     * restores the activities from the history rather than memory.
+     *
+     * @param startMinutes minutes from midnight to the start of the day, or {@code -1} if it isn't
+     *                     set
+     * @param endMinutes   minutes from midnight to the end of the day, or {@code -1} if it isn't
+     *                     set
+     * @return the token to {@link #undo(long)} the reset with
+     */
+    public long archiveAndDeleteAll(int startMinutes, int endMinutes) {
+        final long token = nextUndoToken++;
+        long now = System.currentTimeMillis();
+        final Archive archive = new Archive(now, getDay(now), startMinutes, endMinutes);
+        final long planId = this.planId;
+        enqueue(new Mutation(null, false) {
+            private long archiveId;
+
+            @Override
+            void apply(ActivityDao activityDao) {
+                archiveId = historyDao.archiveAndDeleteActivities(archive, planId);
+            }
+
+            @Override
+            void onCommitted() {
+                final long archiveId = this.archiveId;
+                if (archiveId != -1) {
+                    journal.record(new MutationJournal.Entry(token, 0) {
+                        @Override
+                        void undo(AppDatabase database) {
+                            database.historyDao().restoreArchive(
+                                    archiveId,
+                                    planId,
+                                    System.currentTimeMillis()
+                            );
+                        }
+                    });
+                }
+            }
+        });
+        return token;
+    }
+
+    /**
+     * Undoes the deletion or reset the {@code token} was returned for, if it hasn't been undone
+     * yet and is still in the {@link MutationJournal}. Otherwise, nothing happens. It's queued
+     * like any other mutation, so it's applied after the mutation it undoes. Since the inverse is
+     * only recorded once that mutation has been committed, undoing it in the same turn of the
+     * main thread's looper does nothing.
+     */
+    public void undo(final long token) {
+        enqueue(new Mutation(null, false) {
+            private MutationJournal.Entry entry;
+
+            @Override
+            void apply(ActivityDao activityDao) {
+                entry = journal.remove(token);
+                if (entry != null) {
+                    entry.undo(database);
+                }
+            }
+
+            @Override
+            void onRolledBack() {
+                if (entry != null) {
+                    journal.record(entry);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads how many minutes were planned and completed over the last week and month, including
+     * any plan archived before this was called.
+     *
+     * @param listener told the totals on the main thread
+     */
+    public void readHistory(final HistoryListener listener) {
+        flush();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = Metrics.start();
+                int today = getDay(System.currentTimeMillis());
+                final RollupTotals week = historyDao.getRollupTotals(today - 6);
+                final RollupTotals month = historyDao.getRollupTotals(today - 29);
+                Metrics.end(Metrics.DAO_HISTORY, start);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onHistoryRead(week, month);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return the local day the {@code millis} since the epoch are on, as days since the epoch
+     */
+    public static int getDay(long millis) {
+        return (int) ((millis + TimeZone.getDefault().getOffset(millis)) / MILLIS_PER_DAY);
+    }
+
+    /**
+     * Writes every activity of the active plan to the {@code uri} as CSV, reading them through a
+     * cursor so that they aren't all in memory at once. Mutations made before this is called are
+     * exported.
+     *
+     * @param listener told on the main thread once the export has finished or failed
+     */
+    public void exportTo(final ContentResolver resolver, final Uri uri,
+                         TransferListener listener) {
+        final long planId = this.planId;
+        transfer(
+                new Transfer() {
+                    @Override
+                    public int run() throws IOException {
+                        OutputStream stream = resolver.openOutputStream(uri);
+                        if (stream == null) {
+                            throw new IOException("Couldn't open " + uri);
+                        }
+                        try (Cursor cursor = activityDao.getAllCursor(planId);
+                             Writer writer = new BufferedWriter(
+                                     new OutputStreamWriter(stream, UTF_8))) {
+                            return ActivityCsv.write(cursor, writer);
+                        }
+                    }
+                },
+                listener
+        );
+    }
+
+    /**
+     * Appends the activities in the CSV at the {@code uri} after the active plan's. The file is
+     * parsed as it's read, and the activities are inserted {@link #IMPORT_BATCH_SIZE} at a time
+     * so that the import uses the same memory regardless of the file's size. Every batch is
+     * inserted in a single transaction, so if the file can't be read partway through, nothing is
+     * imported. Rows which aren't valid activities (e.g., their duration isn't one to sixty
+     * minutes) are skipped.
+     *
+     * @param listener told on the main thread once the import has finished or failed
+     */
+    public void importFrom(final ContentResolver resolver, final Uri uri,
+                           TransferListener listener) {
+        final long planId = this.planId;
+        transfer(
+                new Transfer() {
+                    @Override
+                    public int run() throws IOException {
+                        InputStream stream = resolver.openInputStream(uri);
+                        if (stream == null) {
+                            throw new IOException("Couldn't open " + uri);
+                        }
+                        try (Reader reader = new BufferedReader(
+                                new InputStreamReader(stream, UTF_8))) {
+                            return importActivities(
+                                    new ActivityCsv.RecordReader(reader),
+                                    planId
+                            );
+                        }
+                    }
+                },
+                listener
+        );
+    }
+
+    /**
+     * Must be called on the {@link #writer}.
+     *
+     * @return the number of activities imported
+     */
+    private int importActivities(ActivityCsv.RecordReader reader, long planId)
+            throws IOException {
+        database.beginTransaction();
+        try {
+            int first = activityDao.getNumberOfActivities(planId);
+            int position = first;
+            List<Activity> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            List<String> fields;
+            do {
+                fields = reader.read();
+                Activity activity = fields == null ? null : ActivityCsv.parse(fields);
+                if (activity != null) {
+                    activity.planId = planId;
+                    activity.position = position++;
+                    batch.add(activity);
+                }
+                if (batch.size() == IMPORT_BATCH_SIZE || (fields == null && !batch.isEmpty())) {
+                    activityDao.insertActivities(batch);
+                    batch.clear();
+                }
+            } while (fields != null);
+            database.setTransactionSuccessful();
+            return position - first;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Backs up the changes to every plan's activities made since the last backup (see
+     * {@link ChangeLog}) after every mutation queued so far, unless the last one was less than
+     * {@link #BACKUP_INTERVAL_MILLIS} ago. Failures are only logged since the changes are kept
+     * until a backup succeeds.
+     */
+    public void backUp() {
+        flush();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                long now = SystemClock.elapsedRealtime();
+                if (now - lastBackupRealtime < BACKUP_INTERVAL_MILLIS) {
+                    return;
+                }
+                long start = Metrics.start();
+                try {
+                    ChangeLog.backUp(database, getBackupDirectory());
+                    Metrics.end(Metrics.DAO_BACKUP, start);
+                    lastBackupRealtime = now;
+                } catch (IOException | RuntimeException exception) {
+                    Log.e(ActivityRepository.class.getSimpleName(), "Backup failed", exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces every plan's activities with the ones last {@link #backUp()}ed. Since the replaced
+     * activities can't be restored, nothing made before this can be {@link #undo(long)}ne.
+     */
+    public void restoreBackup(TransferListener listener) {
+        transfer(
+                new Transfer() {
+                    @Override
+                    public int run() throws IOException {
+                        int count = ChangeLog.restore(database, getBackupDirectory());
+                        journal.clear();
+                        return count;
+                    }
+                },
+                listener
+        );
+    }
+
+    private File getBackupDirectory() {
+        return new File(context.getFilesDir(), "backup");
+    }
+
+    /**
+     * Runs the {@code transfer} on the {@link #writer} after every mutation queued so far.
+     */
+    private void transfer(final Transfer transfer, final TransferListener listener) {
+        flush();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                int count;
+                long start = Metrics.start();
+                try {
+                    count = transfer.run();
+                    Metrics.end(Metrics.DAO_TRANSFER, start);
+                } catch (IOException | RuntimeException exception) {
+                    Log.e(ActivityRepository.class.getSimpleName(), "Transfer failed", exception);
+                    count = -1;
+                }
+                scheduleGlanceSnapshot();
+                final int result = count;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result == -1) {
+                            listener.onTransferFailed();
+                        } else {
+                            listener.onTransferred(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Queues the mutation. If it and the previously queued mutation are both updates of the same
+     * activity, only the latest one is kept.
+     */
+    private void enqueue(Mutation mutation) {
+        synchronized (pending) {
+            int last = pending.size() - 1;
+            if (last >= 0 && pending.get(last).isSupersededBy(mutation)) {
+                pending.set(last, mutation);
+            } else {
+                pending.add(mutation);
+            }
+            if (!isFlushScheduled) {
+                isFlushScheduled = true;
+                handler.post(flusher);
+            }
+        }
+    }
+
+    /**
+     * Hands every pending mutation to the {@link #writer} as a single transaction. If it can't be
+     * committed (e.g., the disk is full), none of the batch is, and the {@link #getSnapshot()} is
+     * read again so that the UI shows what actually is in the database.
+     */
+    private void flush() {
+        final List<Mutation> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            isFlushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = Metrics.start();
+                try {
+                    database.runInTransaction(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (Mutation mutation : batch) {
+                                mutation.apply(activityDao);
+                            }
+                        }
+                    });
+                } catch (RuntimeException exception) {
+                    Log.e(ActivityRepository.class.getSimpleName(), "Write failed", exception);
+                    for (Mutation mutation : batch) {
+                        mutation.onRolledBack();
+                    }
+                    handler.post(snapshotReloader);
+                    return;
+                }
+                Metrics.end(Metrics.DAO_WRITE, start);
+                for (Mutation mutation : batch) {
+                    mutation.onCommitted();
+                }
+                scheduleGlanceSnapshot();
+            }
+        });
+    }
+
+    /**
+     * Since the UI keeps modifying the {@link Activity}s it displays (e.g., while dragging), each
+     * mutation works on its own copy taken when it was queued.
+     */
+    private static Activity copy(Activity activity) {
+        Activity copy = new Activity(
+                activity.task,
+                activity.duration,
+                activity.position,
+                activity.isCompleted
+        );
+        copy.id = activity.id;
+        copy.planId = activity.planId;
+        return copy;
+    }
+
+    /**
+     * Told the outcome of an export or import.
+     */
+    public interface TransferListener {
+        /**
+         * @param count the number of activities exported or imported
+         */
+        void onTransferred(int count);
+
+        void onTransferFailed();
+    }
+
+    public interface GlanceListener {
+        void onGlanceSnapshotWritten();
+    }
+
+    public interface PlansListener {
+        void onPlansRead(List<Plan> plans);
+    }
+
+    public interface PlanListener {
+        void onPlanSwitched();
+    }
+
+    public interface MaterializeListener {
+        /**
+         * @param count the number of activities appended
+         */
+        void onMaterialized(int count);
+    }
+
+    public interface TemplatesListener {
+        void onTemplatesRead(List<Template> templates);
+    }
+
+    public interface SearchListener {
+        void onSearched(List<Activity> activities);
+    }
+
+    public interface HistoryListener {
+        /**
+         * @param week  the totals of the last seven days, including today
+         * @param month the totals of the last thirty days, including today
+         */
+        void onHistoryRead(RollupTotals week, RollupTotals month);
+    }
+
+    private interface Transfer {
+        /**
+         * @return the number of activities transferred
+         */
+        int run() throws IOException;
+    }
+
+    private abstract static class Mutation {
+        /**
+         * The activity being written, or {@code null} if the mutation isn't about a single
+         * activity.
+         */
+        final Activity row;
+        private final boolean isUpdate;
+
+        Mutation(Activity row, boolean isUpdate) {
+            this.row = row;
+            this.isUpdate = isUpdate;
+        }
+
+        /**
+         * Called in the batch's transaction, so it mustn't have effects outside the database.
+         * Those belong in {@link #onCommitted()}.
+         */
+        abstract void apply(ActivityDao activityDao);
+
+        /**
+         * Called on the {@link #writer} once the batch the mutation was applied in has been
+         * committed.
+         */
+        void onCommitted() {
+        }
+
+        /**
+         * Called on the {@link #writer} if the batch the mutation was applied in couldn't be
+         * committed, so that anything it took from outside the database can be put back.
+         */
+        void onRolledBack() {
+        }
+
+        /**
+         * @return whether applying the {@code next} mutation makes applying this one pointless
+         */
+        boolean isSupersededBy(Mutation next) {
+            return isUpdate && next.isUpdate && row.id == next.row.id;
+        }
+    }
+
+    /**
+     * A range of positions, from the {@code start} up to the {@code end}.
+     */
+    private static class Window {
+        final int start;
+        final int end;
+
+        Window(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
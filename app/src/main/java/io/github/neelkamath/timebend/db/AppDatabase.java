@@ -1,27 +1,99 @@
 package io.github.neelkamath.timebend.db;
 
+import android.arch.persistence.db.SupportSQLiteDatabase;
 import android.arch.persistence.room.Database;
 import android.arch.persistence.room.Room;
 import android.arch.persistence.room.RoomDatabase;
 import android.content.Context;
+import android.support.annotation.NonNull;
 
-@Database(entities = {Activity.class}, version = 1)
+import java.io.File;
+
+@Database(
+        entities = {
+                Activity.class,
+                Archive.class,
+                HistoryEntry.class,
+                DailyRollup.class,
+                Plan.class,
+                Template.class,
+                TemplateInstance.class,
+                Change.class,
+                Restoration.class
+        },
+        version = 8
+)
 public abstract class AppDatabase extends RoomDatabase {
     private static AppDatabase instance;
+    private StorageProfile profile;
 
+    /**
+     * @return the app's database, which uses {@link StorageProfile#production()}
+     */
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
-            instance = Room
-                    .databaseBuilder(
-                            context.getApplicationContext(),
-                            AppDatabase.class,
-                            "production"
-                    )
-                    .build();
+            instance = create(context, StorageProfile.production());
         }
         return instance;
     }
 
+    /**
+     * Builds a database stored and configured according to the {@code profile}. Unlike
+     * {@link #getInstance(Context)}, this creates a new database every time it's called (e.g., for
+     * tests and benchmarks).
+     */
+    public static AppDatabase create(Context context, final StorageProfile profile) {
+        Context appContext = context.getApplicationContext();
+        Builder<AppDatabase> builder;
+        switch (profile.location) {
+            case MEMORY:
+                builder = Room.inMemoryDatabaseBuilder(appContext, AppDatabase.class);
+                break;
+            case TEMPORARY_FILE:
+                File file = new File(appContext.getCacheDir(), profile.name);
+                appContext.deleteDatabase(file.getPath());
+                builder = Room.databaseBuilder(appContext, AppDatabase.class, file.getPath());
+                break;
+            default:
+                builder = Room.databaseBuilder(appContext, AppDatabase.class, profile.name);
+        }
+        if (profile.openHelperFactory != null) {
+            builder.openHelperFactory(profile.openHelperFactory);
+        }
+        AppDatabase database = builder
+                .setJournalMode(profile.journalMode)
+                .addMigrations(Migrations.ALL)
+                .addCallback(new Callback() {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        Migrations.createActivitiesFts(db);
+                        Migrations.createDefaultPlan(db);
+                        Migrations.createChangeTriggers(db);
+                    }
+
+                    @Override
+                    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                        // This runs on the primary connection (see StorageProfile.Synchronous).
+                        db.query("PRAGMA synchronous = " + profile.synchronous.name()).close();
+                    }
+                })
+                .build();
+        database.profile = profile;
+        return database;
+    }
+
+    StorageProfile getProfile() {
+        return profile;
+    }
+
     public abstract ActivityDao activityDao();
+
+    public abstract HistoryDao historyDao();
+
+    public abstract PlanDao planDao();
+
+    public abstract TemplateDao templateDao();
+
+    public abstract ChangeDao changeDao();
 }
 
@@ -0,0 +1,42 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * A plan which was archived when the day was reset. Its activities are {@link HistoryEntry}s.
+ */
+@Entity(tableName = "archives")
+public class Archive {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    /**
+     * Milliseconds since the epoch.
+     */
+    @ColumnInfo(name = "archived_at")
+    public long archivedAt;
+    /**
+     * The local day it was archived on as days since the epoch.
+     *
+     * @see ActivityRepository#getDay(long)
+     */
+    public int day;
+    /**
+     * Minutes from midnight to the start of the day, or {@code -1} if it wasn't set.
+     */
+    @ColumnInfo(name = "start_minutes")
+    public int startMinutes;
+    /**
+     * Minutes from midnight to the end of the day, or {@code -1} if it wasn't set.
+     */
+    @ColumnInfo(name = "end_minutes")
+    public int endMinutes;
+
+    public Archive(long archivedAt, int day, int startMinutes, int endMinutes) {
+        this.archivedAt = archivedAt;
+        this.day = day;
+        this.startMinutes = startMinutes;
+        this.endMinutes = endMinutes;
+    }
+}
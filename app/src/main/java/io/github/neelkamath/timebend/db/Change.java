@@ -0,0 +1,45 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * A write to {@code activities} which hasn't been backed up yet. Changes are only ever written by
+ * the triggers created by {@link Migrations#createChangeTriggers}, and each one holds the whole
+ * row so that replaying an activity's latest change is enough to restore it (see
+ * {@link ChangeLog}). Hence only the latest change of each activity is kept, so the table never
+ * has more rows than the number of activities changed since the last backup.
+ */
+@Entity(tableName = "changes", indices = @Index(value = "activity_id", unique = true))
+public class Change {
+    static final int INSERT = 0;
+    static final int UPDATE = 1;
+    static final int DELETE = 2;
+    /**
+     * Increases with every change (including one replacing an activity's previous change), so
+     * changes are replayed in order of it.
+     */
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    /**
+     * The changed activity's {@link Activity#id}.
+     */
+    @ColumnInfo(name = "activity_id")
+    public int activityId;
+    /**
+     * {@link #INSERT}, {@link #UPDATE} or {@link #DELETE}.
+     */
+    public int operation;
+    /**
+     * The activity's columns after the change, or before it if it was a {@link #DELETE}.
+     */
+    @ColumnInfo(name = "plan_id")
+    public long planId;
+    public int position;
+    public String task;
+    public int duration;
+    @ColumnInfo(name = "is_completed")
+    public boolean isCompleted;
+}
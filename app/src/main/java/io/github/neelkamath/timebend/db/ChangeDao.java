@@ -0,0 +1,48 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Query;
+import android.database.Cursor;
+
+/**
+ * Reads and trims the {@link Change}s for {@link ChangeLog}, which runs these in its own
+ * transactions.
+ */
+@Dao
+abstract class ChangeDao {
+    /**
+     * @return the {@link Change#id} of the latest change, or {@code 0} if there are none
+     */
+    @Query("SELECT COALESCE(MAX(id), 0) FROM changes")
+    abstract long getLastId();
+
+    /**
+     * Reads the changes up to and including the one with the {@code lastId} in order. The caller
+     * must close the cursor.
+     */
+    @Query("SELECT * FROM changes WHERE id <= :lastId ORDER BY id")
+    abstract Cursor getCursorUpTo(long lastId);
+
+    /**
+     * Deletes the changes up to and including the one with the {@code lastId}, leaving any
+     * logged after it.
+     */
+    @Query("DELETE FROM changes WHERE id <= :lastId")
+    abstract void deleteUpTo(long lastId);
+
+    @Query("DELETE FROM changes")
+    abstract void deleteAll();
+
+    /**
+     * Reads every activity of every plan, as is needed for a base snapshot. The caller must close
+     * the cursor.
+     */
+    @Query("SELECT * FROM activities ORDER BY id")
+    abstract Cursor getActivitiesCursor();
+
+    @Query("SELECT COUNT(*) FROM activities")
+    abstract int getNumberOfActivities();
+
+    @Query("DELETE FROM activities")
+    abstract void deleteActivities();
+}
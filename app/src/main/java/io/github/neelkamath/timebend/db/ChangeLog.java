@@ -0,0 +1,349 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteStatement;
+import android.database.Cursor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incremental backups of {@code activities} to a directory. A backup is a base snapshot followed
+ * by segments, each holding the {@link Change}s logged since the previous file was written. Since
+ * the changes are deleted once they're written, backing up costs as much as the number of changes
+ * made since the last backup rather than the number of activities.
+ * <p>
+ * Every file is numbered by the order it was written in, and is CSV with the header
+ * {@link #HEADER} (where the base snapshot's rows are all inserts). Once there are
+ * {@link #MAX_SEGMENTS} segments after the latest base snapshot, a new base snapshot is written
+ * and the older files are deleted, so that restoring never replays more than that many files.
+ */
+final class ChangeLog {
+    static final String HEADER =
+            "operation,activity_id,plan_id,position,task,duration,is_completed";
+    static final int MAX_SEGMENTS = 50;
+    private static final String BASE_PREFIX = "base-";
+    private static final String SEGMENT_PREFIX = "changes-";
+    private static final String SUFFIX = ".csv";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ChangeLog() {
+    }
+
+    /**
+     * Writes the changes logged since the last backup to a new file in the {@code directory}, or
+     * a base snapshot if there isn't one yet (or there are too many segments), and then deletes
+     * the changes it wrote once the file has been synced to disk.
+     * <p>
+     * Writing and syncing the file takes far longer than any query, so it isn't done in a
+     * transaction (which would block every other write until the disk is done). Instead, the
+     * latest change's {@link Change#id} is read first, and only the changes up to it are written
+     * and then deleted. A change logged while the file is being written has a higher ID, so it's
+     * kept for the next backup. Since a change holds the activity's whole row, replaying it after
+     * a base snapshot which already has (or hasn't yet got) the write is correct either way.
+     *
+     * @return the number of changes (or activities, for a base snapshot) written
+     */
+    static int backUp(AppDatabase database, File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create " + directory);
+        }
+        Listing listing = new Listing(directory);
+        int number = listing.lastNumber + 1;
+        boolean isBase = listing.base == -1 || listing.segments.size() >= MAX_SEGMENTS;
+        ChangeDao changeDao = database.changeDao();
+        long lastId = changeDao.getLastId();
+        int count;
+        if (isBase) {
+            try (Cursor cursor = changeDao.getActivitiesCursor()) {
+                count = write(cursor, new File(directory, BASE_PREFIX + number + SUFFIX));
+            }
+        } else {
+            if (lastId == 0) {
+                return 0;
+            }
+            try (Cursor cursor = changeDao.getCursorUpTo(lastId)) {
+                count = write(cursor, new File(directory, SEGMENT_PREFIX + number + SUFFIX));
+            }
+        }
+        changeDao.deleteUpTo(lastId);
+        if (isBase) {
+            listing.deleteBefore(number);
+        }
+        return count;
+    }
+
+    /**
+     * Replaces every activity of every plan with the ones backed up in the {@code directory} in a
+     * single transaction, by loading the latest base snapshot and replaying the segments after it
+     * in order. Since only activities are backed up, a plan is created for any restored activity
+     * whose plan doesn't exist (e.g., it was deleted after the base snapshot, or this is a new
+     * installation) before the activity is inserted. Any such plan which is left without
+     * activities once every change has been replayed is deleted again.
+     *
+     * @return the number of activities restored
+     * @throws IOException if there's no backup in the {@code directory} or it can't be read, in
+     *                     which case nothing is changed
+     */
+    static int restore(AppDatabase database, File directory) throws IOException {
+        Listing listing = new Listing(directory);
+        if (listing.base == -1) {
+            throw new IOException("There's no backup in " + directory);
+        }
+        ChangeDao changeDao = database.changeDao();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        database.beginTransaction();
+        try {
+            changeDao.deleteActivities();
+            Replayer replayer = new Replayer(db);
+            replayer.replay(new File(directory, BASE_PREFIX + listing.base + SUFFIX));
+            for (int segment : listing.segments) {
+                replayer.replay(new File(directory, SEGMENT_PREFIX + segment + SUFFIX));
+            }
+            replayer.deleteEmptyCreatedPlans();
+            // The restored activities are already backed up.
+            changeDao.deleteAll();
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return changeDao.getNumberOfActivities();
+    }
+
+    /**
+     * Writes every row of the {@code cursor}, which must have either the {@code changes} or the
+     * {@code activities} table's columns, to the {@code file}. It's written to a temporary file
+     * which replaces the {@code file} once it's been synced, so a partial file is never left.
+     *
+     * @return the number of rows written
+     */
+    private static int write(Cursor cursor, File file) throws IOException {
+        int operationColumn = cursor.getColumnIndex("operation");
+        boolean isSnapshot = operationColumn == -1;
+        int activityIdColumn = cursor.getColumnIndexOrThrow(isSnapshot ? "id" : "activity_id");
+        int planIdColumn = cursor.getColumnIndexOrThrow("plan_id");
+        int positionColumn = cursor.getColumnIndexOrThrow("position");
+        int taskColumn = cursor.getColumnIndexOrThrow("task");
+        int durationColumn = cursor.getColumnIndexOrThrow("duration");
+        int isCompletedColumn = cursor.getColumnIndexOrThrow("is_completed");
+        File temporary = new File(file.getPath() + ".tmp");
+        int count = 0;
+        try (FileOutputStream stream = new FileOutputStream(temporary)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stream, UTF_8));
+            writer.write(HEADER);
+            writer.write('\n');
+            while (cursor.moveToNext()) {
+                int operation = isSnapshot ? Change.INSERT : cursor.getInt(operationColumn);
+                writer.write(Integer.toString(operation));
+                writer.write(',');
+                writer.write(Integer.toString(cursor.getInt(activityIdColumn)));
+                writer.write(',');
+                writer.write(Long.toString(cursor.getLong(planIdColumn)));
+                writer.write(',');
+                writer.write(Integer.toString(cursor.getInt(positionColumn)));
+                writer.write(',');
+                ActivityCsv.writeField(writer, cursor.getString(taskColumn));
+                writer.write(',');
+                writer.write(Integer.toString(cursor.getInt(durationColumn)));
+                writer.write(',');
+                writer.write(cursor.getInt(isCompletedColumn) == 0 ? "0" : "1");
+                writer.write('\n');
+                count++;
+            }
+            writer.flush();
+            stream.getFD().sync();
+        }
+        if (!temporary.renameTo(file)) {
+            throw new IOException("Couldn't replace " + file);
+        }
+        return count;
+    }
+
+    /**
+     * Applies backed up changes to {@code activities} using precompiled statements. Each change
+     * replaces the whole row (or deletes it), so replaying a change which has already been applied
+     * changes nothing.
+     */
+    private static class Replayer {
+        private static final List<String> HEADER_FIELDS = Arrays.asList(HEADER.split(","));
+        private final SupportSQLiteStatement delete;
+        private final SupportSQLiteStatement insert;
+        private final SupportSQLiteStatement insertPlan;
+        private final SupportSQLiteStatement deleteEmptyPlan;
+        /**
+         * The plans {@link #insertPlan} created.
+         */
+        private final Set<Long> createdPlanIds = new HashSet<>();
+
+        Replayer(SupportSQLiteDatabase database) {
+            delete = database.compileStatement("DELETE FROM activities WHERE id = ?");
+            insert = database.compileStatement(
+                    "INSERT INTO activities "
+                            + "(id, plan_id, position, task, duration, is_completed) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)"
+            );
+            insertPlan = database.compileStatement(
+                    "INSERT OR IGNORE INTO plans "
+                            + "(id, name, start_hour, start_minute, end_hour, end_minute) "
+                            + "VALUES (?, 'Restored', -1, -1, -1, -1)"
+            );
+            deleteEmptyPlan = database.compileStatement(
+                    "DELETE FROM plans WHERE id = ?1 "
+                            + "AND NOT EXISTS (SELECT 1 FROM activities WHERE plan_id = ?1)"
+            );
+        }
+
+        /**
+         * Deletes the plans which were only created for activities which were deleted later on.
+         */
+        void deleteEmptyCreatedPlans() {
+            for (long planId : createdPlanIds) {
+                deleteEmptyPlan.bindLong(1, planId);
+                deleteEmptyPlan.executeUpdateDelete();
+            }
+        }
+
+        /**
+         * @throws IOException if the {@code file} can't be read or isn't a backup file
+         */
+        void replay(File file) throws IOException {
+            try (Reader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), UTF_8))) {
+                ActivityCsv.RecordReader records = new ActivityCsv.RecordReader(reader);
+                List<String> fields = records.read();
+                if (!HEADER_FIELDS.equals(fields)) {
+                    throw new IOException(file + " isn't a backup");
+                }
+                while ((fields = records.read()) != null) {
+                    if (fields.size() != HEADER_FIELDS.size()) {
+                        throw new IOException("Malformed change in " + file);
+                    }
+                    try {
+                        apply(fields);
+                    } catch (NumberFormatException exception) {
+                        throw new IOException("Malformed change in " + file, exception);
+                    }
+                }
+            }
+        }
+
+        private void apply(List<String> fields) {
+            int activityId = Integer.parseInt(fields.get(1));
+            // Deleting first rather than replacing keeps the activities' triggers firing.
+            delete.bindLong(1, activityId);
+            delete.executeUpdateDelete();
+            if (Integer.parseInt(fields.get(0)) == Change.DELETE) {
+                return;
+            }
+            long planId = Long.parseLong(fields.get(2));
+            insertPlan.bindLong(1, planId);
+            if (insertPlan.executeInsert() != -1) {
+                createdPlanIds.add(planId);
+            }
+            insert.bindLong(1, activityId);
+            insert.bindLong(2, planId);
+            insert.bindLong(3, Integer.parseInt(fields.get(3)));
+            insert.bindString(4, fields.get(4));
+            insert.bindLong(5, Integer.parseInt(fields.get(5)));
+            insert.bindLong(6, fields.get(6).equals("1") ? 1 : 0);
+            insert.executeInsert();
+        }
+    }
+
+    /**
+     * The numbers of the backup files in a directory.
+     */
+    private static class Listing {
+        private final File directory;
+        /**
+         * The number of the latest base snapshot, or {@code -1} if there isn't one.
+         */
+        final int base;
+        /**
+         * The numbers of the segments after the {@link #base}, in order.
+         */
+        final List<Integer> segments = new ArrayList<>();
+        /**
+         * The highest number of any file, or {@code -1} if there are none.
+         */
+        final int lastNumber;
+
+        Listing(File directory) {
+            this.directory = directory;
+            String[] names = directory.list();
+            if (names == null) {
+                names = new String[0];
+            }
+            int base = -1;
+            int lastNumber = -1;
+            for (String name : names) {
+                int number = getNumber(name, BASE_PREFIX);
+                base = Math.max(base, number);
+                lastNumber = Math.max(lastNumber, number);
+                lastNumber = Math.max(lastNumber, getNumber(name, SEGMENT_PREFIX));
+            }
+            for (String name : names) {
+                int number = getNumber(name, SEGMENT_PREFIX);
+                if (number > base) {
+                    segments.add(number);
+                }
+            }
+            Collections.sort(segments);
+            this.base = base;
+            this.lastNumber = lastNumber;
+        }
+
+        /**
+         * @return the number of the file with the {@code name}, or {@code -1} if it isn't a file
+         * with the {@code prefix}
+         */
+        private static int getNumber(String name, String prefix) {
+            if (!name.startsWith(prefix) || !name.endsWith(SUFFIX)) {
+                return -1;
+            }
+            try {
+                return Integer.parseInt(
+                        name.substring(prefix.length(), name.length() - SUFFIX.length())
+                );
+            } catch (NumberFormatException exception) {
+                return -1;
+            }
+        }
+
+        /**
+         * Deletes the files numbered before the {@code number}, which the base snapshot numbered
+         * {@code number} supersedes.
+         */
+        void deleteBefore(int number) {
+            String[] names = directory.list();
+            if (names == null) {
+                return;
+            }
+            for (String name : names) {
+                int fileNumber = Math.max(
+                        getNumber(name, BASE_PREFIX),
+                        getNumber(name, SEGMENT_PREFIX)
+                );
+                if (fileNumber != -1 && fileNumber < number) {
+                    //noinspection ResultOfMethodCallIgnored
+                    new File(directory, name).delete();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * The totals of every plan archived on a day, which are kept up to date as plans are archived so
+ * that reading the totals of a range of days never reads the {@link HistoryEntry}s.
+ */
+@Entity(tableName = "daily_rollups")
+public class DailyRollup {
+    /**
+     * @see Archive#day
+     */
+    @PrimaryKey
+    public int day;
+    @ColumnInfo(name = "planned_minutes")
+    public int plannedMinutes;
+    @ColumnInfo(name = "completed_minutes")
+    public int completedMinutes;
+
+    public DailyRollup(int day, int plannedMinutes, int completedMinutes) {
+        this.day = day;
+        this.plannedMinutes = plannedMinutes;
+        this.completedMinutes = completedMinutes;
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.neelkamath.timebend.db;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What's shown outside the app (e.g., by the home-screen widget), persisted to a small binary file
+ * so that it can be read without opening the database. It's rewritten by the
+ * {@link ActivityRepository} after every commit and whenever the day's bounds change.
+ * <p>
+ * The file is a version followed by the day's bounds, the incomplete duration and the first
+ * {@link #MAX_ROWS} incomplete activities, each as its duration and UTF-8 task.
+ */
+public final class GlanceSnapshot {
+    /**
+     * The most incomplete activities stored.
+     */
+    static final int MAX_ROWS = 3;
+    private static final String FILE_NAME = "glance_snapshot.bin";
+    private static final int VERSION = 1;
+    /**
+     * Tasks are cut to this many characters since they only need to fit on a widget.
+     */
+    private static final int MAX_TASK_LENGTH = 100;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * The start and end of the day, which are {@code -1} if they haven't been set.
+     */
+    public final int startHour;
+    public final int startMinute;
+    public final int endHour;
+    public final int endMinute;
+    public final int incompleteDuration;
+    /**
+     * The first incomplete activities in order, of which only the task and duration are stored.
+     */
+    public final List<Activity> nextActivities;
+
+    GlanceSnapshot(int startHour, int startMinute, int endHour, int endMinute,
+                   int incompleteDuration, List<Activity> nextActivities) {
+        this.startHour = startHour;
+        this.startMinute = startMinute;
+        this.endHour = endHour;
+        this.endMinute = endMinute;
+        this.incompleteDuration = incompleteDuration;
+        this.nextActivities = Collections.unmodifiableList(nextActivities);
+    }
+
+    /**
+     * Reads the snapshot with a single read of the whole file.
+     *
+     * @return the snapshot, or {@code null} if one hasn't been written yet or it can't be read
+     */
+    public static GlanceSnapshot read(Context context) {
+        try (RandomAccessFile file = new RandomAccessFile(getFile(context), "r")) {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != VERSION) {
+                return null;
+            }
+            int startHour = buffer.getInt();
+            int startMinute = buffer.getInt();
+            int endHour = buffer.getInt();
+            int endMinute = buffer.getInt();
+            int incompleteDuration = buffer.getInt();
+            int count = Math.min(buffer.getInt(), MAX_ROWS);
+            List<Activity> activities = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                int duration = buffer.getInt();
+                byte[] task = new byte[buffer.getShort()];
+                buffer.get(task);
+                activities.add(new Activity(new String(task, UTF_8), duration, index, false));
+            }
+            return new GlanceSnapshot(
+                    startHour,
+                    startMinute,
+                    endHour,
+                    endMinute,
+                    incompleteDuration,
+                    activities
+            );
+        } catch (IOException | BufferUnderflowException | NegativeArraySizeException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the file atomically, so that readers never see a partial snapshot.
+     */
+    void write(Context context) throws IOException {
+        List<byte[]> tasks = new ArrayList<>(nextActivities.size());
+        int size = 7 * 4;
+        for (Activity activity : nextActivities) {
+            String task = activity.task.length() > MAX_TASK_LENGTH
+                    ? activity.task.substring(0, MAX_TASK_LENGTH)
+                    : activity.task;
+            byte[] bytes = task.getBytes(UTF_8);
+            tasks.add(bytes);
+            size += 4 + 2 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(VERSION)
+                .putInt(startHour)
+                .putInt(startMinute)
+                .putInt(endHour)
+                .putInt(endMinute)
+                .putInt(incompleteDuration)
+                .putInt(nextActivities.size());
+        for (int index = 0; index < tasks.size(); index++) {
+            buffer.putInt(nextActivities.get(index).duration)
+                    .putShort((short) tasks.get(index).length)
+                    .put(tasks.get(index));
+        }
+        File file = getFile(context);
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary)) {
+            stream.write(buffer.array());
+        }
+        if (!temporary.renameTo(file)) {
+            throw new IOException("Couldn't replace " + file);
+        }
+    }
+
+    private static File getFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.Query;
+import android.arch.persistence.room.Transaction;
+
+@Dao
+public abstract class HistoryDao {
+    @Insert
+    abstract long insertArchive(Archive archive);
+
+    /**
+     * Copies every activity of the plan into the history in a single statement, without reading
+     * them into memory.
+     */
+    @Query("INSERT INTO history (archive_id, position, task, duration, is_completed) "
+            + "SELECT :archiveId, position, task, duration, is_completed FROM activities "
+            + "WHERE plan_id = :planId")
+    abstract void copyActivities(long archiveId, long planId);
+
+    @Query("INSERT OR IGNORE INTO daily_rollups (day, planned_minutes, completed_minutes) "
+            + "VALUES (:day, 0, 0)")
+    abstract void insertRollupIfAbsent(int day);
+
+    /**
+     * Adds the plan's activities' durations to the day's rollup, which must exist.
+     */
+    @Query("UPDATE daily_rollups SET "
+            + "planned_minutes = planned_minutes + (SELECT COALESCE(SUM(duration), 0) "
+            + "FROM activities WHERE plan_id = :planId), "
+            + "completed_minutes = completed_minutes + (SELECT COALESCE(SUM(duration), 0) "
+            + "FROM activities WHERE plan_id = :planId AND is_completed = 1) "
+            + "WHERE day = :day")
+    abstract void addActivitiesToRollup(int day, long planId);
+
+    @Query("SELECT COUNT(*) FROM activities WHERE plan_id = :planId")
+    abstract int getNumberOfActivities(long planId);
+
+    @Query("DELETE FROM activities WHERE plan_id = :planId")
+    abstract void deleteActivities(long planId);
+
+    /**
+     * Archives the plan's activities into the history, adds them to their day's rollup and
+     * deletes them in a single transaction. Nothing is archived if the plan has no activities.
+     *
+     * @param planId the {@link Plan#id} of the plan being reset
+     * @return the archive's {@link Archive#id}, or {@code -1} if nothing was archived
+     */
+    @Transaction
+    public long archiveAndDeleteActivities(Archive archive, long planId) {
+        if (getNumberOfActivities(planId) == 0) {
+            return -1;
+        }
+        long archiveId = insertArchive(archive);
+        copyActivities(archiveId, planId);
+        insertRollupIfAbsent(archive.day);
+        addActivitiesToRollup(archive.day, planId);
+        deleteActivities(planId);
+        return archiveId;
+    }
+
+    @Query("SELECT day FROM archives WHERE id = :archiveId")
+    abstract int getArchiveDay(long archiveId);
+
+    @Query("SELECT COUNT(*) FROM history WHERE archive_id = :archiveId")
+    abstract int getNumberOfEntries(long archiveId);
+
+    @Query("UPDATE activities SET position = position + :count WHERE plan_id = :planId")
+    abstract void shiftActivities(long planId, int count);
+
+    @Query("INSERT INTO activities (plan_id, position, task, duration, is_completed) "
+            + "SELECT :planId, position, task, duration, is_completed FROM history "
+            + "WHERE archive_id = :archiveId")
+    abstract void copyEntries(long archiveId, long planId);
+
+    @Query("UPDATE daily_rollups SET "
+            + "planned_minutes = planned_minutes - (SELECT COALESCE(SUM(duration), 0) "
+            + "FROM history WHERE archive_id = :archiveId), "
+            + "completed_minutes = completed_minutes - (SELECT COALESCE(SUM(duration), 0) "
+            + "FROM history WHERE archive_id = :archiveId AND is_completed = 1) "
+            + "WHERE day = :day")
+    abstract void subtractEntriesFromRollup(long archiveId, int day);
+
+    @Insert
+    abstract void insertRestoration(Restoration restoration);
+
+    /**
+     * Undoes {@link #archiveAndDeleteActivities(Archive, long)} in a single transaction, however
+     * many activities were archived. The archived activities are restored into the plan before
+     * any activities created since, and are taken back out of their day's rollup. Since the
+     * history is only ever appended to, the archive and its entries are kept, and a
+     * {@link Restoration} is appended to record that they were restored. The restored activities
+     * get new {@link Activity#id}s.
+     *
+     * @param planId     the {@link Plan#id} of the plan which was reset
+     * @param restoredAt milliseconds since the epoch
+     */
+    @Transaction
+    public void restoreArchive(long archiveId, long planId, long restoredAt) {
+        int day = getArchiveDay(archiveId);
+        shiftActivities(planId, getNumberOfEntries(archiveId));
+        copyEntries(archiveId, planId);
+        subtractEntriesFromRollup(archiveId, day);
+        insertRestoration(new Restoration(archiveId, restoredAt));
+    }
+
+    /**
+     * Sums the rollups of the days from {@code fromDay} onwards. Since the rollups are keyed by
+     * day, this reads one row per day rather than the history.
+     */
+    @Query("SELECT COALESCE(SUM(planned_minutes), 0) AS planned_minutes, "
+            + "COALESCE(SUM(completed_minutes), 0) AS completed_minutes "
+            + "FROM daily_rollups WHERE day >= :fromDay")
+    public abstract RollupTotals getRollupTotals(int fromDay);
+}
@@ -0,0 +1,31 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * An {@link Activity} as it was when its plan was archived. History is only ever appended to.
+ */
+@Entity(
+        tableName = "history",
+        foreignKeys = @ForeignKey(
+                entity = Archive.class,
+                parentColumns = "id",
+                childColumns = "archive_id"
+        ),
+        indices = @Index("archive_id")
+)
+public class HistoryEntry {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    @ColumnInfo(name = "archive_id")
+    public long archiveId;
+    public int position;
+    public String task;
+    public int duration;
+    @ColumnInfo(name = "is_completed")
+    public boolean isCompleted;
+}
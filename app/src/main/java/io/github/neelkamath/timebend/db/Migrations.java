@@ -0,0 +1,306 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.room.migration.Migration;
+
+import java.util.Locale;
+
+/**
+ * Migrations between versions of {@link AppDatabase}. Whenever the version is bumped, a migration
+ * from the previous version must be added to {@link #ALL}.
+ */
+final class Migrations {
+    /**
+     * Indexes {@code position} for ordering and {@code (is_completed, duration)} so that the
+     * incomplete duration can be summed from the index alone.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_activities_position` "
+                            + "ON `activities` (`position`)"
+            );
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_activities_is_completed_duration` "
+                            + "ON `activities` (`is_completed`, `duration`)"
+            );
+        }
+    };
+
+    /**
+     * Adds the tables plans are archived into when the day is reset.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `archives` ("
+                            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                            + "`archived_at` INTEGER NOT NULL, "
+                            + "`day` INTEGER NOT NULL, "
+                            + "`start_minutes` INTEGER NOT NULL, "
+                            + "`end_minutes` INTEGER NOT NULL)"
+            );
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `history` ("
+                            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                            + "`archive_id` INTEGER NOT NULL, "
+                            + "`position` INTEGER NOT NULL, "
+                            + "`task` TEXT, "
+                            + "`duration` INTEGER NOT NULL, "
+                            + "`is_completed` INTEGER NOT NULL, "
+                            + "FOREIGN KEY(`archive_id`) REFERENCES `archives`(`id`) "
+                            + "ON UPDATE NO ACTION ON DELETE NO ACTION )"
+            );
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_history_archive_id` "
+                            + "ON `history` (`archive_id`)"
+            );
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `daily_rollups` ("
+                            + "`day` INTEGER NOT NULL, "
+                            + "`planned_minutes` INTEGER NOT NULL, "
+                            + "`completed_minutes` INTEGER NOT NULL, "
+                            + "PRIMARY KEY(`day`))"
+            );
+        }
+    };
+
+    /**
+     * Adds the full-text index of the activities' tasks, and indexes the existing activities.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            createActivitiesFts(database);
+            database.execSQL("INSERT INTO activities_fts(activities_fts) VALUES ('rebuild')");
+        }
+    };
+
+    /**
+     * Adds plans, and moves every activity into the {@link Plan#DEFAULT_ID default plan}. SQLite
+     * can't add a foreign key to an existing table, so {@code activities} is rebuilt with the same
+     * {@code id}s (which keeps {@code activities_fts} valid) and its triggers are recreated. Its
+     * indexes are replaced by ones led by {@code plan_id} so that reading a plan never scans
+     * another plan's activities.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `plans` ("
+                            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                            + "`name` TEXT, "
+                            + "`start_hour` INTEGER NOT NULL, "
+                            + "`start_minute` INTEGER NOT NULL, "
+                            + "`end_hour` INTEGER NOT NULL, "
+                            + "`end_minute` INTEGER NOT NULL)"
+            );
+            createDefaultPlan(database);
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `activities_new` ("
+                            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                            + "`plan_id` INTEGER NOT NULL, "
+                            + "`position` INTEGER NOT NULL, "
+                            + "`task` TEXT, "
+                            + "`duration` INTEGER NOT NULL, "
+                            + "`is_completed` INTEGER NOT NULL, "
+                            + "FOREIGN KEY(`plan_id`) REFERENCES `plans`(`id`) "
+                            + "ON UPDATE NO ACTION ON DELETE NO ACTION )"
+            );
+            database.execSQL(
+                    "INSERT INTO `activities_new` "
+                            + "(`id`, `plan_id`, `position`, `task`, `duration`, `is_completed`) "
+                            + "SELECT `id`, " + Plan.DEFAULT_ID + ", `position`, `task`, "
+                            + "`duration`, `is_completed` FROM `activities`"
+            );
+            database.execSQL("DROP TABLE `activities`");
+            database.execSQL("ALTER TABLE `activities_new` RENAME TO `activities`");
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_activities_plan_id_position` "
+                            + "ON `activities` (`plan_id`, `position`)"
+            );
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_activities_plan_id_is_completed_duration` "
+                            + "ON `activities` (`plan_id`, `is_completed`, `duration`)"
+            );
+            createActivitiesFts(database);
+        }
+    };
+
+    /**
+     * Adds recurring activities and the record of the days they've been materialized on.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `templates` ("
+                            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                            + "`plan_id` INTEGER NOT NULL, "
+                            + "`task` TEXT, "
+                            + "`duration` INTEGER NOT NULL, "
+                            + "`days` INTEGER NOT NULL, "
+                            + "FOREIGN KEY(`plan_id`) REFERENCES `plans`(`id`) "
+                            + "ON UPDATE NO ACTION ON DELETE NO ACTION )"
+            );
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_templates_plan_id` "
+                            + "ON `templates` (`plan_id`)"
+            );
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `template_instances` ("
+                            + "`template_id` INTEGER NOT NULL, "
+                            + "`day` INTEGER NOT NULL, "
+                            + "PRIMARY KEY(`template_id`, `day`), "
+                            + "FOREIGN KEY(`template_id`) REFERENCES `templates`(`id`) "
+                            + "ON UPDATE NO ACTION ON DELETE NO ACTION )"
+            );
+        }
+    };
+
+    /**
+     * Adds the log of changes to {@code activities} which haven't been backed up yet, which holds
+     * the latest change of each activity. The existing activities are backed up by the first
+     * backup's base snapshot, so nothing is logged for them.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `changes` ("
+                            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                            + "`activity_id` INTEGER NOT NULL, "
+                            + "`operation` INTEGER NOT NULL, "
+                            + "`plan_id` INTEGER NOT NULL, "
+                            + "`position` INTEGER NOT NULL, "
+                            + "`task` TEXT, "
+                            + "`duration` INTEGER NOT NULL, "
+                            + "`is_completed` INTEGER NOT NULL)"
+            );
+            database.execSQL(
+                    "CREATE UNIQUE INDEX IF NOT EXISTS `index_changes_activity_id` "
+                            + "ON `changes` (`activity_id`)"
+            );
+            createChangeTriggers(database);
+        }
+    };
+
+    /**
+     * Adds the record of which archives have been restored by undoing a reset, which used to
+     * delete the archive instead.
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `restorations` ("
+                            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                            + "`archive_id` INTEGER NOT NULL, "
+                            + "`restored_at` INTEGER NOT NULL, "
+                            + "FOREIGN KEY(`archive_id`) REFERENCES `archives`(`id`) "
+                            + "ON UPDATE NO ACTION ON DELETE NO ACTION )"
+            );
+            database.execSQL(
+                    "CREATE UNIQUE INDEX IF NOT EXISTS `index_restorations_archive_id` "
+                            + "ON `restorations` (`archive_id`)"
+            );
+        }
+    };
+
+    static final Migration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8
+    };
+
+    /**
+     * Creates the triggers which log every insert, update and delete of {@code activities} into
+     * {@code changes} (see {@link Change}), replacing the activity's previous change. Like
+     * {@link #createActivitiesFts}, this has to be run both by the migration and when the database
+     * is created, and again by any migration which rebuilds {@code activities}.
+     */
+    static void createChangeTriggers(SupportSQLiteDatabase database) {
+        database.execSQL(createChangeTrigger("insert", Change.INSERT, "new"));
+        database.execSQL(createChangeTrigger("update", Change.UPDATE, "new"));
+        database.execSQL(createChangeTrigger("delete", Change.DELETE, "old"));
+    }
+
+    /**
+     * The previous change is deleted rather than replaced with {@code INSERT OR REPLACE}, since
+     * the conflict clause of the statement firing the trigger (e.g., Room's
+     * {@code INSERT OR ABORT}) would override the trigger's.
+     *
+     * @param row {@code "new"} or {@code "old"}, whichever holds the activity after the change
+     *            (or before it, for a delete)
+     */
+    private static String createChangeTrigger(String event, int operation, String row) {
+        return "CREATE TRIGGER IF NOT EXISTS `changes_after_" + event + "` "
+                + "AFTER " + event.toUpperCase(Locale.US) + " ON `activities` BEGIN "
+                + "DELETE FROM `changes` WHERE `activity_id` = " + row + ".`id`; "
+                + "INSERT INTO `changes` (`activity_id`, `operation`, `plan_id`, `position`, "
+                + "`task`, `duration`, `is_completed`) VALUES (" + row + ".`id`, " + operation
+                + ", " + row + ".`plan_id`, " + row + ".`position`, " + row + ".`task`, "
+                + row + ".`duration`, " + row + ".`is_completed`); END";
+    }
+
+    /**
+     * Inserts the {@link Plan#DEFAULT_ID default plan}, whose bounds are synced from the
+     * {@code times} {@link android.content.SharedPreferences} by the {@link ActivityRepository}.
+     * This has to be run both by the migration and when the database is created.
+     */
+    static void createDefaultPlan(SupportSQLiteDatabase database) {
+        database.execSQL(
+                "INSERT OR IGNORE INTO `plans` "
+                        + "(`id`, `name`, `start_hour`, `start_minute`, `end_hour`, `end_minute`) "
+                        + "VALUES (" + Plan.DEFAULT_ID + ", 'Default', -1, -1, -1, -1)"
+        );
+    }
+
+    /**
+     * Creates {@code activities_fts}, an FTS4 index of {@code activities.task} whose
+     * {@code docid}s are the activities' {@code id}s. It stores no copy of the text, and is kept
+     * in sync by triggers which only fire when a task is inserted, edited or deleted (i.e., not
+     * when activities are renumbered). Prefix indexes keep search-as-you-type queries from
+     * scanning every term with the typed prefix.
+     * <p>
+     * Room can't declare FTS tables, so this has to be run both by the migration and when the
+     * database is created.
+     */
+    static void createActivitiesFts(SupportSQLiteDatabase database) {
+        database.execSQL(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS `activities_fts` "
+                        + "USING fts4(content=\"activities\", `task`, prefix=\"1,2,3\")"
+        );
+        database.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS `activities_fts_before_update` "
+                        + "BEFORE UPDATE OF `task` ON `activities` BEGIN "
+                        + "DELETE FROM `activities_fts` WHERE docid = old.rowid; END"
+        );
+        database.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS `activities_fts_before_delete` "
+                        + "BEFORE DELETE ON `activities` BEGIN "
+                        + "DELETE FROM `activities_fts` WHERE docid = old.rowid; END"
+        );
+        database.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS `activities_fts_after_update` "
+                        + "AFTER UPDATE OF `task` ON `activities` BEGIN "
+                        + "INSERT INTO `activities_fts`(docid, `task`) "
+                        + "VALUES (new.rowid, new.`task`); END"
+        );
+        database.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS `activities_fts_after_insert` "
+                        + "AFTER INSERT ON `activities` BEGIN "
+                        + "INSERT INTO `activities_fts`(docid, `task`) "
+                        + "VALUES (new.rowid, new.`task`); END"
+        );
+    }
+
+    private Migrations() {
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.neelkamath.timebend.db;
+
+/**
+ * The inverses of the latest destructive mutations, so that they can be undone. It's a ring
+ * buffer which holds at most {@link #CAPACITY} entries and {@link #MAX_ROWS} activities, dropping
+ * the oldest entries to stay within both. Each entry is identified by the token of the mutation it
+ * undoes, so that undoing one mutation never undoes another. It's written and read by the
+ * {@link ActivityRepository}'s writer thread.
+ */
+class MutationJournal {
+    static final int CAPACITY = 32;
+    /**
+     * The most activities the entries may hold in memory.
+     */
+    static final int MAX_ROWS = 1000;
+    private final Entry[] entries = new Entry[CAPACITY];
+    /**
+     * The index of the oldest entry.
+     */
+    private int head = 0;
+    private int size = 0;
+    private int rows = 0;
+
+    /**
+     * Records the inverse of a mutation which has just been committed. It isn't recorded if it
+     * holds more than {@link #MAX_ROWS} activities.
+     */
+    synchronized void record(Entry entry) {
+        if (entry.rowCount > MAX_ROWS) {
+            return;
+        }
+        while (size == CAPACITY || rows + entry.rowCount > MAX_ROWS) {
+            rows -= entries[head].rowCount;
+            entries[head] = null;
+            head = (head + 1) % CAPACITY;
+            size--;
+        }
+        entries[(head + size) % CAPACITY] = entry;
+        size++;
+        rows += entry.rowCount;
+    }
+
+    /**
+     * Removes the entry with the {@code token}, moving the newer entries back to fill its place.
+     *
+     * @return the entry, or {@code null} if it was never recorded or has been dropped
+     */
+    synchronized Entry remove(long token) {
+        for (int count = 0; count < size; count++) {
+            int index = (head + count) % CAPACITY;
+            Entry entry = entries[index];
+            if (entry.token == token) {
+                for (int next = count + 1; next < size; next++) {
+                    entries[(head + next - 1) % CAPACITY] = entries[(head + next) % CAPACITY];
+                }
+                size--;
+                entries[(head + size) % CAPACITY] = null;
+                rows -= entry.rowCount;
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of entries held
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry (e.g., once the plan they'd be undone into has been deleted).
+     */
+    synchronized void clear() {
+        for (int index = 0; index < CAPACITY; index++) {
+            entries[index] = null;
+        }
+        head = 0;
+        size = 0;
+        rows = 0;
+    }
+
+    /**
+     * The inverse of a mutation.
+     */
+    abstract static class Entry {
+        /**
+         * Identifies the mutation this undoes.
+         */
+        final long token;
+        /**
+         * The number of activities held in memory by the entry.
+         */
+        final int rowCount;
+
+        Entry(long token, int rowCount) {
+            this.token = token;
+            this.rowCount = rowCount;
+        }
+
+        /**
+         * Reverts the mutation. This is called in a transaction.
+         */
+        abstract void undo(AppDatabase database);
+    }
+}
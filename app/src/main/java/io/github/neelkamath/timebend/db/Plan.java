@@ -0,0 +1,41 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * A named set of activities with its own start and end of the day (e.g., one for weekdays and
+ * another for travel). Only one plan is active at a time, and its bounds are the ones in the
+ * {@code times} {@link android.content.SharedPreferences}.
+ */
+@Entity(tableName = "plans")
+public class Plan {
+    /**
+     * The {@link #id} of the plan which every activity belonged to before there were plans. It's
+     * created with the database, and is active until another plan is switched to.
+     */
+    public static final long DEFAULT_ID = 1;
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    public String name;
+    /**
+     * The start and end of the day, which are {@code -1} if they haven't been set.
+     */
+    @ColumnInfo(name = "start_hour")
+    public int startHour;
+    @ColumnInfo(name = "start_minute")
+    public int startMinute;
+    @ColumnInfo(name = "end_hour")
+    public int endHour;
+    @ColumnInfo(name = "end_minute")
+    public int endMinute;
+
+    public Plan(String name, int startHour, int startMinute, int endHour, int endMinute) {
+        this.name = name;
+        this.startHour = startHour;
+        this.startMinute = startMinute;
+        this.endHour = endHour;
+        this.endMinute = endMinute;
+    }
+}
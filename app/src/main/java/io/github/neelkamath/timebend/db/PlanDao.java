@@ -0,0 +1,50 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.Query;
+import android.arch.persistence.room.Transaction;
+
+import java.util.List;
+
+@Dao
+public abstract class PlanDao {
+    @Insert
+    abstract long insertPlan(Plan plan);
+
+    /**
+     * Reads every plan without any of their activities, so it costs the same however large the
+     * plans are.
+     */
+    @Query("SELECT * FROM plans ORDER BY id")
+    public abstract List<Plan> getAll();
+
+    @Query("UPDATE plans SET start_hour = :startHour, start_minute = :startMinute, "
+            + "end_hour = :endHour, end_minute = :endMinute WHERE id = :planId")
+    abstract void updateBounds(long planId, int startHour, int startMinute, int endHour,
+                               int endMinute);
+
+    @Query("DELETE FROM activities WHERE plan_id = :planId")
+    abstract void deleteActivities(long planId);
+
+    @Query("DELETE FROM template_instances WHERE template_id IN "
+            + "(SELECT id FROM templates WHERE plan_id = :planId)")
+    abstract void deleteTemplateInstances(long planId);
+
+    @Query("DELETE FROM templates WHERE plan_id = :planId")
+    abstract void deleteTemplates(long planId);
+
+    @Query("DELETE FROM plans WHERE id = :planId")
+    abstract void deletePlanOnly(long planId);
+
+    /**
+     * Deletes the plan along with its activities and {@link Template}s in a single transaction.
+     */
+    @Transaction
+    public void deletePlan(long planId) {
+        deleteActivities(planId);
+        deleteTemplateInstances(planId);
+        deleteTemplates(planId);
+        deletePlanOnly(planId);
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Embedded;
+
+/**
+ * A row of {@link Sql#GET_SNAPSHOT}. Every row repeats the aggregates of the whole table so that
+ * they're read by the same query as the activities.
+ */
+public class PlanRow {
+    /**
+     * {@code null} if this is the only row and no activity was in the range read.
+     */
+    @Embedded
+    public Activity activity;
+    @ColumnInfo(name = "number_of_activities")
+    public int numberOfActivities;
+    @ColumnInfo(name = "incomplete_duration")
+    public int incompleteDuration;
+    @ColumnInfo(name = "incomplete_duration_before")
+    public int incompleteDurationBefore;
+}
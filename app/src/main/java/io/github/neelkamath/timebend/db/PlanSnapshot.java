@@ -0,0 +1,51 @@
+package io.github.neelkamath.timebend.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the UI displays from the database as of a single query.
+ */
+public class PlanSnapshot {
+    /**
+     * The loaded activities in order of their {@link Activity#position}.
+     */
+    public final List<Activity> activities;
+    /**
+     * The {@link Activity#position} of the first loaded activity, which is where the loaded
+     * range starts even if no activity was in it.
+     */
+    public final int offset;
+    /**
+     * The number of activities in the table (which may be more than the ones loaded).
+     */
+    public final int numberOfActivities;
+    /**
+     * The total duration of the activities in the table which haven't been completed.
+     */
+    public final int incompleteDuration;
+    /**
+     * The total duration of the activities positioned before the {@link #offset} which haven't
+     * been completed.
+     */
+    public final int incompleteDurationBefore;
+
+    PlanSnapshot(List<PlanRow> rows, int offset) {
+        this.offset = offset;
+        activities = new ArrayList<>(rows.size());
+        for (PlanRow row : rows) {
+            if (row.activity != null) {
+                activities.add(row.activity);
+            }
+        }
+        if (rows.isEmpty()) {
+            numberOfActivities = 0;
+            incompleteDuration = 0;
+            incompleteDurationBefore = 0;
+        } else {
+            numberOfActivities = rows.get(0).numberOfActivities;
+            incompleteDuration = rows.get(0).incompleteDuration;
+            incompleteDurationBefore = rows.get(0).incompleteDurationBefore;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+
+/**
+ * A record that an {@link Archive} was restored into its plan by undoing a reset. The archive and
+ * its {@link HistoryEntry}s are kept, since the history is only ever appended to, but it no longer
+ * counts towards its day's {@link DailyRollup}.
+ */
+@Entity(
+        tableName = "restorations",
+        foreignKeys = @ForeignKey(
+                entity = Archive.class,
+                parentColumns = "id",
+                childColumns = "archive_id"
+        ),
+        indices = @Index(value = "archive_id", unique = true)
+)
+public class Restoration {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    @ColumnInfo(name = "archive_id")
+    public long archiveId;
+    /**
+     * Milliseconds since the epoch.
+     */
+    @ColumnInfo(name = "restored_at")
+    public long restoredAt;
+
+    public Restoration(long archiveId, long restoredAt) {
+        this.archiveId = archiveId;
+        this.restoredAt = restoredAt;
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+
+/**
+ * The sum of the {@link DailyRollup}s for a range of days.
+ */
+public class RollupTotals {
+    @ColumnInfo(name = "planned_minutes")
+    public int plannedMinutes;
+    @ColumnInfo(name = "completed_minutes")
+    public int completedMinutes;
+}
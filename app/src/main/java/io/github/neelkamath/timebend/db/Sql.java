@@ -1,15 +1,64 @@
 package io.github.neelkamath.timebend.db;
 
 /**
- * {@link ActivityDao} is an {@code interface} that requires private constants. Since this is not
- * possible in {@code interface}s, this class provides the needed constants.
+ * SQL which is shared by more than one of {@link ActivityDao}'s queries or is built at runtime.
  */
 final class Sql {
     /**
-     * SQL for {@link ActivityDao#getAll()} and {@link ActivityDao#getAllLive()}.
+     * SQL for {@link ActivityDao#getAll(long)}.
      */
-    static final String GET = "SELECT * FROM activities ORDER BY position";
+    static final String GET = "SELECT * FROM activities WHERE plan_id = :planId ORDER BY position";
+    /**
+     * SQL for {@link ActivityDao#getSnapshotLive(long, int, int)} and
+     * {@link ActivityDao#getSnapshot(long, int, int)}. The aggregates are uncorrelated subqueries,
+     * so SQLite evaluates them once rather than per row. They're left joined to the activities so
+     * that they're read even if no activity is in the range (in which case there's a single row
+     * whose activity is {@code null}). Every part is a range of an index led by {@code plan_id},
+     * so the other plans' activities are never read.
+     */
+    static final String GET_SNAPSHOT = "SELECT activities.*, totals.* FROM (SELECT "
+            + "(SELECT COUNT(*) FROM activities WHERE plan_id = :planId) "
+            + "AS number_of_activities, "
+            + "(SELECT COALESCE(SUM(duration), 0) FROM activities "
+            + "WHERE plan_id = :planId AND is_completed = 0) AS incomplete_duration, "
+            + "(SELECT COALESCE(SUM(duration), 0) FROM activities "
+            + "WHERE plan_id = :planId AND is_completed = 0 AND position < :start) "
+            + "AS incomplete_duration_before) AS totals "
+            + "LEFT JOIN activities ON activities.plan_id = :planId "
+            + "AND activities.position >= :start AND activities.position < :end "
+            + "ORDER BY activities.position";
+
+    /**
+     * SQL for {@link ActivityDao#search(long, String, android.os.CancellationSignal)}, which takes
+     * a match expression from {@link #toPrefixMatch(String)} and a {@link Plan#id}. The
+     * {@code CROSS JOIN} makes SQLite look up the matches in the full-text index first and then
+     * each matching activity by its {@code id}. Given a plain join, it instead reads every
+     * activity of the plan and runs the match once per activity, so searching took time in
+     * proportion to the plan's size.
+     */
+    static final String SEARCH = "SELECT activities.* FROM activities_fts "
+            + "CROSS JOIN activities ON activities.id = activities_fts.docid "
+            + "WHERE activities_fts MATCH ? AND activities.plan_id = ? "
+            + "ORDER BY activities.position";
 
     private Sql() {
     }
+
+    /**
+     * @return an FTS match expression for rows having a word which starts with each word of the
+     * {@code text} (e.g., {@code "yo med"} gives {@code "yo*" "med*"}), or an empty string if
+     * the {@code text} has no words
+     */
+    static String toPrefixMatch(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append('"').append(word).append("*\"");
+            }
+        }
+        return match.toString();
+    }
 }
@@ -0,0 +1,165 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.db.SupportSQLiteOpenHelper;
+import android.arch.persistence.room.RoomDatabase;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How an {@link AppDatabase} is stored and which threads use it. The app uses
+ * {@link #production()}, while tests and benchmarks can build their own (e.g., an in-memory
+ * database with a different journal mode) and pass it to
+ * {@link AppDatabase#create(android.content.Context, StorageProfile)}.
+ */
+public final class StorageProfile {
+    final String name;
+    final Location location;
+    final RoomDatabase.JournalMode journalMode;
+    final Synchronous synchronous;
+    /**
+     * Runs every write, one at a time (see {@link ActivityRepository}).
+     */
+    final ExecutorService writeExecutor;
+    /**
+     * Runs reads which mustn't wait for writes, such as searches.
+     */
+    final ExecutorService readExecutor;
+    /**
+     * Opens the database, or {@code null} for the framework's SQLite.
+     */
+    @Nullable
+    final SupportSQLiteOpenHelper.Factory openHelperFactory;
+
+    private StorageProfile(Builder builder) {
+        name = builder.name;
+        location = builder.location;
+        journalMode = builder.journalMode;
+        synchronous = builder.synchronous;
+        writeExecutor = builder.writeExecutor == null
+                ? Executors.newSingleThreadExecutor()
+                : builder.writeExecutor;
+        readExecutor = builder.readExecutor == null
+                ? Executors.newSingleThreadExecutor()
+                : builder.readExecutor;
+        openHelperFactory = builder.openHelperFactory;
+    }
+
+    /**
+     * The app's database, which is named {@code "production"}. It uses write-ahead logging so
+     * that reads (e.g., the snapshot being reloaded while an activity is dragged) never wait for
+     * a commit, and syncs fully so that no commit is lost on a power failure.
+     */
+    public static StorageProfile production() {
+        return new Builder("production").build();
+    }
+
+    public enum Location {
+        /**
+         * A file in the app's databases directory which persists across launches.
+         */
+        FILE,
+        /**
+         * A file in the app's cache directory which is deleted when the database is created.
+         */
+        TEMPORARY_FILE,
+        /**
+         * Memory, which is lost when the database is closed.
+         */
+        MEMORY
+    }
+
+    /**
+     * SQLite's {@code synchronous} setting. It's a setting of each connection rather than of the
+     * database, and it's only applied to the connection the database is opened with. That's the
+     * one Android keeps as the primary connection and runs every write (and so every sync) on.
+     * The connections it opens later for concurrent reads when write-ahead logging keep the
+     * platform's default, which doesn't matter since they never write.
+     */
+    public enum Synchronous {
+        /**
+         * Never waits for the disk, so a crash of the device may corrupt the database.
+         */
+        OFF,
+        /**
+         * Waits for the disk at checkpoints, so a crash of the device may lose the latest commits
+         * when write-ahead logging.
+         */
+        NORMAL,
+        /**
+         * Waits for the disk on every commit.
+         */
+        FULL
+    }
+
+    public static class Builder {
+        private final String name;
+        private Location location = Location.FILE;
+        private RoomDatabase.JournalMode journalMode =
+                RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING;
+        private Synchronous synchronous = Synchronous.FULL;
+        private ExecutorService writeExecutor;
+        private ExecutorService readExecutor;
+        private SupportSQLiteOpenHelper.Factory openHelperFactory;
+
+        /**
+         * @param name the database's file name, which is ignored if it's stored in
+         *             {@link Location#MEMORY}
+         */
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder setLocation(Location location) {
+            this.location = location;
+            return this;
+        }
+
+        /**
+         * Defaults to {@link RoomDatabase.JournalMode#WRITE_AHEAD_LOGGING}. Databases in
+         * {@link Location#MEMORY} can't use write-ahead logging.
+         */
+        public Builder setJournalMode(RoomDatabase.JournalMode journalMode) {
+            this.journalMode = journalMode;
+            return this;
+        }
+
+        /**
+         * Defaults to {@link Synchronous#FULL}.
+         */
+        public Builder setSynchronous(Synchronous synchronous) {
+            this.synchronous = synchronous;
+            return this;
+        }
+
+        /**
+         * Defaults to a new single thread. It must run one task at a time.
+         */
+        public Builder setWriteExecutor(ExecutorService writeExecutor) {
+            this.writeExecutor = writeExecutor;
+            return this;
+        }
+
+        /**
+         * Defaults to a new single thread.
+         */
+        public Builder setReadExecutor(ExecutorService readExecutor) {
+            this.readExecutor = readExecutor;
+            return this;
+        }
+
+        /**
+         * Defaults to the framework's SQLite. Tests can wrap it (e.g., to count the statements a
+         * mutation runs).
+         */
+        public Builder setOpenHelperFactory(SupportSQLiteOpenHelper.Factory openHelperFactory) {
+            this.openHelperFactory = openHelperFactory;
+            return this;
+        }
+
+        public StorageProfile build() {
+            return new StorageProfile(this);
+        }
+    }
+}
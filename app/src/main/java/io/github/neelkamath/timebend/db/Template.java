@@ -0,0 +1,57 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+
+import java.util.Calendar;
+
+/**
+ * An activity which recurs on some days of the week. Each day it recurs on, it's materialized
+ * into its plan as an {@link Activity} once (see {@link TemplateDao#materialize(int, int)}).
+ */
+@Entity(
+        tableName = "templates",
+        foreignKeys = @ForeignKey(
+                entity = Plan.class,
+                parentColumns = "id",
+                childColumns = "plan_id"
+        ),
+        indices = @Index("plan_id")
+)
+public class Template {
+    public static final int EVERY_DAY = 0b1111111;
+    public static final int WEEKENDS =
+            getDayBit(Calendar.SATURDAY) | getDayBit(Calendar.SUNDAY);
+    public static final int WEEKDAYS = EVERY_DAY & ~WEEKENDS;
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    /**
+     * The {@link Plan#id} of the plan it's materialized into.
+     */
+    @ColumnInfo(name = "plan_id")
+    public long planId;
+    public String task;
+    public int duration;
+    /**
+     * The days of the week it recurs on, as the {@link #getDayBit(int)}s of each day.
+     */
+    public int days;
+
+    public Template(long planId, String task, int duration, int days) {
+        this.planId = planId;
+        this.task = task;
+        this.duration = duration;
+        this.days = days;
+    }
+
+    /**
+     * @param dayOfWeek a day such as {@link Calendar#MONDAY}
+     * @return the bit for the day in {@link #days}
+     */
+    public static int getDayBit(int dayOfWeek) {
+        return 1 << (dayOfWeek - Calendar.SUNDAY);
+    }
+}
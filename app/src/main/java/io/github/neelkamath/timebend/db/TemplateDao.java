@@ -0,0 +1,109 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.OnConflictStrategy;
+import android.arch.persistence.room.Query;
+import android.arch.persistence.room.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Dao
+public abstract class TemplateDao {
+    @Insert
+    abstract long insertTemplateOnly(Template template);
+
+    /**
+     * Instances which have already been recorded are left as they are.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract void insertInstances(List<TemplateInstance> instances);
+
+    @Insert
+    abstract void insertActivities(List<Activity> activities);
+
+    @Query("SELECT * FROM templates WHERE plan_id = :planId ORDER BY id")
+    public abstract List<Template> getAll(long planId);
+
+    /**
+     * @param dayBit the {@link Template#getDayBit(int)} of the {@code day}'s day of the week
+     * @return the templates of every plan which recur on the {@code day} but haven't been
+     * materialized on it yet, in the order they were created
+     */
+    @Query("SELECT * FROM templates WHERE (days & :dayBit) != 0 AND NOT EXISTS "
+            + "(SELECT 1 FROM template_instances "
+            + "WHERE template_id = templates.id AND day = :day) "
+            + "ORDER BY id")
+    abstract List<Template> getMissingTemplates(int day, int dayBit);
+
+    @Query("SELECT COUNT(*) FROM activities WHERE plan_id = :planId")
+    abstract int getNumberOfActivities(long planId);
+
+    /**
+     * Appends an activity for each template which recurs on the {@code day} to the template's
+     * plan, in a single transaction. It's idempotent: only the templates which haven't been
+     * materialized on the {@code day} yet are, so it can be run as often as needed.
+     *
+     * @param day    the local day as days since the epoch (see {@link Archive#day})
+     * @param dayBit the {@link Template#getDayBit(int)} of the {@code day}'s day of the week
+     * @return the number of activities appended
+     */
+    @Transaction
+    public int materialize(int day, int dayBit) {
+        List<Template> templates = getMissingTemplates(day, dayBit);
+        if (templates.isEmpty()) {
+            return 0;
+        }
+        List<Activity> activities = new ArrayList<>(templates.size());
+        List<TemplateInstance> instances = new ArrayList<>(templates.size());
+        // The next position in each plan, so that each plan is only counted once.
+        Map<Long, Integer> positions = new HashMap<>();
+        for (Template template : templates) {
+            Integer position = positions.get(template.planId);
+            if (position == null) {
+                position = getNumberOfActivities(template.planId);
+            }
+            Activity activity = new Activity(template.task, template.duration, position, false);
+            activity.planId = template.planId;
+            activities.add(activity);
+            instances.add(new TemplateInstance(template.id, day));
+            positions.put(template.planId, position + 1);
+        }
+        insertActivities(activities);
+        insertInstances(instances);
+        return activities.size();
+    }
+
+    /**
+     * Saves the template, recording it as already materialized on the {@code day} since its
+     * first activity is created along with it.
+     *
+     * @return the template's {@link Template#id}
+     */
+    @Transaction
+    public long insertTemplate(Template template, int day) {
+        long templateId = insertTemplateOnly(template);
+        List<TemplateInstance> instances = new ArrayList<>(1);
+        instances.add(new TemplateInstance(templateId, day));
+        insertInstances(instances);
+        return templateId;
+    }
+
+    @Query("DELETE FROM template_instances WHERE template_id = :templateId")
+    abstract void deleteInstances(long templateId);
+
+    @Query("DELETE FROM templates WHERE id = :templateId")
+    abstract void deleteTemplateOnly(long templateId);
+
+    /**
+     * Stops the template from recurring. The activities it has already materialized are kept.
+     */
+    @Transaction
+    public void deleteTemplate(long templateId) {
+        deleteInstances(templateId);
+        deleteTemplateOnly(templateId);
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.ForeignKey;
+
+/**
+ * A record that a {@link Template} has been materialized on a day, so that it's never
+ * materialized twice on the same day (even if its activity has since been deleted or archived).
+ */
+@Entity(
+        tableName = "template_instances",
+        primaryKeys = {"template_id", "day"},
+        foreignKeys = @ForeignKey(
+                entity = Template.class,
+                parentColumns = "id",
+                childColumns = "template_id"
+        )
+)
+public class TemplateInstance {
+    @ColumnInfo(name = "template_id")
+    public long templateId;
+    /**
+     * @see Archive#day
+     */
+    public int day;
+
+    public TemplateInstance(long templateId, int day) {
+        this.templateId = templateId;
+        this.day = day;
+    }
+}
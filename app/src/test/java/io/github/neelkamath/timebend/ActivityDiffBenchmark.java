@@ -0,0 +1,143 @@
+package io.github.neelkamath.timebend;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures diffing the displayed activities against the ones read after a single edit, insertion,
+ * removal or move on lists of 1,000 to 10,000 activities, which is what the adapter does off the
+ * main thread for every change. It checks that the diff only dispatches the row which changed
+ * (rather than rebinding every row like {@code notifyDataSetChanged()}), and that it takes less
+ * than {@link #MAX_DIFF_MILLIS} so that a change is shown on the next frame. It's skipped unless
+ * the build is run with {@code -Pbenchmark}, like
+ * {@link io.github.neelkamath.timebend.db.ActivityDaoBenchmark}.
+ */
+public class ActivityDiffBenchmark {
+    private static final int[] SIZES = {1000, 5000, 10000};
+    private static final long MEASURE_NANOS = 500L * 1000 * 1000;
+    private static final int WARM_UP_ITERATIONS = 5;
+    private static final double MAX_DIFF_MILLIS = 16;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("timebend.benchmark"));
+    }
+
+    @Test
+    public void benchmark() {
+        for (int size : SIZES) {
+            List<Activity> activities = createActivities(size);
+
+            List<Activity> edited = new ArrayList<>(activities);
+            Activity activity = copy(edited.get(size / 2));
+            activity.isCompleted = true;
+            edited.set(size / 2, activity);
+            measure("edit", activities, edited);
+
+            List<Activity> inserted = new ArrayList<>(activities);
+            Activity insertion = new Activity("inserted", 30, size / 2, false);
+            insertion.id = size;
+            inserted.add(size / 2, insertion);
+            measure("insert", activities, inserted);
+
+            List<Activity> removed = new ArrayList<>(activities);
+            removed.remove(size / 2);
+            measure("remove", activities, removed);
+
+            List<Activity> moved = new ArrayList<>(activities);
+            moved.add(3 * size / 4, moved.remove(size / 4));
+            measure("move", activities, moved);
+        }
+    }
+
+    /**
+     * Diffs the lists repeatedly for {@link #MEASURE_NANOS} after warming up, and checks that
+     * only one row was dispatched.
+     */
+    private static void measure(String name, List<Activity> oldList, List<Activity> newList) {
+        ActivityDiffCallback callback = new ActivityDiffCallback(oldList, newList);
+        for (int iteration = 0; iteration < WARM_UP_ITERATIONS; iteration++) {
+            DiffUtil.calculateDiff(callback);
+        }
+        int count = 0;
+        DiffUtil.DiffResult result;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            result = DiffUtil.calculateDiff(callback);
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NANOS);
+        double millis = elapsed / 1e6 / count;
+        System.out.println(
+                String.format(Locale.US, "%s,%d,%.3f ms", name, oldList.size(), millis)
+        );
+        RowCounter rows = new RowCounter();
+        result.dispatchUpdatesTo(rows);
+        assertEquals(name, 1, rows.count);
+        assertTrue(name + " of " + oldList.size() + ": " + millis + " ms",
+                millis < MAX_DIFF_MILLIS);
+    }
+
+    private static List<Activity> createActivities(int size) {
+        List<Activity> activities = new ArrayList<>(size);
+        for (int position = 0; position < size; position++) {
+            Activity activity =
+                    new Activity("activity " + position, 30, position, position % 3 == 0);
+            activity.id = position;
+            activities.add(activity);
+        }
+        return activities;
+    }
+
+    private static Activity copy(Activity activity) {
+        Activity copy = new Activity(
+                activity.task,
+                activity.duration,
+                activity.position,
+                activity.isCompleted
+        );
+        copy.id = activity.id;
+        return copy;
+    }
+
+    /**
+     * Counts the rows a diff would rebind, insert, remove or move.
+     */
+    private static class RowCounter implements ListUpdateCallback {
+        int count = 0;
+
+        @Override
+        public void onInserted(int position, int count) {
+            this.count += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            this.count += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            count++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            this.count += count;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.neelkamath.timebend;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads how many bytes the current thread has allocated, so that tests can check that a path
+ * doesn't allocate. It relies on HotSpot's {@link com.sun.management.ThreadMXBean}, which the JVM
+ * unit tests run on.
+ */
+public final class Allocations {
+    private static final com.sun.management.ThreadMXBean BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    public static long getAllocatedBytes() {
+        return BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
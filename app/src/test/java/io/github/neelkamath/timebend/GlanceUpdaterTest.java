@@ -0,0 +1,68 @@
+package io.github.neelkamath.timebend;
+
+import android.app.Application;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.GlanceSnapshots;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Runs with a plain {@link Application} rather than the {@link TimeBendApplication}, whose
+ * {@link StartupPipeline} opens the database, so that only what the updater does is seen.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, application = Application.class)
+public class GlanceUpdaterTest {
+    private final Context context = RuntimeEnvironment.application;
+    private NotificationManager notificationManager;
+
+    @Before
+    public void setUp() {
+        notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        GlanceUpdater.getSettings(context)
+                .edit()
+                .putBoolean(GlanceUpdater.NOTIFICATION_SHOWN_KEY, true)
+                .commit();
+    }
+
+    @Test
+    public void updateShowsTheSnapshotWithoutOpeningTheDatabase() throws IOException {
+        GlanceSnapshots.write(context, 0, 0, 23, 59, "Write", "Read");
+        GlanceUpdater.update(context);
+        assertEquals("Write (10)", getNotificationText());
+        assertNoDatabase();
+    }
+
+    @Test
+    public void updateWithoutASnapshotDoesNotOpenTheDatabase() {
+        GlanceUpdater.update(context);
+        assertEquals(context.getString(R.string.glance_nothing_next), getNotificationText());
+        assertNoDatabase();
+    }
+
+    private String getNotificationText() {
+        List<Notification> notifications = shadowOf(notificationManager).getAllNotifications();
+        assertEquals(1, notifications.size());
+        return notifications.get(0).extras.getCharSequence(Notification.EXTRA_TEXT).toString();
+    }
+
+    private void assertNoDatabase() {
+        assertArrayEquals(new String[0], context.databaseList());
+    }
+}
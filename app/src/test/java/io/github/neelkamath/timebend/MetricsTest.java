@@ -0,0 +1,116 @@
+package io.github.neelkamath.timebend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetricsTest {
+    private static final long MILLISECOND = 1000 * 1000;
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void dumpReportsEachPercentileToWithinItsBucket() {
+        for (int count = 0; count < 50; count++) {
+            Metrics.record(Metrics.DAO_WRITE, MILLISECOND);
+        }
+        for (int count = 0; count < 40; count++) {
+            Metrics.record(Metrics.DAO_WRITE, 2 * MILLISECOND);
+        }
+        for (int count = 0; count < 10; count++) {
+            Metrics.record(Metrics.DAO_WRITE, 10 * MILLISECOND);
+        }
+        // 1ms and 2ms are reported as the highest latencies of their buckets.
+        assertEquals(
+                "dao write: n=100 mean=2.30ms p50=1.05ms p90=2.10ms p99=10.00ms max=10.00ms\n",
+                Metrics.dump()
+        );
+    }
+
+    @Test
+    public void percentilesNeverExceedTheMaximum() {
+        Metrics.record(Metrics.BIND, 3 * MILLISECOND);
+        assertEquals(
+                "bind: n=1 mean=3.00ms p50=3.00ms p90=3.00ms p99=3.00ms max=3.00ms\n",
+                Metrics.dump()
+        );
+    }
+
+    @Test
+    public void latenciesBeyondTheLastBucketAreCountedAsOverflows() {
+        long nanos = 1L << 45;
+        Metrics.record(Metrics.DAO_BACKUP, nanos);
+        Metrics.record(Metrics.DAO_BACKUP, -1);
+        String mean = String.format(Locale.US, "%.2f", nanos / 2e6);
+        String max = String.format(Locale.US, "%.2f", nanos / 1e6);
+        assertEquals(
+                "dao backup: n=2 mean=" + mean + "ms p50=0.00ms p90=" + max + "ms p99=" + max
+                        + "ms max=" + max + "ms overflows=1\n",
+                Metrics.dump()
+        );
+    }
+
+    @Test
+    public void theLongestLatencyCountedSeparatelyIsNotAnOverflow() {
+        long nanos = (1L << 41) - 1;
+        Metrics.record(Metrics.DAO_SNAPSHOT, nanos);
+        String max = String.format(Locale.US, "%.2f", nanos / 1e6);
+        assertEquals(
+                "dao snapshot: n=1 mean=" + max + "ms p50=" + max + "ms p90=" + max + "ms p99="
+                        + max + "ms max=" + max + "ms\n",
+                Metrics.dump()
+        );
+    }
+
+    @Test
+    public void resetForgetsEveryRecording() {
+        Metrics.record(Metrics.GESTURE_DROP, MILLISECOND);
+        Metrics.reset();
+        assertEquals("", Metrics.dump());
+    }
+
+    @Test
+    public void nothingIsRecordedWhileDisabled() {
+        Metrics.setEnabled(false);
+        Metrics.end(Metrics.BIND, Metrics.start());
+        assertEquals("", Metrics.dump());
+    }
+
+    @Test
+    public void theDisabledPathDoesNotAllocate() {
+        Metrics.setEnabled(false);
+        for (int count = 0; count < 10000; count++) {
+            Metrics.end(Metrics.BIND, Metrics.start());
+        }
+        long bytes = Allocations.getAllocatedBytes();
+        for (int count = 0; count < 10000; count++) {
+            Metrics.end(Metrics.BIND, Metrics.start());
+        }
+        assertEquals(0, Allocations.getAllocatedBytes() - bytes);
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        for (int count = 0; count < 10000; count++) {
+            Metrics.record(Metrics.BIND, count);
+        }
+        long bytes = Allocations.getAllocatedBytes();
+        for (int count = 0; count < 10000; count++) {
+            Metrics.record(Metrics.BIND, count);
+        }
+        assertEquals(0, Allocations.getAllocatedBytes() - bytes);
+    }
+}
@@ -0,0 +1,255 @@
+package io.github.neelkamath.timebend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ReserveClockTest {
+    private final List<Integer> reserves = new ArrayList<>();
+    private TestPreferences times;
+    private FakeClock clock;
+    private FakeScheduler scheduler;
+    private ReserveClock reserveClock;
+
+    @Before
+    public void setUp() {
+        times = new TestPreferences();
+        times.edit()
+                .putInt("startHour", 9)
+                .putInt("startMinute", 0)
+                .putInt("endHour", 17)
+                .putInt("endMinute", 0)
+                .apply();
+        clock = new FakeClock(getMillisAt(12, 0));
+        scheduler = new FakeScheduler();
+        reserveClock = new ReserveClock(
+                times,
+                clock,
+                scheduler,
+                new ReserveClock.Listener() {
+                    @Override
+                    public void onReserveChanged(int reserve) {
+                        reserves.add(reserve);
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void computeReserveCountsFromNowDuringTheDay() {
+        assertEquals(5 * 60 - 30, ReserveClock.computeReserve(9 * 60, 17 * 60, 12 * 60, 30));
+    }
+
+    @Test
+    public void computeReserveCountsTheWholeDayOutsideIt() {
+        assertEquals(8 * 60 - 30, ReserveClock.computeReserve(9 * 60, 17 * 60, 8 * 60, 30));
+        assertEquals(8 * 60 - 30, ReserveClock.computeReserve(9 * 60, 17 * 60, 18 * 60, 30));
+    }
+
+    @Test
+    public void computeReserveIsNegativeWhenOverplanned() {
+        assertEquals(-60, ReserveClock.computeReserve(9 * 60, 17 * 60, 8 * 60, 9 * 60));
+    }
+
+    @Test
+    public void getEndMinutesWrapsPastMidnight() {
+        assertEquals(17 * 60 + 30, ReserveClock.getEndMinutes(9, 17, 30));
+        assertEquals((24 + 2) * 60, ReserveClock.getEndMinutes(22, 2, 0));
+    }
+
+    @Test
+    public void startReportsTheReserve() {
+        reserveClock.setIncompleteDuration(60);
+        reserveClock.start();
+        assertEquals(5 * 60 - 60, (int) reserves.get(reserves.size() - 1));
+        assertEquals(12 * 60, reserveClock.getScheduleStart());
+    }
+
+    @Test
+    public void setIncompleteDurationUpdatesTheReserveWithoutWaiting() {
+        reserveClock.start();
+        reserves.clear();
+        reserveClock.setIncompleteDuration(45);
+        assertEquals(1, reserves.size());
+        assertEquals(5 * 60 - 45, (int) reserves.get(0));
+    }
+
+    @Test
+    public void setIncompleteDurationToTheSameTotalDoesNothing() {
+        reserveClock.setIncompleteDuration(45);
+        reserveClock.start();
+        reserves.clear();
+        reserveClock.setIncompleteDuration(45);
+        assertEquals(0, reserves.size());
+    }
+
+    @Test
+    public void changingTheDayBoundsUpdatesTheReserve() {
+        reserveClock.start();
+        reserves.clear();
+        times.edit().putInt("endHour", 18).apply();
+        assertEquals(6 * 60, (int) reserves.get(reserves.size() - 1));
+    }
+
+    @Test
+    public void unsetDayBoundsGiveNoReserve() {
+        times.edit().remove("endHour").apply();
+        reserveClock.start();
+        assertEquals(ReserveClock.NO_RESERVE, (int) reserves.get(reserves.size() - 1));
+        assertNull(scheduler.pending);
+    }
+
+    @Test
+    public void stopCancelsTheWakeUpAndStopsListening() {
+        reserveClock.start();
+        assertNotNull(scheduler.pending);
+        reserveClock.stop();
+        assertNull(scheduler.pending);
+        assertEquals(0, times.getListenerCount());
+    }
+
+    @Test
+    public void getNextChangeMinuteWaitsForTheStartOfTheDay() {
+        assertEquals(9 * 60 + 1, ReserveClock.getNextChangeMinute(9 * 60, 17 * 60, 8 * 60));
+    }
+
+    @Test
+    public void getNextChangeMinuteTicksDuringTheDay() {
+        assertEquals(12 * 60 + 1, ReserveClock.getNextChangeMinute(9 * 60, 17 * 60, 12 * 60));
+    }
+
+    @Test
+    public void getNextChangeMinuteWaitsForTomorrowAfterTheEnd() {
+        assertEquals(
+                24 * 60 + 9 * 60 + 1,
+                ReserveClock.getNextChangeMinute(9 * 60, 17 * 60, 18 * 60)
+        );
+    }
+
+    @Test
+    public void getNextChangeMinuteIsNeverForAnEmptyDay() {
+        assertEquals(ReserveClock.NEVER, ReserveClock.getNextChangeMinute(9 * 60, 9 * 60, 0));
+    }
+
+    @Test
+    public void wakesAtTheStartOfTheDayRatherThanEveryMinute() {
+        clock.now = getMillisAt(8, 0) + 30 * 1000;
+        reserveClock.start();
+        assertEquals(getMillisAt(9, 1) - clock.now, scheduler.delayMillis);
+    }
+
+    /**
+     * Over a whole day, the clock should only wake up during the day (once a minute, since the
+     * reserve shrinks every minute) and at its end, and only tell the listener when the reserve
+     * changed.
+     */
+    @Test
+    public void wakesOnlyWhenTheReserveCanChangeOverADay() {
+        clock.now = getMillisAt(0, 0);
+        reserveClock.start();
+        int wakeUps = 0;
+        long tomorrow = getMillisAt(24, 0);
+        while (clock.now + scheduler.delayMillis < tomorrow) {
+            scheduler.advance(clock);
+            wakeUps++;
+        }
+        // From 09:01 to 17:00 inclusive.
+        assertEquals(8 * 60, wakeUps);
+        // The first reserve, and one for each wake-up.
+        assertEquals(1 + 8 * 60, reserves.size());
+        assertEquals(8 * 60, (int) reserves.get(reserves.size() - 1));
+        assertEquals(getMillisAt(24 + 9, 1), clock.now + scheduler.delayMillis);
+    }
+
+    @Test
+    public void wakingUpDoesNotAllocate() {
+        final int[] changes = {0};
+        // Unlike the other tests' listener, this one doesn't box the reserves.
+        ReserveClock countingClock = new ReserveClock(
+                times,
+                clock,
+                scheduler,
+                new ReserveClock.Listener() {
+                    @Override
+                    public void onReserveChanged(int reserve) {
+                        changes[0]++;
+                    }
+                }
+        );
+        clock.now = getMillisAt(9, 0);
+        countingClock.start();
+        for (int minute = 0; minute < 60; minute++) {
+            scheduler.advance(clock);
+        }
+        long bytes = Allocations.getAllocatedBytes();
+        for (int minute = 0; minute < 60; minute++) {
+            scheduler.advance(clock);
+        }
+        assertEquals(0, Allocations.getAllocatedBytes() - bytes);
+        assertEquals(1 + 2 * 60, changes[0]);
+    }
+
+    /**
+     * @return the time at the {@code hour} and {@code minute} of the same day each time the tests
+     * run, in the default time zone the clock uses
+     */
+    static long getMillisAt(int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2018, Calendar.JUNE, 15, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    static class FakeClock implements ReserveClock.Clock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    /**
+     * Holds the single wake-up the clock has scheduled, which {@link #advance(FakeClock)} runs.
+     */
+    static class FakeScheduler implements ReserveClock.Scheduler {
+        Runnable pending;
+        long delayMillis;
+        int scheduleCount = 0;
+
+        @Override
+        public void schedule(Runnable runnable, long delayMillis) {
+            pending = runnable;
+            this.delayMillis = delayMillis;
+            scheduleCount++;
+        }
+
+        @Override
+        public void cancel(Runnable runnable) {
+            if (pending == runnable) {
+                pending = null;
+            }
+        }
+
+        /**
+         * Moves the {@code clock} forward to the pending wake-up and runs it.
+         */
+        void advance(FakeClock clock) {
+            Runnable runnable = pending;
+            pending = null;
+            clock.now += delayMillis;
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.neelkamath.timebend;
+
+import android.text.SpannableString;
+import android.text.util.Linkify;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrolls up and down a window of activities whose tasks are full of links, binding each row as
+ * it comes on screen. It compares getting the row's text from the {@link RowModelCache} with
+ * linkifying it on every bind as {@code autoLink} did, and fails unless the cache is faster. It
+ * runs on Robolectric since {@link Linkify} needs the framework, and is skipped unless the build
+ * is run with {@code -Pbenchmark}, like
+ * {@link io.github.neelkamath.timebend.db.ActivityDaoBenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class RowModelCacheBenchmark {
+    /**
+     * The most activities the adapter holds at once.
+     */
+    private static final int ACTIVITIES = 200;
+    private static final int ROWS_ON_SCREEN = 15;
+    private static final long MEASURE_NANOS = 500L * 1000 * 1000;
+    private static final int WARM_UP_SCROLLS = 2;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("timebend.benchmark"));
+    }
+
+    @Test
+    public void benchmark() {
+        final List<Activity> activities = new ArrayList<>(ACTIVITIES);
+        for (int id = 0; id < ACTIVITIES; id++) {
+            Activity activity = new Activity(
+                    "Read https://example.com/articles/" + id + " and www.example.org/" + id
+                            + ", then mail notes" + id + "@example.com or call +1 650 555 "
+                            + String.format(Locale.US, "%04d", id),
+                    30,
+                    id,
+                    id % 3 == 0
+            );
+            activity.id = id;
+            activities.add(activity);
+        }
+        final RowModelCache cache = new RowModelCache();
+        cache.prefetch(activities);
+
+        double cached = measure("cached", activities, new Binder() {
+            @Override
+            public int bind(Activity activity) {
+                return cache.get(activity).task.length();
+            }
+        });
+        double linkified = measure("linkified", activities, new Binder() {
+            @Override
+            public int bind(Activity activity) {
+                SpannableString task = new SpannableString(activity.task);
+                Linkify.addLinks(task, Linkify.ALL);
+                return task.length();
+            }
+        });
+        assertTrue(cached + " vs " + linkified + " binds/s", cached > linkified);
+    }
+
+    /**
+     * Scrolls the {@code activities} down and back up a row at a time for {@link #MEASURE_NANOS}
+     * after warming up, binding each row which comes on screen.
+     *
+     * @return the binds per second
+     */
+    private static double measure(String name, List<Activity> activities, Binder binder) {
+        int checksum = 0;
+        for (int scroll = 0; scroll < WARM_UP_SCROLLS; scroll++) {
+            checksum += scroll(activities, binder);
+        }
+        int binds = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            checksum += scroll(activities, binder);
+            binds += 2 * (activities.size() - ROWS_ON_SCREEN);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NANOS);
+        double bindsPerSecond = binds / (elapsed / 1e9);
+        System.out.println(String.format(
+                Locale.US,
+                "%s,%d,%.1f,%d",
+                name,
+                activities.size(),
+                bindsPerSecond,
+                checksum
+        ));
+        return bindsPerSecond;
+    }
+
+    /**
+     * Scrolls to the bottom and back to the top.
+     *
+     * @return a checksum of what was bound, so that binding can't be optimized away
+     */
+    private static int scroll(List<Activity> activities, Binder binder) {
+        int checksum = 0;
+        for (int row = ROWS_ON_SCREEN; row < activities.size(); row++) {
+            checksum += binder.bind(activities.get(row));
+        }
+        for (int row = activities.size() - ROWS_ON_SCREEN - 1; row >= 0; row--) {
+            checksum += binder.bind(activities.get(row));
+        }
+        return checksum;
+    }
+
+    private interface Binder {
+        /**
+         * @return the length of the task's text
+         */
+        int bind(Activity activity);
+    }
+}
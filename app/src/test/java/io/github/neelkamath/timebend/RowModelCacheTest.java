@@ -0,0 +1,94 @@
+package io.github.neelkamath.timebend;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs on Robolectric since the cache uses {@link android.util.SparseArray} and
+ * {@link android.text.util.Linkify}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class RowModelCacheTest {
+    private final RowModelCache cache = new RowModelCache();
+
+    @Test
+    public void getReusesTheModelOfAnUnchangedActivity() {
+        Activity activity = createActivity(1);
+        assertSame(cache.get(activity), cache.get(activity));
+    }
+
+    @Test
+    public void getRebuildsTheModelOfAnEditedActivity() {
+        Activity activity = createActivity(1);
+        RowModelCache.RowModel model = cache.get(activity);
+        activity.isCompleted = true;
+        RowModelCache.RowModel edited = cache.get(activity);
+        assertNotSame(model, edited);
+        assertTrue(edited.isStruckThrough);
+        // The task didn't change, so its text is shared.
+        assertSame(model.task, edited.task);
+    }
+
+    @Test
+    public void theCacheIsBoundedAndKeepsTheRecentlyUsedModels() {
+        List<Activity> activities = new ArrayList<>();
+        for (int id = 0; id < 2000; id++) {
+            activities.add(createActivity(id));
+        }
+        Activity first = activities.get(0);
+        RowModelCache.RowModel model = cache.get(first);
+        for (Activity activity : activities) {
+            cache.get(activity);
+            cache.get(first);
+            assertTrue(cache.size() <= 500);
+        }
+        assertSame(model, cache.get(first));
+    }
+
+    @Test
+    public void trimDropsModelsWhenMemoryIsLow() {
+        for (int id = 0; id < 400; id++) {
+            cache.get(createActivity(id));
+        }
+        cache.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(400 - 250, cache.size());
+        cache.trim(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void getDoesNotAllocateOnceTheModelsAreCached() {
+        List<Activity> activities = new ArrayList<>();
+        for (int id = 0; id < 200; id++) {
+            activities.add(createActivity(id * 1000));
+        }
+        cache.prefetch(activities);
+        cache.prefetch(activities);
+        long bytes = Allocations.getAllocatedBytes();
+        for (int index = 0; index < activities.size(); index++) {
+            cache.get(activities.get(index));
+        }
+        assertEquals(0, Allocations.getAllocatedBytes() - bytes);
+    }
+
+    private static Activity createActivity(int id) {
+        Activity activity = new Activity("task " + id, 10, id, false);
+        activity.id = id;
+        return activity;
+    }
+}
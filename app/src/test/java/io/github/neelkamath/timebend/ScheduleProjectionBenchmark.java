@@ -0,0 +1,160 @@
+package io.github.neelkamath.timebend;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link ScheduleProjection} with recomputing every prefix sum after each change, on
+ * lists of 200 (the most the adapter holds at once) to 100,000 activities. Each operation
+ * completes or reopens a random activity and then looks up the projected starts of a screen of
+ * rows, as happens when a row is toggled. It fails unless the projection is faster from 10,000
+ * activities on. It's skipped unless the build is run with {@code -Pbenchmark}, like
+ * {@link io.github.neelkamath.timebend.db.ActivityDaoBenchmark}, and only prints its results.
+ */
+public class ScheduleProjectionBenchmark {
+    private static final int[] SIZES = {200, 1000, 10000, 100000};
+    /**
+     * The smallest size from which the projection must be faster.
+     */
+    private static final int MIN_FASTER_SIZE = 10000;
+    private static final int ROWS_ON_SCREEN = 20;
+    private static final long MEASURE_NANOS = 500L * 1000 * 1000;
+    private static final int WARM_UP_ITERATIONS = 1000;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("timebend.benchmark"));
+    }
+
+    @Test
+    public void benchmark() {
+        for (int size : SIZES) {
+            final List<Activity> activities = createActivities(size);
+            final ScheduleProjection projection = new ScheduleProjection();
+            projection.reset(activities);
+            final int[] sums = new int[size + 1];
+            recompute(activities, sums);
+
+            double projected = measure("projection", size, new Operation() {
+                @Override
+                public int run(int index, int firstRow) {
+                    Activity activity = activities.get(index);
+                    activity.isCompleted = !activity.isCompleted;
+                    projection.update(index, activity);
+                    int checksum = 0;
+                    for (int row = firstRow; row < firstRow + ROWS_ON_SCREEN; row++) {
+                        checksum += projection.getMinutesBefore(row);
+                    }
+                    return checksum;
+                }
+            });
+            recompute(activities, sums);
+            for (int index = 0; index <= size; index++) {
+                assertEquals(sums[index], projection.getMinutesBefore(index));
+            }
+            double naive = measure("naive", size, new Operation() {
+                @Override
+                public int run(int index, int firstRow) {
+                    Activity activity = activities.get(index);
+                    activity.isCompleted = !activity.isCompleted;
+                    recompute(activities, sums);
+                    int checksum = 0;
+                    for (int row = firstRow; row < firstRow + ROWS_ON_SCREEN; row++) {
+                        checksum += sums[row];
+                    }
+                    return checksum;
+                }
+            });
+            if (size >= MIN_FASTER_SIZE) {
+                assertTrue(size + ": " + projected + " vs " + naive + " ops/s", projected > naive);
+            }
+        }
+    }
+
+    /**
+     * Runs the {@code operation} on random activities for {@link #MEASURE_NANOS} after warming
+     * up. A checksum of the lookups is printed with the result so that they can't be optimized
+     * away.
+     *
+     * @return the operations per second
+     */
+    private static double measure(String name, int size, Operation operation) {
+        Random random = new Random(size);
+        int checksum = 0;
+        for (int iteration = 0; iteration < WARM_UP_ITERATIONS; iteration++) {
+            checksum += runRandomly(operation, random, size);
+        }
+        int count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            checksum += runRandomly(operation, random, size);
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NANOS);
+        double opsPerSecond = count / (elapsed / 1e9);
+        System.out.println(String.format(
+                Locale.US,
+                "%s,%d,%.1f,%d",
+                name,
+                size,
+                opsPerSecond,
+                checksum
+        ));
+        return opsPerSecond;
+    }
+
+    private static int runRandomly(Operation operation, Random random, int size) {
+        return operation.run(
+                random.nextInt(size),
+                random.nextInt(size - ROWS_ON_SCREEN + 1)
+        );
+    }
+
+    /**
+     * Naively sets each of the {@code sums} to the duration of the incomplete activities before
+     * it.
+     */
+    private static void recompute(List<Activity> activities, int[] sums) {
+        int sum = 0;
+        for (int index = 0; index < activities.size(); index++) {
+            sums[index] = sum;
+            Activity activity = activities.get(index);
+            sum += activity.isCompleted ? 0 : activity.duration;
+        }
+        sums[activities.size()] = sum;
+    }
+
+    private static List<Activity> createActivities(int size) {
+        List<Activity> activities = new ArrayList<>(size);
+        for (int position = 0; position < size; position++) {
+            activities.add(new Activity(
+                    "activity " + position,
+                    5 + position % 60,
+                    position,
+                    position % 3 == 0
+            ));
+        }
+        return activities;
+    }
+
+    private interface Operation {
+        /**
+         * @param index    the index of the activity to toggle
+         * @param firstRow the index of the first row on screen
+         * @return a sum of the projected starts, so that the lookups can't be optimized away
+         */
+        int run(int index, int firstRow);
+    }
+}
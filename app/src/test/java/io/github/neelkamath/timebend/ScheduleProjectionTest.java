@@ -0,0 +1,134 @@
+package io.github.neelkamath.timebend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import io.github.neelkamath.timebend.db.Activity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the projection against naively summing the durations before each activity.
+ */
+public class ScheduleProjectionTest {
+    private final ScheduleProjection projection = new ScheduleProjection();
+    private final List<Activity> activities = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        for (int index = 0; index < 7; index++) {
+            activities.add(new Activity("task " + index, 10 * (index + 1), index, index == 2));
+        }
+        projection.reset(activities);
+    }
+
+    @Test
+    public void resetProjectsEveryActivity() {
+        assertMatchesNaiveSums();
+    }
+
+    @Test
+    public void resetToNothingIsEmpty() {
+        activities.clear();
+        projection.reset(activities);
+        assertEquals(0, projection.size());
+        assertEquals(0, projection.getMinutesBefore(0));
+    }
+
+    @Test
+    public void updateCountsACompletedActivityAsNothing() {
+        activities.get(4).isCompleted = true;
+        assertTrue(projection.update(4, activities.get(4)));
+        assertMatchesNaiveSums();
+    }
+
+    @Test
+    public void updateWithTheSameDurationChangesNothing() {
+        activities.get(4).task = "renamed";
+        assertFalse(projection.update(4, activities.get(4)));
+        assertMatchesNaiveSums();
+    }
+
+    @Test
+    public void swapExchangesDurations() {
+        Collections.swap(activities, 1, 5);
+        projection.swap(1, 5);
+        assertMatchesNaiveSums();
+    }
+
+    @Test
+    public void removeMovesTheRestUp() {
+        activities.remove(0);
+        projection.remove(0);
+        activities.remove(3);
+        projection.remove(3);
+        assertMatchesNaiveSums();
+    }
+
+    @Test
+    public void operationsAfterRemovingUseTheNewIndices() {
+        activities.remove(1);
+        projection.remove(1);
+        Collections.swap(activities, 0, 4);
+        projection.swap(0, 4);
+        activities.get(2).duration = 100;
+        projection.update(2, activities.get(2));
+        assertMatchesNaiveSums();
+    }
+
+    @Test
+    public void randomOperationsMatchNaiveSums() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            activities.clear();
+            int size = 1 + random.nextInt(200);
+            for (int index = 0; index < size; index++) {
+                activities.add(new Activity(
+                        "task",
+                        random.nextInt(120),
+                        index,
+                        random.nextInt(4) == 0
+                ));
+            }
+            projection.reset(activities);
+            for (int step = 0; step < 300 && !activities.isEmpty(); step++) {
+                int index = random.nextInt(activities.size());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        Activity activity = activities.get(index);
+                        activity.duration = random.nextInt(120);
+                        activity.isCompleted = random.nextBoolean();
+                        projection.update(index, activity);
+                        break;
+                    case 1:
+                        int other = random.nextInt(activities.size());
+                        Collections.swap(activities, index, other);
+                        projection.swap(index, other);
+                        break;
+                    default:
+                        activities.remove(index);
+                        projection.remove(index);
+                }
+                assertMatchesNaiveSums();
+            }
+        }
+    }
+
+    private void assertMatchesNaiveSums() {
+        assertEquals(activities.size(), projection.size());
+        int sum = 0;
+        for (int index = 0; index < activities.size(); index++) {
+            assertEquals(sum, projection.getMinutesBefore(index));
+            Activity activity = activities.get(index);
+            sum += activity.isCompleted ? 0 : activity.duration;
+        }
+        assertEquals(sum, projection.getMinutesBefore(activities.size()));
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.neelkamath.timebend;
+
+import android.app.Application;
+import android.os.SystemClock;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.List;
+
+import io.github.neelkamath.timebend.db.Activity;
+import io.github.neelkamath.timebend.db.ActivityRepository;
+import io.github.neelkamath.timebend.db.Plan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs on Robolectric so that the {@link SystemClock} is under the test's control, and so that a
+ * cold start (the {@link TimeBendApplication} being created and then {@link MainActivity}) can be
+ * timed end to end.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class StartupMetricsTest {
+    /**
+     * How long a cold start may take to show its first row before the test fails.
+     */
+    private static final long TIMEOUT_MILLIS = 10 * 1000;
+
+    @Test
+    @Config(application = Application.class)
+    public void stepsAreUntimedUntilTheyHappen() {
+        StartupMetrics.markApplicationCreated();
+        assertEquals(-1, StartupMetrics.getTimeToFirstPage());
+        assertEquals(-1, StartupMetrics.getTimeToDayBounds());
+        assertEquals(-1, StartupMetrics.getTimeToFirstRow());
+    }
+
+    @Test
+    @Config(application = Application.class)
+    public void stepsAreTimedFromTheApplicationBeingCreated() {
+        StartupMetrics.markApplicationCreated();
+        SystemClock.sleep(20);
+        StartupMetrics.markDayBoundsLoaded();
+        SystemClock.sleep(30);
+        StartupMetrics.markFirstPageLoaded();
+        SystemClock.sleep(50);
+        StartupMetrics.markFirstRowBound();
+        assertEquals(20, StartupMetrics.getTimeToDayBounds());
+        assertEquals(50, StartupMetrics.getTimeToFirstPage());
+        assertEquals(100, StartupMetrics.getTimeToFirstRow());
+    }
+
+    @Test
+    @Config(application = Application.class)
+    public void onlyTheFirstBoundRowIsTimed() {
+        StartupMetrics.markApplicationCreated();
+        StartupMetrics.markFirstRowBound();
+        SystemClock.sleep(10);
+        StartupMetrics.markFirstRowBound();
+        assertEquals(0, StartupMetrics.getTimeToFirstRow());
+    }
+
+    /**
+     * The {@link TimeBendApplication} has already started its {@link StartupPipeline} by the time
+     * this runs, so the prefetched page may not have the activity added here. The row is then
+     * bound once Room's own query has read it.
+     */
+    @Test
+    public void aColdStartIsTimedThroughToTheFirstBoundRow() throws InterruptedException {
+        ActivityRepository repository =
+                TimeBendApplication.getRepository(RuntimeEnvironment.application);
+        repository.append(new Activity("Write", 10, 0, false));
+        final boolean[] isCommitted = {false};
+        // Plans are read after every mutation queued before them has been committed.
+        repository.readPlans(new ActivityRepository.PlansListener() {
+            @Override
+            public void onPlansRead(List<Plan> plans) {
+                isCommitted[0] = true;
+            }
+        });
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!isCommitted[0]) {
+            awaitMainLooper(deadline);
+        }
+
+        MainActivity activity = Robolectric.buildActivity(MainActivity.class).setup().get();
+        RecyclerView recyclerView = activity.findViewById(R.id.recyclerView);
+        while (StartupMetrics.getTimeToFirstRow() == -1
+                || StartupMetrics.getTimeToFirstPage() == -1
+                || StartupMetrics.getTimeToDayBounds() == -1) {
+            awaitMainLooper(deadline);
+            recyclerView.measure(
+                    View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY)
+            );
+            recyclerView.layout(0, 0, 1080, 1920);
+        }
+        assertTrue(StartupMetrics.getTimeToFirstPage() >= 0);
+        assertTrue(StartupMetrics.getTimeToDayBounds() >= 0);
+        assertTrue(StartupMetrics.getTimeToFirstRow() >= 0);
+    }
+
+    /**
+     * Runs what the background threads have posted to the main thread so far, failing once the
+     * {@code deadline} has passed.
+     *
+     * @param deadline milliseconds since the epoch
+     */
+    private static void awaitMainLooper(long deadline) throws InterruptedException {
+        assertTrue("Timed out", System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+        ShadowLooper.idleMainLooper();
+    }
+}
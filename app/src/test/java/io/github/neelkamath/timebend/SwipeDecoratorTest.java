@@ -0,0 +1,77 @@
+package io.github.neelkamath.timebend;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs on Robolectric so that the icons can be decoded from the app's resources.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class SwipeDecoratorTest {
+    private static final int FRAMES = 100;
+
+    /**
+     * Swiping two rows each way for many frames draws the same two bitmaps and paints every
+     * frame, so none are decoded or created while drawing.
+     */
+    @Test
+    public void drawingReusesTheSameBitmapsAndPaints() {
+        SwipeDecorator decorator =
+                new SwipeDecorator(RuntimeEnvironment.application.getResources());
+        View first = createRow(0);
+        View second = createRow(1);
+        RecordingCanvas canvas = new RecordingCanvas();
+        for (int frame = 1; frame <= FRAMES; frame++) {
+            decorator.draw(canvas, first, frame);
+            decorator.draw(canvas, first, -frame);
+            decorator.draw(canvas, second, frame);
+            decorator.draw(canvas, second, -frame);
+        }
+        assertEquals(4 * FRAMES, canvas.draws);
+        assertEquals(2, canvas.bitmaps.size());
+        assertEquals(2, canvas.paints.size());
+    }
+
+    private static View createRow(int index) {
+        View view = new View(RuntimeEnvironment.application);
+        view.layout(0, 150 * index, 1080, 150 * (index + 1));
+        return view;
+    }
+
+    /**
+     * Remembers which bitmaps and paints it was told to draw with instead of drawing.
+     */
+    private static class RecordingCanvas extends Canvas {
+        final Set<Bitmap> bitmaps =
+                Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+        final Set<Paint> paints = Collections.newSetFromMap(new IdentityHashMap<Paint, Boolean>());
+        int draws = 0;
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+            paints.add(paint);
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+            bitmaps.add(bitmap);
+            paints.add(paint);
+            draws++;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.neelkamath.timebend;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeFormatterTest {
+    private final char[] buffer = new char[TimeFormatter.BUFFER_SIZE];
+
+    @Test
+    public void formatClockTimeIn24HourTime() {
+        assertFormatted("21:05", TimeFormatter.formatClockTime(21 * 60 + 5, true, buffer, 0));
+    }
+
+    @Test
+    public void formatClockTimeIn12HourTime() {
+        assertFormatted("9:05", TimeFormatter.formatClockTime(21 * 60 + 5, false, buffer, 0));
+        assertFormatted("12:30", TimeFormatter.formatClockTime(12 * 60 + 30, false, buffer, 0));
+    }
+
+    @Test
+    public void formatClockTimeWrapsPastMidnight() {
+        assertFormatted("1:00", TimeFormatter.formatClockTime(25 * 60, true, buffer, 0));
+    }
+
+    @Test
+    public void formatClockRangeJoinsBothTimes() {
+        assertFormatted(
+                "9:05-10:15",
+                TimeFormatter.formatClockRange(9 * 60 + 5, 10 * 60 + 15, true, buffer, 0)
+        );
+    }
+
+    @Test
+    public void formatDayTimeAlwaysHasItsHalfOfTheDay() {
+        assertFormatted("9:05 PM", TimeFormatter.formatDayTime(21, 5, false, buffer, 0));
+        assertFormatted("21:05 PM", TimeFormatter.formatDayTime(21, 5, true, buffer, 0));
+        assertFormatted("7:00 AM", TimeFormatter.formatDayTime(7, 0, false, buffer, 0));
+    }
+
+    @Test
+    public void formatDurationOfOverAnHour() {
+        assertFormatted("12:07", TimeFormatter.formatDuration(12 * 60 + 7, buffer, 0));
+    }
+
+    @Test
+    public void formatDurationWhenOverplanned() {
+        assertFormatted("-1:05", TimeFormatter.formatDuration(-65, buffer, 0));
+        assertFormatted("0:00", TimeFormatter.formatDuration(0, buffer, 0));
+    }
+
+    @Test
+    public void formattingWritesAtTheOffset() {
+        buffer[0] = 'x';
+        int length = TimeFormatter.formatDuration(5, buffer, 1);
+        assertEquals("x0:05", new String(buffer, 0, length));
+    }
+
+    @Test
+    public void formattingDoesNotAllocate() {
+        for (int minutes = 0; minutes < 24 * 60; minutes++) {
+            TimeFormatter.formatClockRange(minutes, minutes + 30, false, buffer, 0);
+        }
+        long bytes = Allocations.getAllocatedBytes();
+        for (int minutes = 0; minutes < 24 * 60; minutes++) {
+            TimeFormatter.formatClockRange(minutes, minutes + 30, false, buffer, 0);
+            TimeFormatter.formatDuration(minutes - 60, buffer, 0);
+        }
+        assertEquals(0, Allocations.getAllocatedBytes() - bytes);
+    }
+
+    private void assertFormatted(String expected, int length) {
+        assertEquals(expected, new String(buffer, 0, length));
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.neelkamath.timebend.db;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ActivityCsvTest {
+    @Test
+    public void readSplitsPlainFields() throws IOException {
+        ActivityCsv.RecordReader reader = reader("task,duration,is_completed\nyoga,20,0\n");
+        assertEquals(Arrays.asList("task", "duration", "is_completed"), reader.read());
+        assertEquals(Arrays.asList("yoga", "20", "0"), reader.read());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void readAcceptsCrlfAndAMissingFinalLineBreak() throws IOException {
+        ActivityCsv.RecordReader reader = reader("a,1,0\r\nb,2,1");
+        assertEquals(Arrays.asList("a", "1", "0"), reader.read());
+        assertEquals(Arrays.asList("b", "2", "1"), reader.read());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void readAcceptsALoneCarriageReturn() throws IOException {
+        ActivityCsv.RecordReader reader = reader("a,1,0\rb,2,1\r");
+        assertEquals(Arrays.asList("a", "1", "0"), reader.read());
+        assertEquals(Arrays.asList("b", "2", "1"), reader.read());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void readUnquotesFields() throws IOException {
+        ActivityCsv.RecordReader reader =
+                reader("\"yoga, then \"\"tea\"\"\",20,0\n\"line\r\nbreak\",5,1\n");
+        assertEquals(Arrays.asList("yoga, then \"tea\"", "20", "0"), reader.read());
+        assertEquals(Arrays.asList("line\r\nbreak", "5", "1"), reader.read());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void readRejectsAnUnterminatedQuote() {
+        try {
+            reader("\"yoga,20,0\n").read();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void writeFieldOnlyQuotesWhenNeeded() throws IOException {
+        assertEquals("yoga", writeField("yoga"));
+        assertEquals("\"a,b\"", writeField("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", writeField("say \"hi\""));
+        assertEquals("\"a\nb\"", writeField("a\nb"));
+        assertEquals("\"a\rb\"", writeField("a\rb"));
+    }
+
+    @Test
+    public void writtenFieldsReadBackUnchanged() throws IOException {
+        List<String> fields = Arrays.asList(
+                "plain",
+                "comma, inside",
+                "\"quoted\"",
+                "windows\r\nline",
+                "unix\nline",
+                "",
+                "trailing \""
+        );
+        StringWriter writer = new StringWriter();
+        for (int index = 0; index < fields.size(); index++) {
+            if (index > 0) {
+                writer.write(',');
+            }
+            ActivityCsv.writeField(writer, fields.get(index));
+        }
+        writer.write("\r\n");
+        ActivityCsv.RecordReader reader = reader(writer.toString());
+        assertEquals(fields, reader.read());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void parseReadsAnActivity() {
+        Activity activity = ActivityCsv.parse(Arrays.asList(" yoga ", " 20 ", "true"));
+        assertEquals("yoga", activity.task);
+        assertEquals(20, activity.duration);
+        assertTrue(activity.isCompleted);
+        assertFalse(ActivityCsv.parse(Arrays.asList("tea", "5", "0")).isCompleted);
+    }
+
+    @Test
+    public void parseSkipsInvalidRecords() {
+        assertNull(ActivityCsv.parse(Arrays.asList("task", "duration", "is_completed")));
+        assertNull(ActivityCsv.parse(Arrays.asList("yoga", "0", "0")));
+        assertNull(ActivityCsv.parse(Arrays.asList("yoga", "61", "0")));
+        assertNull(ActivityCsv.parse(Arrays.asList(" ", "5", "0")));
+        assertNull(ActivityCsv.parse(Arrays.asList("yoga", "5")));
+    }
+
+    private static ActivityCsv.RecordReader reader(String csv) {
+        return new ActivityCsv.RecordReader(new StringReader(csv));
+    }
+
+    private static String writeField(String field) throws IOException {
+        StringWriter writer = new StringWriter();
+        ActivityCsv.writeField(writer, field);
+        return writer.toString();
+    }
+}
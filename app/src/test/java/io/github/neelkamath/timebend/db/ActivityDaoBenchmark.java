@@ -0,0 +1,346 @@
+package io.github.neelkamath.timebend.db;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Observer;
+import android.arch.persistence.room.RoomDatabase;
+import android.support.annotation.Nullable;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import io.github.neelkamath.timebend.Allocations;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Measures the throughput and allocations of {@link ActivityDao}'s hot paths on plans of 10 to
+ * 100,000 activities. It's skipped unless the build is run with {@code -Pbenchmark}, e.g.,
+ * {@code ./gradlew testDebugUnitTest -Pbenchmark --tests '*ActivityDaoBenchmark'}.
+ * <p>
+ * The results are written to {@code app/build/benchmarks/latest.csv} and compared with
+ * {@code app/benchmarks/baseline.csv}. The benchmark fails if an operation's throughput has dropped
+ * by more than {@link #TOLERANCE}, or if the baseline has no row for it. Running it with
+ * {@code -PrecordBaseline} as well writes the results to the baseline instead. Since this runs on
+ * Robolectric's SQLite rather than a device's, the numbers are only comparable between runs on the
+ * same machine.
+ * <p>
+ * Everything runs on the database's write executor like the app's writes do, so the allocations
+ * are those of the thread calling the DAO (not SQLite's native memory). Room's invalidations and
+ * {@link LiveData} are run synchronously by the {@link InstantTaskExecutorRule}, so an operation
+ * which invalidates {@link ActivityDao#getSnapshotLive(long, int, int)} includes requerying it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class ActivityDaoBenchmark {
+    private static final int[] SIZES = {10, 100, 1000, 10000, 100000};
+    /**
+     * How long each operation is repeated for after warming up.
+     */
+    private static final long MEASURE_NANOS = 500L * 1000 * 1000;
+    private static final int WARM_UP_ITERATIONS = 5;
+    /**
+     * The fraction of the baseline's throughput which may be lost before the benchmark fails.
+     */
+    private static final double TOLERANCE = 0.5;
+    @Rule
+    public final InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+    private final List<String> results = new ArrayList<>();
+    private AppDatabase database;
+    private ActivityDao activityDao;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("timebend.benchmark"));
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        for (int size : SIZES) {
+            database = AppDatabase.create(
+                    RuntimeEnvironment.application,
+                    new StorageProfile.Builder("benchmark")
+                            .setLocation(StorageProfile.Location.MEMORY)
+                            .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                            .build()
+            );
+            activityDao = database.activityDao();
+            try {
+                benchmark(size);
+            } finally {
+                database.close();
+                database.getProfile().writeExecutor.shutdown();
+                database.getProfile().readExecutor.shutdown();
+            }
+        }
+        File baseline = new File(System.getProperty("timebend.benchmark.baseline"));
+        if (Boolean.getBoolean("timebend.benchmark.record")) {
+            write(baseline);
+        } else {
+            write(new File(System.getProperty("timebend.benchmark.output")));
+            compare(baseline);
+        }
+    }
+
+    private void benchmark(final int size) throws Exception {
+        long start = System.nanoTime();
+        onWriter(new Callable<Void>() {
+            @Override
+            public Void call() {
+                List<Activity> activities = new ArrayList<>(size);
+                for (int position = 0; position < size; position++) {
+                    Activity activity =
+                            new Activity("activity " + position, 30, position, position % 3 == 0);
+                    activity.planId = Plan.DEFAULT_ID;
+                    activities.add(activity);
+                }
+                database.beginTransaction();
+                try {
+                    activityDao.insertActivities(activities);
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+                return null;
+            }
+        });
+        record("insert batch", size, size / ((System.nanoTime() - start) / 1e9), 0);
+
+        final Activity middle = getActivityAt(size / 2);
+        measure("delete and reinsert", size, new Operation() {
+            @Override
+            public void run(int iteration) {
+                activityDao.deleteAndRenumber(middle);
+                activityDao.insertAndRenumber(middle);
+            }
+        });
+        // A drag is committed as one move when it's dropped, so swapping neighbours is a move of
+        // one step. Moves go there and back so that the other activities' positions stay valid.
+        final Activity adjacent = getActivityAt(size / 2 - 1);
+        measure("swap adjacent", size, new Operation() {
+            @Override
+            public void run(int iteration) {
+                activityDao.moveActivity(adjacent, size / 2 - 1, size / 2);
+                activityDao.moveActivity(adjacent, size / 2, size / 2 - 1);
+            }
+        });
+        final Activity quarter = getActivityAt(size / 4);
+        final int from = size / 4;
+        final int to = 3 * size / 4;
+        measure("move", size, new Operation() {
+            @Override
+            public void run(int iteration) {
+                activityDao.moveActivity(quarter, from, to);
+                activityDao.moveActivity(quarter, to, from);
+            }
+        });
+        measure("update", size, new Operation() {
+            @Override
+            public void run(int iteration) {
+                middle.isCompleted = iteration % 2 == 0;
+                activityDao.updateActivity(middle);
+            }
+        });
+        measureSnapshotInvalidation(size, middle);
+        measure("get all", size, new Operation() {
+            @Override
+            public void run(int iteration) {
+                activityDao.getAll(Plan.DEFAULT_ID);
+            }
+        });
+        measure("snapshot", size, new Operation() {
+            @Override
+            public void run(int iteration) {
+                activityDao.getSnapshot(Plan.DEFAULT_ID, 0, ActivityRepository.PAGE_SIZE);
+            }
+        });
+        measure("incomplete duration", size, new Operation() {
+            @Override
+            public void run(int iteration) {
+                activityDao.getIncompleteActivitiesDuration(Plan.DEFAULT_ID);
+            }
+        });
+    }
+
+    /**
+     * Measures an update of the {@code activity} while the first page of the snapshot is
+     * observed, which includes Room invalidating the snapshot and running its query again.
+     */
+    private void measureSnapshotInvalidation(int size, final Activity activity) throws Exception {
+        final int[] deliveries = {0};
+        final Observer<List<PlanRow>> observer = new Observer<List<PlanRow>>() {
+            @Override
+            public void onChanged(@Nullable List<PlanRow> rows) {
+                deliveries[0]++;
+            }
+        };
+        final LiveData<List<PlanRow>> snapshot =
+                activityDao.getSnapshotLive(Plan.DEFAULT_ID, 0, ActivityRepository.PAGE_SIZE);
+        onWriter(new Callable<Void>() {
+            @Override
+            public Void call() {
+                snapshot.observeForever(observer);
+                return null;
+            }
+        });
+        try {
+            measure("update with snapshot observed", size, new Operation() {
+                @Override
+                public void run(int iteration) {
+                    int before = deliveries[0];
+                    activity.isCompleted = iteration % 2 == 0;
+                    activityDao.updateActivity(activity);
+                    if (deliveries[0] == before) {
+                        throw new AssertionError("The snapshot wasn't invalidated");
+                    }
+                }
+            });
+        } finally {
+            onWriter(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    snapshot.removeObserver(observer);
+                    return null;
+                }
+            });
+        }
+    }
+
+    private Activity getActivityAt(final int position) throws Exception {
+        return onWriter(new Callable<Activity>() {
+            @Override
+            public Activity call() {
+                return activityDao
+                        .getSnapshot(Plan.DEFAULT_ID, position, position + 1)
+                        .get(0)
+                        .activity;
+            }
+        });
+    }
+
+    /**
+     * Repeats the {@code operation} on the write executor for {@link #MEASURE_NANOS} after
+     * warming up, and records its throughput and allocations.
+     */
+    private void measure(final String name, final int size, final Operation operation)
+            throws Exception {
+        onWriter(new Callable<Void>() {
+            @Override
+            public Void call() {
+                int iteration = 0;
+                for (; iteration < WARM_UP_ITERATIONS; iteration++) {
+                    operation.run(iteration);
+                }
+                int count = 0;
+                long bytes = Allocations.getAllocatedBytes();
+                long start = System.nanoTime();
+                long elapsed;
+                do {
+                    operation.run(iteration++);
+                    count++;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < MEASURE_NANOS);
+                bytes = Allocations.getAllocatedBytes() - bytes;
+                record(name, size, count / (elapsed / 1e9), bytes / count);
+                return null;
+            }
+        });
+    }
+
+    private <T> T onWriter(Callable<T> callable) throws Exception {
+        return database.getProfile().writeExecutor.submit(callable).get();
+    }
+
+    private synchronized void record(String name, int size, double opsPerSecond, long bytesPerOp) {
+        String result = String.format(
+                Locale.US,
+                "%s,%d,%.1f,%d",
+                name,
+                size,
+                opsPerSecond,
+                bytesPerOp
+        );
+        System.out.println(result);
+        results.add(result);
+    }
+
+    private void write(File file) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create " + directory);
+        }
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("operation,size,ops_per_second,bytes_per_op\n");
+            for (String result : results) {
+                writer.write(result);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Fails if any operation's throughput is more than {@link #TOLERANCE} below the
+     * {@code baseline}'s, or if the {@code baseline} doesn't have it.
+     */
+    private void compare(File baseline) throws IOException {
+        Map<String, Double> expected = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(baseline))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                expected.put(fields[0] + "," + fields[1], Double.parseDouble(fields[2]));
+            }
+        }
+        StringBuilder regressions = new StringBuilder();
+        for (String result : results) {
+            String[] fields = result.split(",");
+            Double baselineOps = expected.get(fields[0] + "," + fields[1]);
+            double ops = Double.parseDouble(fields[2]);
+            if (baselineOps == null) {
+                regressions
+                        .append(fields[0])
+                        .append(" of ")
+                        .append(fields[1])
+                        .append(": not in the baseline\n");
+            } else if (ops < baselineOps * (1 - TOLERANCE)) {
+                regressions
+                        .append(fields[0])
+                        .append(" of ")
+                        .append(fields[1])
+                        .append(": ")
+                        .append(ops)
+                        .append(" ops/s (baseline ")
+                        .append(baselineOps)
+                        .append(")\n");
+            }
+        }
+        if (regressions.length() > 0) {
+            fail("Slower than or missing from the baseline (record it with -PrecordBaseline):\n"
+                    + regressions);
+        }
+    }
+
+    private interface Operation {
+        void run(int iteration);
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.neelkamath.timebend.db;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes {@link GlanceSnapshot}s for tests outside this package.
+ */
+public final class GlanceSnapshots {
+    private GlanceSnapshots() {
+    }
+
+    /**
+     * Writes a snapshot whose next incomplete activities have the {@code tasks}, each lasting ten
+     * minutes.
+     */
+    public static void write(Context context, int startHour, int startMinute, int endHour,
+                             int endMinute, String... tasks) throws IOException {
+        List<Activity> activities = new ArrayList<>();
+        for (String task : tasks) {
+            activities.add(new Activity(task, 10, activities.size(), false));
+        }
+        new GlanceSnapshot(
+                startHour,
+                startMinute,
+                endHour,
+                endMinute,
+                10 * tasks.length,
+                activities
+        ).write(context);
+    }
+}
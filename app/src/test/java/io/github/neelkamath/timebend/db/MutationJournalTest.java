@@ -0,0 +1,98 @@
+package io.github.neelkamath.timebend.db;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MutationJournalTest {
+    private final MutationJournal journal = new MutationJournal();
+
+    @Test
+    public void removeReturnsOnlyTheEntryWithTheToken() {
+        MutationJournal.Entry first = entry(1, 1);
+        MutationJournal.Entry second = entry(2, 1);
+        journal.record(first);
+        journal.record(second);
+        assertSame(first, journal.remove(1));
+        assertNull(journal.remove(1));
+        assertSame(second, journal.remove(2));
+        assertEquals(0, journal.size());
+    }
+
+    @Test
+    public void removeOfAnUnknownTokenDoesNothing() {
+        journal.record(entry(1, 1));
+        assertNull(journal.remove(7));
+        assertEquals(1, journal.size());
+    }
+
+    @Test
+    public void removingFromTheMiddleKeepsTheOrder() {
+        for (long token = 0; token < 5; token++) {
+            journal.record(entry(token, 1));
+        }
+        journal.remove(2);
+        assertEquals(4, journal.size());
+        for (long token : new long[]{0, 1, 3, 4}) {
+            assertEquals(token, journal.remove(token).token);
+        }
+    }
+
+    @Test
+    public void recordDropsTheOldestEntriesPastTheCapacity() {
+        for (long token = 0; token < MutationJournal.CAPACITY + 3; token++) {
+            journal.record(entry(token, 0));
+        }
+        assertEquals(MutationJournal.CAPACITY, journal.size());
+        for (long token = 0; token < 3; token++) {
+            assertNull(journal.remove(token));
+        }
+        long newest = MutationJournal.CAPACITY + 2;
+        assertEquals(3, journal.remove(3).token);
+        assertEquals(newest, journal.remove(newest).token);
+    }
+
+    @Test
+    public void recordDropsTheOldestEntriesPastTheRowLimit() {
+        journal.record(entry(1, MutationJournal.MAX_ROWS / 2));
+        journal.record(entry(2, MutationJournal.MAX_ROWS / 2));
+        journal.record(entry(3, 1));
+        assertNull(journal.remove(1));
+        assertEquals(2, journal.size());
+    }
+
+    @Test
+    public void recordSkipsAnEntryPastTheRowLimit() {
+        journal.record(entry(1, 1));
+        journal.record(entry(2, MutationJournal.MAX_ROWS + 1));
+        assertNull(journal.remove(2));
+        assertEquals(1, journal.size());
+    }
+
+    @Test
+    public void removedRowsAreFreedForLaterEntries() {
+        journal.record(entry(1, MutationJournal.MAX_ROWS));
+        journal.remove(1);
+        journal.record(entry(2, 1));
+        journal.record(entry(3, MutationJournal.MAX_ROWS - 1));
+        assertEquals(2, journal.size());
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        journal.record(entry(1, 1));
+        journal.clear();
+        assertEquals(0, journal.size());
+        assertNull(journal.remove(1));
+    }
+
+    private static MutationJournal.Entry entry(long token, int rowCount) {
+        return new MutationJournal.Entry(token, rowCount) {
+            @Override
+            void undo(AppDatabase database) {
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.neelkamath.timebend.db;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SqlTest {
+    @Test
+    public void toPrefixMatchMatchesEachWordAsAPrefix() {
+        assertEquals("\"yo*\" \"med*\"", Sql.toPrefixMatch("yo med"));
+    }
+
+    @Test
+    public void toPrefixMatchDropsPunctuationAndExtraSpaces() {
+        assertEquals("\"tea*\" \"yoga*\"", Sql.toPrefixMatch("  tea,  (yoga)! "));
+    }
+
+    @Test
+    public void toPrefixMatchDropsFtsSyntax() {
+        assertEquals("\"a*\" \"OR*\" \"b*\"", Sql.toPrefixMatch("a* OR \"b"));
+        assertEquals("\"x*\"", Sql.toPrefixMatch("-x"));
+    }
+
+    @Test
+    public void toPrefixMatchKeepsLettersAndDigitsOfAnyScript() {
+        assertEquals("\"café*\" \"42*\" \"日本*\"", Sql.toPrefixMatch("café 42 日本"));
+    }
+
+    @Test
+    public void toPrefixMatchOfNoWordsIsEmpty() {
+        assertEquals("", Sql.toPrefixMatch(""));
+        assertEquals("", Sql.toPrefixMatch(" ,.;\"* "));
+    }
+}